@@ -0,0 +1,26 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link HTTPClient} that is able to perform requests without blocking the calling thread.<br>
+ * Used by {@link ResourceFactory} for resource methods that return a {@link CompletableFuture} or {@link java.util.concurrent.CompletionStage CompletionStage}
+ * */
+public interface AsyncHTTPClient extends HTTPClient {
+
+    /**
+     * Performs the provided {@link Request} asynchronously
+     * @param request The {@link Request} that should be executed
+     * @param method The resource method that initiated the request. May be used for inspection
+     * @param params The parameters the resource method was called with. May be null if the method has no parameters
+     * @return a {@link CompletableFuture} that completes with a {@link Response} representing the servers response,
+     * or exceptionally with any exception that occurred during the request
+     * */
+    @NotNull
+    CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params);
+
+}
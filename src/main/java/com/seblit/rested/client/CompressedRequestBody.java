@@ -0,0 +1,114 @@
+package com.seblit.rested.client;
+
+import com.seblit.rested.client.annotation.Compress;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses a request body while it is written into the output of the {@link HTTPClient}. The compressed length isn't known in advance.
+ * Records the sizes before and after compression in the {@link CompressionStats} of the method
+ */
+final class CompressedRequestBody implements StreamedRequestBody {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final byte[] data;
+    private final StreamedRequestBody source;
+    private final Compress compress;
+    private final CompressionStats stats;
+
+    CompressedRequestBody(byte[] data, Compress compress, CompressionStats stats) {
+        this(data, null, compress, stats);
+    }
+
+    CompressedRequestBody(StreamedRequestBody source, Compress compress, CompressionStats stats) {
+        this(null, source, compress, stats);
+    }
+
+    private CompressedRequestBody(byte[] data, StreamedRequestBody source, Compress compress, CompressionStats stats) {
+        this.data = data;
+        this.source = source;
+        this.compress = compress;
+        this.stats = stats;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(@NotNull OutputStream output) throws Exception {
+        CountingOutputStream compressed = new CountingOutputStream(output);
+        DeflaterOutputStream compressor;
+        Deflater deflater;
+        if (Compress.GZIP.equalsIgnoreCase(compress.value())) {
+            GzipOutputStream gzip = new GzipOutputStream(compressed, compress.level());
+            compressor = gzip;
+            deflater = gzip.getDeflater();
+        } else {
+            deflater = new Deflater(compress.level());
+            compressor = new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE);
+        }
+        try {
+            CountingOutputStream uncompressed = new CountingOutputStream(compressor);
+            if (data != null) {
+                uncompressed.write(data);
+            } else {
+                source.writeTo(uncompressed);
+            }
+            compressor.finish();
+            stats.onCompressed(uncompressed.count, compressed.count);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * A {@link GZIPOutputStream} with a configurable level. Its deflater is ended by the body instead of closing the stream, which would close the output
+     */
+    private static final class GzipOutputStream extends GZIPOutputStream {
+
+        private GzipOutputStream(OutputStream output, int level) throws IOException {
+            super(output, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        private Deflater getDeflater() {
+            return def;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
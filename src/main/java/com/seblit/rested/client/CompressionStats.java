@@ -0,0 +1,64 @@
+package com.seblit.rested.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The request body compression achieved by a resource method annotated with {@link com.seblit.rested.client.annotation.Compress Compress}.
+ * Compares the size of the bodies before and after compression, so the saved bandwidth can be weighed against the CPU time
+ */
+public final class CompressionStats {
+
+    private final LongAdder compressedRequests = new LongAdder();
+    private final LongAdder skippedRequests = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    CompressionStats() {
+    }
+
+    /**
+     * @return the amount of request bodies that were compressed
+     */
+    public long getCompressedRequests() {
+        return compressedRequests.sum();
+    }
+
+    /**
+     * @return the amount of request bodies that were sent uncompressed because they were smaller than the threshold
+     */
+    public long getSkippedRequests() {
+        return skippedRequests.sum();
+    }
+
+    /**
+     * @return the total size of the compressed bodies before compression
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    /**
+     * @return the total size of the compressed bodies after compression
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return the compressed size relative to the uncompressed size, i.e. 0.2 if bodies shrank to a fifth. 1 if nothing was compressed yet
+     */
+    public double getRatio() {
+        long uncompressed = uncompressedBytes.sum();
+        return uncompressed > 0 ? (double) compressedBytes.sum() / uncompressed : 1;
+    }
+
+    void onSkipped() {
+        skippedRequests.increment();
+    }
+
+    void onCompressed(long uncompressed, long compressed) {
+        compressedRequests.increment();
+        uncompressedBytes.add(uncompressed);
+        compressedBytes.add(compressed);
+    }
+}
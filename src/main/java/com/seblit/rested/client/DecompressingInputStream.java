@@ -0,0 +1,154 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes a gzip or deflate encoded response body while it is read. The decoder is created on the first read, so empty bodies don't fail.<br>
+ * Deflate bodies are accepted with and without the zlib wrapper, as servers send both.
+ * The amount of encoded bytes read from the body and decoded bytes returned are added to the provided counters
+ */
+final class DecompressingInputStream extends InputStream {
+
+    static final String ENCODING_GZIP = "gzip";
+    static final String ENCODING_X_GZIP = "x-gzip";
+    static final String ENCODING_DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CountingInputStream source;
+    private final boolean gzip;
+    private final LongAdder decodedBytes;
+    private InputStream decoder;
+    private Inflater inflater;
+    private boolean closed;
+
+    DecompressingInputStream(InputStream source, boolean gzip, LongAdder encodedBytes, LongAdder decodedBytes) {
+        this.source = new CountingInputStream(source, encodedBytes);
+        this.gzip = gzip;
+        this.decodedBytes = decodedBytes;
+    }
+
+    /**
+     * @param contentEncoding The value of the Content-Encoding header
+     * @return true if the encoding is gzip, false if it is deflate, null if it isn't supported
+     */
+    static Boolean isGzip(String contentEncoding) {
+        String encoding = contentEncoding.trim();
+        if (encoding.equalsIgnoreCase(ENCODING_GZIP) || encoding.equalsIgnoreCase(ENCODING_X_GZIP)) {
+            return true;
+        } else if (encoding.equalsIgnoreCase(ENCODING_DEFLATE)) {
+            return false;
+        }
+        return null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (decoder == null && !openDecoder()) {
+            return -1;
+        }
+        int count = decoder.read(b, off, len);
+        if (count > 0) {
+            decodedBytes.add(count);
+        }
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return decoder != null ? decoder.available() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            source.close();
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private boolean openDecoder() throws IOException {
+        PushbackInputStream input = new PushbackInputStream(source, 2);
+        int first = input.read();
+        if (first < 0) {
+            decoder = InputStream.nullInputStream();
+            return false;
+        }
+        int second = input.read();
+        if (second >= 0) {
+            input.unread(second);
+        }
+        input.unread(first);
+        if (gzip) {
+            decoder = new GZIPInputStream(input, BUFFER_SIZE);
+        } else {
+            // a zlib header declares compression method 8 and is a multiple of 31
+            boolean zlib = (first & 0x0F) == 8 && second >= 0 && ((first << 8) | second) % 31 == 0;
+            inflater = new Inflater(!zlib);
+            decoder = new InflaterInputStream(input, inflater, BUFFER_SIZE);
+        }
+        return true;
+    }
+
+    private static final class CountingInputStream extends InputStream {
+
+        private final InputStream source;
+        private final LongAdder count;
+
+        private CountingInputStream(InputStream source, LongAdder count) {
+            this.source = source;
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = source.read();
+            if (value >= 0) {
+                count.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte @NotNull [] b, int off, int len) throws IOException {
+            int read = source.read(b, off, len);
+            if (read > 0) {
+                count.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Wraps the response body {@link InputStream} of a keep-alive connection. Connections can usually only be reused once their body was read completely,
+ * so closing this stream first reads and discards the remaining body if it doesn't exceed a limit.<br>
+ * Larger remaining bodies are not drained, as closing the connection and opening a new one is cheaper than transferring them.
+ * The {@link CloseListener} is told which case occurred, so the {@link HTTPClient} can disconnect deliberately or count reused connections
+ */
+public class DrainingInputStream extends FilterInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final long maxDrainBytes;
+    private final long contentLength;
+    private final CloseListener listener;
+    private long position;
+    private boolean complete;
+    private boolean closed;
+
+    /**
+     * Creates a new instance
+     *
+     * @param in            The body stream of the connection
+     * @param contentLength The length of the body, or -1 if unknown. Allows deciding against draining without reading
+     * @param maxDrainBytes The maximum amount of remaining bytes that are drained on close
+     * @param listener      Notified once when this stream is closed. May be null
+     * @throws IllegalArgumentException if maxDrainBytes is negative
+     */
+    public DrainingInputStream(@NotNull InputStream in, long contentLength, long maxDrainBytes, @Nullable CloseListener listener) {
+        super(in);
+        if (maxDrainBytes < 0) {
+            throw new IllegalArgumentException("maxDrainBytes must not be negative");
+        }
+        this.contentLength = contentLength;
+        this.maxDrainBytes = Math.min(maxDrainBytes, Long.MAX_VALUE - 1);
+        this.listener = listener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value < 0) {
+            complete = true;
+        } else {
+            position++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count < 0) {
+            complete = true;
+        } else {
+            position += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Drains the remaining body if it doesn't exceed the limit, then notifies the {@link CloseListener} and closes the underlying stream
+     *
+     * @throws IOException if the underlying stream fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean drained = drain();
+        try {
+            if (listener != null) {
+                listener.onClose(drained);
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    private boolean drain() {
+        if (complete || (contentLength >= 0 && position >= contentLength)) {
+            return true;
+        }
+        if (contentLength >= 0 && contentLength - position > maxDrainBytes) {
+            return false;
+        }
+        byte[] skipBuffer = new byte[(int) Math.max(1, Math.min(SKIP_BUFFER_SIZE, maxDrainBytes + 1))];
+        long drained = 0;
+        try {
+            int count;
+            while ((count = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, maxDrainBytes + 1 - drained))) >= 0) {
+                drained += count;
+                if (drained > maxDrainBytes) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Notified when a {@link DrainingInputStream} is closed, before the underlying stream is closed.
+     * Some streams return their connection for reuse when closed, so it must be disconnected before that
+     */
+    @FunctionalInterface
+    public interface CloseListener {
+
+        /**
+         * @param drained true if the body was read completely and the connection may be reused,
+         *                false if the remaining body exceeded the limit or draining failed and the connection should be closed
+         */
+        void onClose(boolean drained);
+    }
+}
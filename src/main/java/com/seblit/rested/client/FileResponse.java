@@ -0,0 +1,28 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * The result of a method whose response body is written into a file or channel instead of being parsed, see {@link com.seblit.rested.client.annotation.Sink Sink}.
+ * Provides the status code and headers of the response together with the written file
+ * */
+public class FileResponse extends RESTResponse {
+
+    private final Path path;
+
+    FileResponse(@Nullable Path path) {
+        super();
+        this.path = path;
+    }
+
+    /**
+     * @return the file the body was written into, or null if it was written into a channel
+     */
+    @Nullable
+    public Path getPath() {
+        return path;
+    }
+
+}
@@ -3,17 +3,18 @@ package com.seblit.rested.client;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Base class for types that support headers
+ * Base class for types that support headers. Header names are case-insensitive
  */
 public class HeaderHolder {
 
-    final Map<String, List<String>> headers = new HashMap<>();
+    Headers headers = Headers.EMPTY;
+
+    HeaderHolder() {
+    }
 
     HeaderHolder(@Nullable Map<String, List<String>> headers) {
         setHeaders(headers);
@@ -23,7 +24,7 @@ public class HeaderHolder {
      * @return an array containing all headers of this object
      */
     public final String @NotNull [] getHeaders() {
-        return headers.keySet().toArray(new String[0]);
+        return headers.getNames();
     }
 
     /**
@@ -31,7 +32,7 @@ public class HeaderHolder {
      * @return true if this object contains the requested header
      */
     public final boolean hasHeader(@Nullable String header) {
-        return headers.containsKey(header);
+        return headers.contains(header);
     }
 
     /**
@@ -39,19 +40,23 @@ public class HeaderHolder {
      * @return an array containing all values that this object holds for the requested header. May be null if the header isn't present
      */
     public final String @Nullable [] getHeaderValues(@Nullable String header) {
-        return hasHeader(header) ? headers.get(header).toArray(new String[0]) : null;
+        return headers.getValues(header);
+    }
+
+    /**
+     * @param header The desired header
+     * @return the first value that this object holds for the requested header. May be null if the header isn't present
+     */
+    public final @Nullable String getHeaderValue(@Nullable String header) {
+        return headers.getFirst(header);
     }
 
     final void setHeaders(@Nullable Map<String, @Nullable List<String>> headers) {
-        this.headers.clear();
-        if (headers != null) {
-            headers.forEach((name, values) -> {
-                if (name != null && values != null) {
-                    this.headers.put(name, new ArrayList<>(values));
-                }
-            });
-        }
+        this.headers = Headers.of(headers).snapshot();
     }
 
+    final void setHeaders(@NotNull Headers headers) {
+        this.headers = headers.snapshot();
+    }
 
 }
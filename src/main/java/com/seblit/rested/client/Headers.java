@@ -0,0 +1,414 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact container for http headers. Header names are case-insensitive (ASCII), values keep their insertion order.<br>
+ * Entries are stored in flat arrays. {@link #snapshot()} creates read-only views that share the storage with this instance,
+ * which is only copied when an entry of a shared storage is removed. {@link #copy()} creates modifiable copies that share the storage until they are modified.<br>
+ * Clients may use {@link #lazy(Source)} to provide headers that are only read from the transport when they are accessed
+ */
+public final class Headers {
+
+    /**
+     * A read-only instance without headers
+     */
+    public static final Headers EMPTY = new Headers(new String[0], new String[0], new int[0], 0, true);
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private String[] names;
+    private String[] values;
+    private int[] hashes;
+    private int size;
+    private final boolean readOnly;
+    private boolean shared;
+    private boolean appendable = true;
+    private volatile Source source;
+
+    /**
+     * Creates a new, empty and modifiable instance
+     */
+    public Headers() {
+        this(new String[DEFAULT_CAPACITY], new String[DEFAULT_CAPACITY], new int[DEFAULT_CAPACITY], 0, false);
+    }
+
+    private Headers(String[] names, String[] values, int[] hashes, int size, boolean readOnly) {
+        this.names = names;
+        this.values = values;
+        this.hashes = hashes;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates a read-only instance that loads its entries from the provided {@link Source} when they are first accessed.
+     * Until then, {@link #getFirst(String)} and {@link #contains(String)} are answered by the source directly
+     *
+     * @param source The source of the headers
+     * @return the created instance
+     */
+    @NotNull
+    public static Headers lazy(@NotNull Source source) {
+        Headers result = new Headers(EMPTY.names, EMPTY.values, EMPTY.hashes, 0, true);
+        result.source = source;
+        return result;
+    }
+
+    /**
+     * Creates a new modifiable instance containing all entries of the provided map. null names and values are skipped
+     *
+     * @param headers The headers to copy. May be null for no headers
+     * @return the created instance
+     */
+    @NotNull
+    public static Headers of(@Nullable Map<String, @Nullable List<String>> headers) {
+        Headers result = new Headers();
+        if (headers != null) {
+            headers.forEach((name, values) -> {
+                if (name != null && values != null) {
+                    for (String value : values) {
+                        result.add(name, value);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Appends a header value. If the header is already present, the value is added after the existing ones
+     *
+     * @param name  The header name. null values will be ignored
+     * @param value The header value. null values will be ignored
+     * @return this instance for method chaining
+     * @throws UnsupportedOperationException if this instance is read-only
+     */
+    @NotNull
+    public Headers add(@Nullable String name, @Nullable String value) {
+        checkModifiable();
+        if (name != null && value != null) {
+            if (!appendable) {
+                copyStorage(Math.max(DEFAULT_CAPACITY, names.length));
+            }
+            if (size == names.length) {
+                grow();
+            }
+            names[size] = name;
+            values[size] = value;
+            hashes[size] = hash(name);
+            size++;
+        }
+        return this;
+    }
+
+    /**
+     * Removes all values of a header
+     *
+     * @param name The header name
+     * @return this instance for method chaining
+     * @throws UnsupportedOperationException if this instance is read-only
+     */
+    @NotNull
+    public Headers remove(@Nullable String name) {
+        return remove(name, null, true);
+    }
+
+    /**
+     * Removes a specific value of a header. If the value isn't present, the call is ignored
+     *
+     * @param name  The header name
+     * @param value The header value to remove
+     * @return this instance for method chaining
+     * @throws UnsupportedOperationException if this instance is read-only
+     */
+    @NotNull
+    public Headers remove(@Nullable String name, @Nullable String value) {
+        return remove(name, value, false);
+    }
+
+    /**
+     * Removes all headers
+     *
+     * @return this instance for method chaining
+     * @throws UnsupportedOperationException if this instance is read-only
+     */
+    @NotNull
+    public Headers clear() {
+        checkModifiable();
+        names = new String[DEFAULT_CAPACITY];
+        values = new String[DEFAULT_CAPACITY];
+        hashes = new int[DEFAULT_CAPACITY];
+        size = 0;
+        shared = false;
+        appendable = true;
+        return this;
+    }
+
+    /**
+     * @param name The desired header
+     * @return true if this instance contains the header
+     */
+    public boolean contains(@Nullable String name) {
+        return getFirst(name) != null;
+    }
+
+    /**
+     * @param name The desired header
+     * @return the first value of the header. May be null if the header isn't present
+     */
+    @Nullable
+    public String getFirst(@Nullable String name) {
+        Source pendingSource = source;
+        if (pendingSource != null) {
+            return name != null ? pendingSource.getFirst(name) : null;
+        }
+        int index = indexOf(name, 0);
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * @param name The desired header
+     * @return an array containing all values of the header. May be null if the header isn't present
+     */
+    public String @Nullable [] getValues(@Nullable String name) {
+        load();
+        int first = indexOf(name, 0);
+        if (first < 0) {
+            return null;
+        }
+        int hash = hashes[first];
+        int count = 1;
+        for (int i = first + 1; i < size; i++) {
+            if (hashes[i] == hash && matches(names[i], name)) {
+                count++;
+            }
+        }
+        String[] result = new String[count];
+        result[0] = values[first];
+        for (int i = first + 1, resultIndex = 1; resultIndex < count; i++) {
+            if (hashes[i] == hash && matches(names[i], name)) {
+                result[resultIndex++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return an array containing each header name once, in the order of their first occurrence
+     */
+    public String @NotNull [] getNames() {
+        load();
+        String[] result = new String[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (indexOf(names[i], 0) == i) {
+                result[count++] = names[i];
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return the number of header values in this instance
+     */
+    public int size() {
+        load();
+        return size;
+    }
+
+    /**
+     * @param index The index of the entry. Must be less than {@link #size()}
+     * @return the header name of the entry at the index
+     */
+    @NotNull
+    public String getName(int index) {
+        load();
+        checkIndex(index);
+        return names[index];
+    }
+
+    /**
+     * @param index The index of the entry. Must be less than {@link #size()}
+     * @return the header value of the entry at the index
+     */
+    @NotNull
+    public String getValue(int index) {
+        load();
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @return true if this instance can't be modified
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Creates a read-only view of the current entries. The view shares the storage with this instance and isn't affected by later modifications
+     *
+     * @return the read-only view, or this instance if it is already read-only
+     */
+    @NotNull
+    public Headers snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        shared = true;
+        return new Headers(names, values, hashes, size, true);
+    }
+
+    private void load() {
+        if (source != null) {
+            synchronized (this) {
+                Source pendingSource = source;
+                if (pendingSource != null) {
+                    Headers loaded = new Headers();
+                    pendingSource.load(loaded);
+                    names = loaded.names;
+                    values = loaded.values;
+                    hashes = loaded.hashes;
+                    size = loaded.size;
+                    source = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a modifiable copy of the current entries. The copy shares the storage with this instance until either of them is modified
+     *
+     * @return the created copy
+     */
+    @NotNull
+    public Headers copy() {
+        load();
+        if (!readOnly) {
+            shared = true;
+        }
+        Headers copy = new Headers(names, values, hashes, size, false);
+        copy.shared = true;
+        copy.appendable = false;
+        return copy;
+    }
+
+    private Headers remove(String name, String value, boolean allValues) {
+        checkModifiable();
+        int index = indexOf(name, 0);
+        if (index < 0) {
+            return this;
+        }
+        if (shared) {
+            copyStorage(names.length);
+        }
+        int hash = hashes[index];
+        int target = index;
+        boolean removedValue = false;
+        for (int i = index; i < size; i++) {
+            boolean remove = hashes[i] == hash && matches(names[i], name) && (allValues || (!removedValue && values[i].equals(value)));
+            if (remove) {
+                removedValue = true;
+            } else {
+                names[target] = names[i];
+                values[target] = values[i];
+                hashes[target] = hashes[i];
+                target++;
+            }
+        }
+        Arrays.fill(names, target, size, null);
+        Arrays.fill(values, target, size, null);
+        size = target;
+        return this;
+    }
+
+    private int indexOf(String name, int fromIndex) {
+        if (name == null) {
+            return -1;
+        }
+        int hash = hash(name);
+        for (int i = fromIndex; i < size; i++) {
+            if (hashes[i] == hash && matches(names[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        copyStorage(Math.max(DEFAULT_CAPACITY, names.length * 2));
+    }
+
+    private void copyStorage(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        values = Arrays.copyOf(values, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        shared = false;
+        appendable = true;
+    }
+
+    private void checkModifiable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Headers are read-only");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Provides the headers of a {@link #lazy(Source) lazy} instance
+     */
+    public interface Source {
+
+        /**
+         * Looks up a single header without loading all headers
+         *
+         * @param name The desired header. Must be compared case-insensitive
+         * @return the first value of the header. May be null if the header isn't present
+         */
+        @Nullable
+        String getFirst(@NotNull String name);
+
+        /**
+         * Adds all headers to the target. Called at most once, when the headers are first accessed
+         *
+         * @param target The modifiable instance to add the headers to
+         */
+        void load(@NotNull Headers target);
+    }
+
+    private static int hash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + foldCase(name.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean matches(String name, String other) {
+        if (name.length() != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (foldCase(name.charAt(i)) != foldCase(other.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char foldCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+}
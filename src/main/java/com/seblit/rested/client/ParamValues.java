@@ -0,0 +1,219 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Formats the values of {@link com.seblit.rested.client.annotation.Header Header} and {@link com.seblit.rested.client.annotation.QueryParam QueryParam} parameters.
+ * Primitive arrays and streams are formatted without boxing. Joined values are written into a single builder
+ */
+final class ParamValues {
+
+    private ParamValues() {
+    }
+
+    /**
+     * Passes the formatted values of the parameter to the consumer
+     *
+     * @param param     The parameter. null values are skipped
+     * @param delimiter The delimiter to join all values into a single value with. Empty to pass each value separately
+     * @param consumer  Receives the formatted values
+     */
+    static void forEach(@Nullable Object param, @NotNull String delimiter, @NotNull Consumer<String> consumer) {
+        if (param == null) {
+            return;
+        }
+        if (delimiter.isEmpty()) {
+            write(param, new SeparateSink(consumer));
+        } else {
+            JoinedSink sink = new JoinedSink(delimiter);
+            write(param, sink);
+            if (sink.hasValues) {
+                consumer.accept(sink.builder.toString());
+            }
+        }
+    }
+
+    private static void write(Object param, Sink sink) {
+        if (param instanceof Object[]) {
+            for (Object value : (Object[]) param) {
+                writeElement(value, sink);
+            }
+        } else if (param instanceof Iterable<?>) {
+            for (Object value : (Iterable<?>) param) {
+                writeElement(value, sink);
+            }
+        } else if (param instanceof int[]) {
+            for (int value : (int[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof long[]) {
+            for (long value : (long[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof double[]) {
+            for (double value : (double[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof float[]) {
+            for (float value : (float[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof short[]) {
+            for (short value : (short[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof byte[]) {
+            for (byte value : (byte[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof char[]) {
+            for (char value : (char[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof boolean[]) {
+            for (boolean value : (boolean[]) param) {
+                sink.add(value);
+            }
+        } else if (param instanceof IntStream) {
+            ((IntStream) param).forEachOrdered(sink::add);
+        } else if (param instanceof LongStream) {
+            ((LongStream) param).forEachOrdered(sink::add);
+        } else if (param instanceof DoubleStream) {
+            ((DoubleStream) param).forEachOrdered(sink::add);
+        } else {
+            writeElement(param, sink);
+        }
+    }
+
+    private static void writeElement(Object value, Sink sink) {
+        if (value instanceof Integer) {
+            sink.add((int) value);
+        } else if (value instanceof Long) {
+            sink.add((long) value);
+        } else if (value != null) {
+            sink.add(String.valueOf(value));
+        }
+    }
+
+    private interface Sink {
+
+        void add(int value);
+
+        void add(long value);
+
+        void add(double value);
+
+        void add(float value);
+
+        void add(char value);
+
+        void add(boolean value);
+
+        void add(String value);
+    }
+
+    private static final class SeparateSink implements Sink {
+
+        private final Consumer<String> consumer;
+
+        private SeparateSink(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void add(int value) {
+            consumer.accept(Integer.toString(value));
+        }
+
+        @Override
+        public void add(long value) {
+            consumer.accept(Long.toString(value));
+        }
+
+        @Override
+        public void add(double value) {
+            consumer.accept(Double.toString(value));
+        }
+
+        @Override
+        public void add(float value) {
+            consumer.accept(Float.toString(value));
+        }
+
+        @Override
+        public void add(char value) {
+            consumer.accept(String.valueOf(value));
+        }
+
+        @Override
+        public void add(boolean value) {
+            consumer.accept(Boolean.toString(value));
+        }
+
+        @Override
+        public void add(String value) {
+            consumer.accept(value);
+        }
+    }
+
+    private static final class JoinedSink implements Sink {
+
+        private final String delimiter;
+        private final StringBuilder builder = new StringBuilder();
+        private boolean hasValues;
+
+        private JoinedSink(String delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        private StringBuilder next() {
+            if (hasValues) {
+                builder.append(delimiter);
+            }
+            hasValues = true;
+            return builder;
+        }
+
+        @Override
+        public void add(int value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(long value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(double value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(float value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(char value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(boolean value) {
+            next().append(value);
+        }
+
+        @Override
+        public void add(String value) {
+            next().append(value);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * UTF-8 percent-encoding of URL components that writes directly into a {@link StringBuilder}.<br>
+ * Values that only consist of safe ASCII characters are appended as they are, without any intermediate allocations
+ */
+public final class PercentEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] QUERY_SAFE = new boolean[128];
+    private static final boolean[] PATH_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            QUERY_SAFE[c] = true;
+            QUERY_SAFE[c - 'a' + 'A'] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            QUERY_SAFE[c] = true;
+        }
+        for (char c : ".-*_".toCharArray()) {
+            QUERY_SAFE[c] = true;
+        }
+        System.arraycopy(QUERY_SAFE, 0, PATH_SAFE, 0, QUERY_SAFE.length);
+        for (char c : "~!$&'()*+,;=:@/".toCharArray()) {
+            PATH_SAFE[c] = true;
+        }
+    }
+
+    private PercentEncoder() {
+    }
+
+    /**
+     * Appends the value encoded as application/x-www-form-urlencoded query component, equal to the output of
+     * {@link java.net.URLEncoder#encode(String, java.nio.charset.Charset)} with UTF-8
+     *
+     * @param value  The value to encode
+     * @param target The builder to append to
+     * @return the target for method chaining
+     */
+    @NotNull
+    public static StringBuilder encodeQueryComponent(@NotNull String value, @NotNull StringBuilder target) {
+        return encode(value, target, QUERY_SAFE, true);
+    }
+
+    /**
+     * Appends the path with all characters percent-encoded that are not allowed in an URL path.
+     * Unreserved characters, sub-delimiters, ':', '@' and '/' are kept. '%' is always encoded
+     *
+     * @param path   The path to encode
+     * @param target The builder to append to
+     * @return the target for method chaining
+     */
+    @NotNull
+    public static StringBuilder encodePath(@NotNull String path, @NotNull StringBuilder target) {
+        return encode(path, target, PATH_SAFE, false);
+    }
+
+    private static StringBuilder encode(String value, StringBuilder target, boolean[] safe, boolean spaceAsPlus) {
+        int length = value.length();
+        int start = 0;
+        while (start < length && isSafe(value.charAt(start), safe)) {
+            start++;
+        }
+        if (start == length) {
+            return target.append(value);
+        }
+        target.ensureCapacity(target.length() + length + 16);
+        target.append(value, 0, start);
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (isSafe(c, safe)) {
+                target.append(c);
+            } else if (c == ' ' && spaceAsPlus) {
+                target.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(target, c);
+            } else if (c < 0x800) {
+                appendEscaped(target, 0xC0 | (c >> 6));
+                appendEscaped(target, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(target, 0xF0 | (codePoint >> 18));
+                appendEscaped(target, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(target, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(target, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                appendEscaped(target, '?');
+            } else {
+                appendEscaped(target, 0xE0 | (c >> 12));
+                appendEscaped(target, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(target, 0x80 | (c & 0x3F));
+            }
+        }
+        return target;
+    }
+
+    private static boolean isSafe(char c, boolean[] safe) {
+        return c < 0x80 && safe[c];
+    }
+
+    private static void appendEscaped(StringBuilder target, int octet) {
+        target.append('%').append(HEX_DIGITS[(octet >> 4) & 0xF]).append(HEX_DIGITS[octet & 0xF]);
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.seblit.rested.client;
+
+import java.util.Arrays;
+
+/**
+ * Case-sensitive counterpart of {@link Headers} used by {@link Request} to store query parameters in insertion order.<br>
+ * {@link #snapshot()} creates read-only views that share the storage. Values appended after a snapshot are written behind the
+ * snapshots entries, so only removals copy the storage. Entries may carry their pre-encoded form, which {@link #encode()} uses instead of encoding them again
+ */
+final class QueryParams {
+
+    static final QueryParams EMPTY = new QueryParams(new String[0], new String[0], new String[0], new int[0], 0, true);
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final char QUERY_PARAM_DELIMITER = '&';
+    private static final char QUERY_KEY_VALUE_DELIMITER = '=';
+
+    private String[] names;
+    private String[] values;
+    private String[] encoded;
+    private int[] hashes;
+    private int size;
+    private final boolean readOnly;
+    private boolean shared;
+    private boolean appendable = true;
+
+    QueryParams() {
+        this(new String[DEFAULT_CAPACITY], new String[DEFAULT_CAPACITY], new String[DEFAULT_CAPACITY], new int[DEFAULT_CAPACITY], 0, false);
+    }
+
+    private QueryParams(String[] names, String[] values, String[] encoded, int[] hashes, int size, boolean readOnly) {
+        this.names = names;
+        this.values = values;
+        this.encoded = encoded;
+        this.hashes = hashes;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    void add(String name, String value) {
+        append(name, value, null);
+    }
+
+    void addEncoded(String name, String value) {
+        if (name != null && value != null) {
+            append(name, value, encodePair(name, value));
+        }
+    }
+
+    void remove(String name, String value, boolean allValues) {
+        checkModifiable();
+        int index = indexOf(name);
+        if (index < 0) {
+            return;
+        }
+        if (shared) {
+            copyStorage(names.length);
+        }
+        int hash = hashes[index];
+        int target = index;
+        boolean removedValue = false;
+        for (int i = index; i < size; i++) {
+            boolean remove = hashes[i] == hash && names[i].equals(name) && (allValues || (!removedValue && values[i].equals(value)));
+            if (remove) {
+                removedValue = true;
+            } else {
+                names[target] = names[i];
+                values[target] = values[i];
+                encoded[target] = encoded[i];
+                hashes[target] = hashes[i];
+                target++;
+            }
+        }
+        Arrays.fill(names, target, size, null);
+        Arrays.fill(values, target, size, null);
+        Arrays.fill(encoded, target, size, null);
+        size = target;
+    }
+
+    boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    String[] getValues(String name) {
+        int first = indexOf(name);
+        if (first < 0) {
+            return null;
+        }
+        int hash = hashes[first];
+        int count = 1;
+        for (int i = first + 1; i < size; i++) {
+            if (hashes[i] == hash && names[i].equals(name)) {
+                count++;
+            }
+        }
+        String[] result = new String[count];
+        result[0] = values[first];
+        for (int i = first + 1, resultIndex = 1; resultIndex < count; i++) {
+            if (hashes[i] == hash && names[i].equals(name)) {
+                result[resultIndex++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    String[] getNames() {
+        String[] result = new String[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (indexOf(names[i]) == i) {
+                result[count++] = names[i];
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Encodes all entries as application/x-www-form-urlencoded query using UTF-8 into a single builder. Pre-encoded entries are appended as they are
+     */
+    String encode() {
+        if (size == 0) {
+            return null;
+        }
+        int capacity = size - 1;
+        for (int i = 0; i < size; i++) {
+            capacity += encoded[i] != null ? encoded[i].length() : names[i].length() + values[i].length() + 1;
+        }
+        StringBuilder query = new StringBuilder(capacity + (capacity >> 2));
+        for (int i = 0; i < size; i++) {
+            if (i != 0) {
+                query.append(QUERY_PARAM_DELIMITER);
+            }
+            if (encoded[i] != null) {
+                query.append(encoded[i]);
+            } else {
+                appendPair(names[i], values[i], query);
+            }
+        }
+        return query.toString();
+    }
+
+    QueryParams snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        shared = true;
+        return new QueryParams(names, values, encoded, hashes, size, true);
+    }
+
+    QueryParams copy() {
+        if (!readOnly) {
+            shared = true;
+        }
+        QueryParams copy = new QueryParams(names, values, encoded, hashes, size, false);
+        copy.shared = true;
+        copy.appendable = false;
+        return copy;
+    }
+
+    private void append(String name, String value, String encodedPair) {
+        checkModifiable();
+        if (name != null && value != null) {
+            if (!appendable) {
+                copyStorage(Math.max(DEFAULT_CAPACITY, names.length));
+            }
+            if (size == names.length) {
+                copyStorage(Math.max(DEFAULT_CAPACITY, names.length * 2));
+            }
+            names[size] = name;
+            values[size] = value;
+            encoded[size] = encodedPair;
+            hashes[size] = name.hashCode();
+            size++;
+        }
+    }
+
+    private int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int hash = name.hashCode();
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void copyStorage(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        values = Arrays.copyOf(values, capacity);
+        encoded = Arrays.copyOf(encoded, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        shared = false;
+        appendable = true;
+    }
+
+    private void checkModifiable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Query parameters are read-only");
+        }
+    }
+
+    private static String encodePair(String name, String value) {
+        return appendPair(name, value, new StringBuilder(name.length() + value.length() + 1)).toString();
+    }
+
+    private static StringBuilder appendPair(String name, String value, StringBuilder target) {
+        PercentEncoder.encodeQueryComponent(name, target).append(QUERY_KEY_VALUE_DELIMITER);
+        return PercentEncoder.encodeQueryComponent(value, target);
+    }
+
+}
@@ -3,18 +3,16 @@ package com.seblit.rested.client;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Thrown by resource methods when an error response is received and no other Exception type was declared through {@link Error}.<br>
- * Provides access to response status code, message, headers and the original request
+ * Provides access to response status code, message, headers and the original request. Header names are case-insensitive
  * */
 public class RESTException extends RuntimeException {
 
-    private final Map<String, List<String>> headers = new HashMap<>();
+    private Headers headers = Headers.EMPTY;
     private int statusCode;
     private String responseMessage;
     private Request request;
@@ -40,12 +38,14 @@ public class RESTException extends RuntimeException {
     }
 
     final void init(int statusCode, @Nullable String responseMessage, @Nullable Map<String, List<String>> headers, @NotNull Request request) {
+        init(statusCode, responseMessage, Headers.of(headers), request);
+    }
+
+    final void init(int statusCode, @Nullable String responseMessage, @NotNull Headers headers, @NotNull Request request) {
         this.statusCode = statusCode;
         this.responseMessage = responseMessage;
         this.request = request;
-        if (headers != null) {
-            headers.forEach((name, values) -> this.headers.put(name, new ArrayList<>(values)));
-        }
+        this.headers = headers.snapshot();
     }
 
     /**
@@ -76,14 +76,14 @@ public class RESTException extends RuntimeException {
      */
     @NotNull
     public String[] getHeaders() {
-        return headers.keySet().toArray(new String[0]);
+        return headers.getNames();
     }
 
     /**
      * @return true if this response contains the requested header
      */
     public boolean hasHeader(@Nullable String header) {
-        return headers.containsKey(header);
+        return headers.contains(header);
     }
 
     /**
@@ -92,6 +92,15 @@ public class RESTException extends RuntimeException {
      */
     @Nullable
     public String[] getHeaderValues(String header) {
-        return hasHeader(header) ? headers.get(header).toArray(new String[0]) : null;
+        return headers.getValues(header);
+    }
+
+    /**
+     * @param header The desired header
+     * @return the first value that this object holds for the requested header. May be null if the header isn't present
+     */
+    @Nullable
+    public String getHeaderValue(@Nullable String header) {
+        return headers.getFirst(header);
     }
 }
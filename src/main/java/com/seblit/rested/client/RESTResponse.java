@@ -2,9 +2,6 @@ package com.seblit.rested.client;
 
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * Use or extend this class to access response http status code, message and headers
  * */
@@ -17,7 +14,7 @@ public class RESTResponse extends HeaderHolder {
      * Creates a new instance
      * */
     public RESTResponse() {
-        super(null);
+        super();
     }
 
     /**
@@ -34,10 +31,10 @@ public class RESTResponse extends HeaderHolder {
         return responseMessage;
     }
 
-    final void init(int statusCode, @Nullable String message, @Nullable Map<String, List<String>> headers) {
+    final void init(int statusCode, @Nullable String message, @Nullable Headers headers) {
         this.statusCode = statusCode;
         this.responseMessage = message;
-        setHeaders(headers);
+        this.headers = headers != null ? headers.snapshot() : Headers.EMPTY;
     }
 
 }
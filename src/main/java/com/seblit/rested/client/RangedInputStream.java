@@ -0,0 +1,271 @@
+package com.seblit.rested.client;
+
+import com.seblit.rested.client.annotation.ParallelDownload;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reassembles a body that is downloaded in byte ranges, see {@link ParallelDownload}.<br>
+ * The first part is streamed from the probe response, the following parts are requested on daemon threads and buffered until they are read.
+ * A new part is requested whenever one is taken from the buffer, so at most parallelism - 1 parts are buffered at a time.
+ * Failed parts and parts that don't match the probe are reported as {@link IOException} when the stream reaches them
+ */
+final class RangedInputStream extends InputStream {
+
+    static final String HEADER_RANGE = "Range";
+    private static final String HEADER_IF_RANGE = "If-Range";
+    static final String HEADER_CONTENT_RANGE = "Content-Range";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String RANGE_UNIT = "bytes";
+    private static final String MESSAGE_OK = "OK";
+    private static final String WEAK_ETAG_PREFIX = "W/";
+    private static final int STATUS_OK = 200;
+    static final int STATUS_PARTIAL_CONTENT = 206;
+    private static final int STATUS_RANGE_NOT_SATISFIABLE = 416;
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ParallelDownload-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HTTPClient client;
+    private final Request request;
+    private final Method method;
+    private final Object[] args;
+    private final String validator;
+    private final long partSize;
+    private final long total;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private InputStream current;
+    private long currentRemaining;
+    private long nextStart;
+    private boolean closed;
+
+    private RangedInputStream(HTTPClient client, Request request, Method method, Object[] args, String validator, InputStream first, long firstLength,
+                              long total, ParallelDownload config) {
+        this.client = client;
+        this.request = request;
+        this.method = method;
+        this.args = args;
+        this.validator = validator;
+        this.partSize = config.partSize();
+        this.total = total;
+        current = first;
+        currentRemaining = firstLength;
+        nextStart = firstLength;
+        for (int i = 1; i < config.parallelism(); i++) {
+            requestNextPart();
+        }
+    }
+
+    /**
+     * @return the header value that requests the first part of a download
+     */
+    static String probeRange(ParallelDownload config) {
+        return RANGE_UNIT + "=0-" + (config.partSize() - 1);
+    }
+
+    /**
+     * Turns the response to a probe request into the response for the whole body.
+     * Responses that aren't 206 Partial Content starting at the first byte are returned as they are, as the server doesn't support ranges
+     *
+     * @return a 200 response whose body stream downloads the remaining parts in parallel
+     */
+    static Response assemble(HTTPClient client, Request request, Response probe, Method method, Object[] args, ParallelDownload config) {
+        if (probe.getStatusCode() == STATUS_RANGE_NOT_SATISFIABLE && isEmpty(probe.getHeaderValue(HEADER_CONTENT_RANGE))) {
+            closeQuietly(probe.getBodyStream());
+            return rebuild(probe, InputStream.nullInputStream(), 0);
+        }
+        long[] range = probe.getStatusCode() == STATUS_PARTIAL_CONTENT ? parseContentRange(probe.getHeaderValue(HEADER_CONTENT_RANGE)) : null;
+        InputStream first = probe.getBodyStream();
+        if (range == null || range[0] != 0 || first == null) {
+            return probe;
+        }
+        long firstLength = range[1] + 1;
+        if (firstLength >= range[2]) {
+            return rebuild(probe, first, range[2]);
+        }
+        return rebuild(probe, new RangedInputStream(client, request, method, args, validator(probe), first, firstLength, range[2], config), range[2]);
+    }
+
+    /**
+     * @return the strong ETag of the response, its Last-Modified date if there is none, or null if it has neither
+     */
+    static String validator(Response response) {
+        String eTag = response.getETag();
+        return eTag != null && !eTag.startsWith(WEAK_ETAG_PREFIX) ? eTag : response.getHeaderValue(HEADER_LAST_MODIFIED);
+    }
+
+    /**
+     * @return a builder for the request with the Range header set to the bytes from start to end, and If-Range set to the validator if present
+     */
+    static Request.Builder rangeRequest(Request request, long start, long end, String validator) {
+        Request.Builder builder = request.toBuilder();
+        builder.removeHeader(HEADER_RANGE).addHeader(HEADER_RANGE, RANGE_UNIT + "=" + start + "-" + (end >= 0 ? String.valueOf(end) : ""));
+        builder.removeHeader(HEADER_IF_RANGE);
+        if (validator != null) {
+            builder.addHeader(HEADER_IF_RANGE, validator);
+        }
+        return builder;
+    }
+
+    /**
+     * @return start, end and total length of a Content-Range header value, or null if it is missing or has no known total length
+     */
+    static long[] parseContentRange(String contentRange) {
+        if (contentRange == null || !contentRange.regionMatches(true, 0, RANGE_UNIT + " ", 0, RANGE_UNIT.length() + 1)) {
+            return null;
+        }
+        int dash = contentRange.indexOf('-', RANGE_UNIT.length() + 1);
+        int slash = contentRange.indexOf('/', dash + 1);
+        if (dash < 0 || slash < 0) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(contentRange.substring(RANGE_UNIT.length() + 1, dash).trim());
+            long end = Long.parseLong(contentRange.substring(dash + 1, slash).trim());
+            long total = Long.parseLong(contentRange.substring(slash + 1).trim());
+            return start <= end && end < total ? new long[]{start, end, total} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current != null) {
+            int count = current.read(b, off, (int) Math.min(len, currentRemaining));
+            if (count > 0) {
+                currentRemaining -= count;
+                return count;
+            }
+            if (currentRemaining > 0) {
+                throw new IOException("Part ended " + currentRemaining + " bytes early");
+            }
+            nextPart();
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null ? (int) Math.min(current.available(), currentRemaining) : 0;
+    }
+
+    /**
+     * Closes the current part and discards the parts read ahead. Parts that are still downloading are cancelled
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> part : pending) {
+            part.cancel(true);
+        }
+        pending.clear();
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private void nextPart() throws IOException {
+        current.close();
+        current = null;
+        Future<byte[]> part = pending.poll();
+        if (part == null) {
+            return;
+        }
+        requestNextPart();
+        byte[] data;
+        try {
+            data = part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the next part");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Failed to download part", cause);
+        }
+        current = new ByteArrayInputStream(data);
+        currentRemaining = data.length;
+    }
+
+    private void requestNextPart() {
+        if (nextStart >= total) {
+            return;
+        }
+        long start = nextStart;
+        long end = Math.min(start + partSize, total) - 1;
+        nextStart = end + 1;
+        pending.add(WORKERS.submit(() -> downloadPart(start, end)));
+    }
+
+    private byte[] downloadPart(long start, long end) throws Exception {
+        Response response = client.request(rangeRequest(request, start, end, validator).build(), method, args);
+        try (InputStream bodyStream = response.getBodyStream()) {
+            if (response.getStatusCode() != STATUS_PARTIAL_CONTENT) {
+                throw new IOException("Expected partial content for bytes " + start + "-" + end + " but received status " + response.getStatusCode()
+                        + ". The resource may have changed during the download");
+            }
+            long[] range = parseContentRange(response.getHeaderValue(HEADER_CONTENT_RANGE));
+            if (range == null || range[0] != start || range[1] != end || range[2] != total) {
+                throw new IOException("Unexpected Content-Range for bytes " + start + "-" + end + ": " + response.getHeaderValue(HEADER_CONTENT_RANGE));
+            }
+            int length = (int) (end - start + 1);
+            byte[] data = bodyStream != null ? bodyStream.readNBytes(length) : new byte[0];
+            if (data.length != length) {
+                throw new IOException("Part " + start + "-" + end + " ended after " + data.length + " bytes");
+            }
+            return data;
+        }
+    }
+
+    private static Response rebuild(Response probe, InputStream bodyStream, long length) {
+        return new Response.Builder()
+                .setStatusCode(STATUS_OK)
+                .setMessage(MESSAGE_OK)
+                .setBodyStream(bodyStream)
+                .setHeaders(probe.headers.copy().remove(HEADER_CONTENT_RANGE).remove(HEADER_CONTENT_LENGTH).add(HEADER_CONTENT_LENGTH, String.valueOf(length)))
+                .build();
+    }
+
+    private static boolean isEmpty(String contentRange) {
+        return contentRange != null && contentRange.trim().equalsIgnoreCase(RANGE_UNIT + " */0");
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
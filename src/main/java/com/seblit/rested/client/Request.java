@@ -1,28 +1,31 @@
 package com.seblit.rested.client;
 
+import com.seblit.rested.client.media.StreamedRequestBody;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.*;
-
 /**
- * Represents a request that can be executed by a {@link HTTPClient}. Use {@link Request.Builder} to create one
+ * Represents a request that can be executed by a {@link HTTPClient}. Use {@link Request.Builder} to create one.<br>
+ * Requests share their headers, query parameters and body with the {@link Request.Builder} that created them. Modifications of the builder
+ * after {@link Request.Builder#build()} do not affect the request
  */
 public class Request extends HeaderHolder {
 
     private final RequestMethod method;
     private final String path;
     private final byte[] body;
-    private final Map<String, List<String>> queryParams = new HashMap<>();
+    private final StreamedRequestBody streamedBody;
+    private final QueryParams queryParams;
+    private String encodedQuery;
 
-    private Request(@NotNull RequestMethod method, @Nullable String path, byte @Nullable [] body, @Nullable Map<String, List<String>> headers, @Nullable Map<String, List<String>> queryParams) {
-        super(headers);
+    private Request(@NotNull RequestMethod method, @Nullable String path, byte @Nullable [] body, @Nullable StreamedRequestBody streamedBody, @NotNull Headers headers, @NotNull QueryParams queryParams) {
+        super();
+        setHeaders(headers);
         this.method = method;
         this.path = path;
-        this.body = body != null ? Arrays.copyOf(body, body.length) : null;
-        if (queryParams != null) {
-            queryParams.forEach((name, values) -> this.queryParams.put(name, new ArrayList<>(values)));
-        }
+        this.body = body;
+        this.streamedBody = streamedBody;
+        this.queryParams = queryParams.snapshot();
     }
 
     /**
@@ -42,17 +45,27 @@ public class Request extends HeaderHolder {
     }
 
     /**
+     * Note that the array is shared with the {@link Builder} and must not be modified
+     *
      * @return the body of this request. May be null if no body is set
      */
     public byte @Nullable [] getBody() {
-        return body != null ? Arrays.copyOf(body, body.length) : null;
+        return body;
+    }
+
+    /**
+     * @return the streamed body of this request. May be null if no streamed body is set. A request has either a body or a streamed body
+     */
+    @Nullable
+    public StreamedRequestBody getStreamedBody() {
+        return streamedBody;
     }
 
     /**
      * @return an array containing all query parameters of this request
      */
     public String @NotNull [] getQueryParams() {
-        return queryParams.keySet().toArray(new String[0]);
+        return queryParams.getNames();
     }
 
     /**
@@ -60,7 +73,7 @@ public class Request extends HeaderHolder {
      * @return true if this request contains the provided query parameter
      */
     public boolean hasQueryParam(@Nullable String queryParam) {
-        return queryParams.containsKey(queryParam);
+        return queryParams.contains(queryParam);
     }
 
     /**
@@ -69,21 +82,57 @@ public class Request extends HeaderHolder {
      */
     @Nullable
     public String[] getQueryParamValues(String queryParam) {
-        return hasQueryParam(queryParam) ? queryParams.get(queryParam).toArray(new String[0]) : null;
+        return queryParams.getValues(queryParam);
+    }
+
+    /**
+     * Encodes all query parameters in their order of insertion as application/x-www-form-urlencoded query using UTF-8.
+     * Parameters that were declared statically by the resource are already encoded and only appended. The result is cached
+     *
+     * @return the encoded query without leading question mark. May be null if this request has no query parameters
+     */
+    @Nullable
+    public String getEncodedQuery() {
+        String result = encodedQuery;
+        if (result == null) {
+            result = encodedQuery = queryParams.encode();
+        }
+        return result;
+    }
+
+    /**
+     * @return a builder with the method, path, headers and query parameters of this request. The body is not copied
+     */
+    @NotNull
+    Builder toBuilder() {
+        return new Builder(method, path, headers, queryParams);
     }
 
     /**
-     * A Builder to construct a {@link Request}
+     * A Builder to construct a {@link Request}. Building is cheap: the request shares the storage of the builder,
+     * and {@link #build()} returns the previous {@link Request} if the builder wasn't modified since
      */
     public static class Builder extends HeaderHolder {
 
         private RequestMethod method = RequestMethod.GET;
         private String path = "";
         private byte[] body;
-        private final Map<String, List<String>> queryParams = new HashMap<>();
+        private StreamedRequestBody streamedBody;
+        private final QueryParams queryParams;
+        private Request lastBuild;
 
         public Builder() {
-            super(null);
+            super();
+            headers = new Headers();
+            queryParams = new QueryParams();
+        }
+
+        Builder(@NotNull RequestMethod method, @NotNull String path, @NotNull Headers headers, @NotNull QueryParams queryParams) {
+            super();
+            this.method = method;
+            this.path = path;
+            this.headers = headers.copy();
+            this.queryParams = queryParams.copy();
         }
 
         /**
@@ -93,7 +142,10 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Request build() {
-            return new Request(method, path, body, headers, queryParams);
+            if (lastBuild == null) {
+                lastBuild = new Request(method, path, body, streamedBody, headers, queryParams);
+            }
+            return lastBuild;
         }
 
         /**
@@ -109,6 +161,7 @@ public class Request extends HeaderHolder {
                 throw new IllegalArgumentException("method may not be null. All requests require it");
             }
             this.method = method;
+            lastBuild = null;
             return this;
         }
 
@@ -129,6 +182,7 @@ public class Request extends HeaderHolder {
         @NotNull
         public Builder setPath(@Nullable String path) {
             this.path = path;
+            lastBuild = null;
             return this;
         }
 
@@ -141,7 +195,7 @@ public class Request extends HeaderHolder {
         }
 
         /**
-         * Sets the body of this builder
+         * Sets the body of this builder. Replaces the streamed body, if set
          *
          * @param body The body. May be null for no body
          * @return the builder instance for method chaining
@@ -149,6 +203,8 @@ public class Request extends HeaderHolder {
         @NotNull
         public Builder setBody(byte @Nullable [] body) {
             this.body = body;
+            this.streamedBody = null;
+            lastBuild = null;
             return this;
         }
 
@@ -159,6 +215,28 @@ public class Request extends HeaderHolder {
             return body;
         }
 
+        /**
+         * Sets the streamed body of this builder, which is written directly into the request output by the {@link HTTPClient}. Replaces the body, if set
+         *
+         * @param streamedBody The streamed body. May be null for no body
+         * @return the builder instance for method chaining
+         */
+        @NotNull
+        public Builder setStreamedBody(@Nullable StreamedRequestBody streamedBody) {
+            this.streamedBody = streamedBody;
+            this.body = null;
+            lastBuild = null;
+            return this;
+        }
+
+        /**
+         * @return the current streamed body of this builder. May be null
+         */
+        @Nullable
+        public StreamedRequestBody getStreamedBody() {
+            return streamedBody;
+        }
+
         /**
          * Adds a key-value pair to the headers of this builder. If the header is already present, the value will be appended to it
          *
@@ -168,9 +246,8 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Builder addHeader(@Nullable String header, @Nullable String value) {
-            if (header != null && value != null) {
-                headers.computeIfAbsent(header, s -> new ArrayList<>()).add(value);
-            }
+            headers.add(header, value);
+            lastBuild = null;
             return this;
         }
 
@@ -183,6 +260,7 @@ public class Request extends HeaderHolder {
         @NotNull
         public Builder removeHeader(@Nullable String header) {
             headers.remove(header);
+            lastBuild = null;
             return this;
         }
 
@@ -195,12 +273,8 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Builder removeHeader(@Nullable String header, @Nullable String value) {
-            if (headers.containsKey(header)) {
-                headers.get(header).remove(value);
-                if (headers.get(header).isEmpty()) {
-                    headers.remove(header);
-                }
-            }
+            headers.remove(header, value);
+            lastBuild = null;
             return this;
         }
 
@@ -213,9 +287,8 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Builder addQueryParam(@Nullable String queryParam, @Nullable String value) {
-            if (queryParam != null && value != null) {
-                queryParams.computeIfAbsent(queryParam, s -> new ArrayList<>()).add(value);
-            }
+            queryParams.add(queryParam, value);
+            lastBuild = null;
             return this;
         }
 
@@ -227,7 +300,8 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Builder removeQueryParam(@Nullable String queryParam) {
-            queryParams.remove(queryParam);
+            queryParams.remove(queryParam, null, true);
+            lastBuild = null;
             return this;
         }
 
@@ -240,12 +314,8 @@ public class Request extends HeaderHolder {
          */
         @NotNull
         public Builder removeQueryParam(@Nullable String queryParam, @Nullable String value) {
-            if (hasQueryParam(queryParam)) {
-                queryParams.get(queryParam).remove(value);
-                if (queryParams.get(queryParam).isEmpty()) {
-                    queryParams.remove(queryParam);
-                }
-            }
+            queryParams.remove(queryParam, value, false);
+            lastBuild = null;
             return this;
         }
 
@@ -253,14 +323,14 @@ public class Request extends HeaderHolder {
          * @return true if this builder contains the requested query parameter
          */
         public boolean hasQueryParam(@Nullable String queryParam) {
-            return queryParams.containsKey(queryParam);
+            return queryParams.contains(queryParam);
         }
 
         /**
          * @return an array containing all current query parameters of this builder
          */
         public String @NotNull [] getQueryParams() {
-            return queryParams.keySet().toArray(new String[0]);
+            return queryParams.getNames();
         }
 
         /**
@@ -268,7 +338,7 @@ public class Request extends HeaderHolder {
          * @return an array containing all values that this builder currently holds for the requested query parameter. May be null if the parameter isn't present
          */
         public String @Nullable [] getQueryParamValues(@Nullable String queryParam) {
-            return hasQueryParam(queryParam) ? queryParams.get(queryParam).toArray(new String[0]) : null;
+            return queryParams.getValues(queryParam);
         }
     }
 
@@ -0,0 +1,186 @@
+package com.seblit.rested.client;
+
+import com.seblit.rested.client.annotation.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The compiled declaration of a resource method. Created once per method by {@link ResourceFactory} so that annotations are only evaluated once.
+ * Holds the static headers and the pre-encoded static query parameters that each {@link Request.Builder} of the method starts with.
+ * For methods returning a {@link CompletableFuture} or {@link CompletionStage}, the result type is the type argument of the future.
+ * Methods annotated with {@link Compress} keep their {@link CompressionStats} here.
+ * Methods returning {@link Path} or {@link FileResponse}, or declaring a {@link Sink}, write successful response bodies instead of parsing them
+ */
+final class RequestTemplate {
+
+    private static final String FORMAT_PATH_PARAM = "{%s}";
+    private static final String HEADER_ACCEPT_DELIMITER = ", ";
+
+    final Endpoint endpoint;
+    final String accept;
+    final String acceptCharset;
+    final Header[] headerParams;
+    final QueryParam[] queryParams;
+    final int bodyIndex;
+    final Body body;
+    final Part[] parts;
+    final boolean multipart;
+    final Compress compress;
+    final CompressionStats compressionStats;
+    final ParallelDownload parallelDownload;
+    final Resumable resumable;
+    final int sinkIndex;
+    final boolean sink;
+    final boolean async;
+    final Class<?> resultType;
+    private final String path;
+    private final String[] pathPlaceholders;
+    private final Headers staticHeaders;
+    private final QueryParams staticQueryParams;
+
+    RequestTemplate(@NotNull Method method) {
+        endpoint = method.getDeclaredAnnotation(Endpoint.class);
+        Class<?> resourceType = method.getDeclaringClass();
+        Resource resource = resourceType.getDeclaredAnnotation(Resource.class);
+        path = (resource != null ? resource.value() : "") + endpoint.path();
+        accept = endpoint.mediaTypes().length != 0 ? String.join(HEADER_ACCEPT_DELIMITER, endpoint.mediaTypes()) : null;
+        acceptCharset = endpoint.charsets().length != 0 ? String.join(HEADER_ACCEPT_DELIMITER, endpoint.charsets()) : null;
+        Headers staticHeaders = new Headers();
+        QueryParams staticQueryParams = new QueryParams();
+        for (StaticHeader header : resourceType.getDeclaredAnnotationsByType(StaticHeader.class)) {
+            staticHeaders.add(header.name(), header.value());
+        }
+        for (StaticHeader header : method.getDeclaredAnnotationsByType(StaticHeader.class)) {
+            staticHeaders.add(header.name(), header.value());
+        }
+        for (StaticQueryParam queryParam : resourceType.getDeclaredAnnotationsByType(StaticQueryParam.class)) {
+            staticQueryParams.addEncoded(queryParam.name(), queryParam.value());
+        }
+        for (StaticQueryParam queryParam : method.getDeclaredAnnotationsByType(StaticQueryParam.class)) {
+            staticQueryParams.addEncoded(queryParam.name(), queryParam.value());
+        }
+        this.staticHeaders = staticHeaders.snapshot();
+        this.staticQueryParams = staticQueryParams.snapshot();
+
+        Parameter[] params = method.getParameters();
+        headerParams = new Header[params.length];
+        queryParams = new QueryParam[params.length];
+        parts = new Part[params.length];
+        boolean multipart = false;
+        pathPlaceholders = new String[params.length];
+        int bodyIndex = -1;
+        Body body = null;
+        int sinkIndex = -1;
+        for (int paramIndex = 0; paramIndex < params.length; paramIndex++) {
+            headerParams[paramIndex] = params[paramIndex].getDeclaredAnnotation(Header.class);
+            queryParams[paramIndex] = params[paramIndex].getDeclaredAnnotation(QueryParam.class);
+            PathParam pathParam = params[paramIndex].getDeclaredAnnotation(PathParam.class);
+            if (pathParam != null) {
+                pathPlaceholders[paramIndex] = String.format(FORMAT_PATH_PARAM, pathParam.value());
+            }
+            Body paramBody = params[paramIndex].getDeclaredAnnotation(Body.class);
+            if (paramBody != null && body == null) {
+                bodyIndex = paramIndex;
+                body = paramBody;
+            }
+            parts[paramIndex] = params[paramIndex].getDeclaredAnnotation(Part.class);
+            multipart |= parts[paramIndex] != null;
+            if (params[paramIndex].isAnnotationPresent(Sink.class) && sinkIndex < 0) {
+                Class<?> sinkType = params[paramIndex].getType();
+                if (sinkType != Path.class && !WritableByteChannel.class.isAssignableFrom(sinkType)) {
+                    throw new IllegalArgumentException("Sink must be a Path or WritableByteChannel: " + method.getName());
+                }
+                sinkIndex = paramIndex;
+            }
+        }
+        this.sinkIndex = sinkIndex;
+        if (multipart && body != null) {
+            throw new IllegalArgumentException("Part and Body can't be combined: " + method.getName());
+        }
+        this.multipart = multipart;
+        this.bodyIndex = bodyIndex;
+        this.body = body;
+        compress = method.getDeclaredAnnotation(Compress.class);
+        if (compress != null && !Compress.GZIP.equalsIgnoreCase(compress.value()) && !Compress.DEFLATE.equalsIgnoreCase(compress.value())) {
+            throw new IllegalArgumentException("Unsupported content coding " + compress.value() + ": " + method.getName());
+        }
+        if (compress != null && (compress.level() < -1 || compress.level() > 9)) {
+            throw new IllegalArgumentException("Compression level must be -1 or between 0 and 9: " + method.getName());
+        }
+        compressionStats = compress != null ? new CompressionStats() : null;
+
+        Class<?> returnType = method.getReturnType();
+        async = returnType == CompletableFuture.class || returnType == CompletionStage.class;
+        resultType = async ? resolveFutureResultType(method.getGenericReturnType()) : returnType;
+        sink = sinkIndex >= 0 || resultType == Path.class || resultType == FileResponse.class;
+        if (sink) {
+            boolean channelSink = sinkIndex >= 0 && params[sinkIndex].getType() != Path.class;
+            if (resultType != void.class && resultType != Path.class && resultType != RESTResponse.class && resultType != FileResponse.class
+                    || resultType == Path.class && channelSink) {
+                throw new IllegalArgumentException("Unsupported return type for a Sink: " + method.getName());
+            }
+        }
+        parallelDownload = method.getDeclaredAnnotation(ParallelDownload.class);
+        if (parallelDownload != null) {
+            requireStreamedDownload(ParallelDownload.class, method);
+            if (parallelDownload.parallelism() <= 0 || parallelDownload.partSize() <= 0) {
+                throw new IllegalArgumentException("parallelism and partSize must be positive: " + method.getName());
+            }
+        }
+        resumable = method.getDeclaredAnnotation(Resumable.class);
+        if (resumable != null) {
+            requireStreamedDownload(Resumable.class, method);
+            if (resumable.maxAttempts() <= 0) {
+                throw new IllegalArgumentException("maxAttempts must be positive: " + method.getName());
+            }
+        }
+    }
+
+    private void requireStreamedDownload(Class<?> annotation, Method method) {
+        if (endpoint.value() != RequestMethod.GET || resultType != StreamedRESTResponse.class) {
+            throw new IllegalArgumentException(annotation.getSimpleName() + " requires a GET endpoint returning StreamedRESTResponse: " + method.getName());
+        }
+    }
+
+    /**
+     * Creates the builder for a call of the method, initialized with method, path and static headers and query parameters
+     */
+    @NotNull
+    Request.Builder createBuilder(Object[] args) {
+        return new Request.Builder(endpoint.value(), buildPath(args), staticHeaders, staticQueryParams);
+    }
+
+    private static Class<?> resolveFutureResultType(Type futureType) {
+        if (futureType instanceof ParameterizedType) {
+            Type resultType = ((ParameterizedType) futureType).getActualTypeArguments()[0];
+            if (resultType instanceof ParameterizedType) {
+                resultType = ((ParameterizedType) resultType).getRawType();
+            }
+            if (resultType == Void.class) {
+                return void.class;
+            } else if (resultType instanceof Class) {
+                return (Class<?>) resultType;
+            }
+        }
+        return Object.class;
+    }
+
+    private String buildPath(Object[] args) {
+        String result = path;
+        for (int paramIndex = 0; paramIndex < pathPlaceholders.length; paramIndex++) {
+            if (pathPlaceholders[paramIndex] != null && args[paramIndex] != null) {
+                result = result.replace(pathPlaceholders[paramIndex], String.valueOf(args[paramIndex]));
+            }
+        }
+        return result;
+    }
+
+}
@@ -2,10 +2,15 @@ package com.seblit.rested.client;
 
 import com.seblit.rested.client.annotation.Error;
 import com.seblit.rested.client.annotation.*;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.InputStreamRequestBody;
 import com.seblit.rested.client.media.MissingRequestParserException;
 import com.seblit.rested.client.media.MissingResponseParserException;
+import com.seblit.rested.client.media.MultipartRequestBody;
 import com.seblit.rested.client.media.RequestBodyParser;
 import com.seblit.rested.client.media.ResponseBodyParser;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import com.seblit.rested.client.media.StreamedRequestBodyParser;
 import com.seblit.rested.client.middleware.RequestInterceptor;
 import com.seblit.rested.client.middleware.ResponseInterceptor;
 import org.jetbrains.annotations.NotNull;
@@ -14,10 +19,15 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Consumer;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +48,9 @@ public class ResourceFactory {
     private final Map<String, ResponseBodyParser> responseParserRegistry = new HashMap<>();
     private final List<RequestInterceptor> requestInterceptors = new ArrayList<>();
     private final List<ResponseInterceptor> responseInterceptors = new ArrayList<>();
+    private final LongAdder compressedResponseBytes = new LongAdder();
+    private final LongAdder decompressedResponseBytes = new LongAdder();
+    private volatile boolean responseDecompressionEnabled;
 
     /**
      * Creates a new instance
@@ -172,25 +185,35 @@ public class ResourceFactory {
      * <li>Use {@link Body} on a parameter to declare it as the request body. Only one annotation per request allowed</li>
      * <li>Use {@link QueryParam} on a parameter to declare it as a query parameter. null values will be ignored</li>
      * <li>Use {@link Resource} on the interface class to declare a base path for all endpoints</li>
+     * <li>Use {@link StaticHeader} and {@link StaticQueryParam} on the interface class or the method to declare constant headers and query parameters.
+     * Declarations of the interface class come first. Static query parameters are encoded once</li>
      * <li>You may declare path parameters in the resource and endpoint path by wrapping them in {parentheses}. Use @{@link PathParam}
      * on a parameter to declare it as the replace value for the path parameter</li>
      * <li>Use {@link Error} on the method to declare custom error types for specific response code ranges</li>
      * <li>Methods should be declared with <code>throws Exception</code> so {@link Exception}s that are thrown during execution
      * do not get wrapped in a {@link UndeclaredThrowableException}</li>
      * <li>Any {@link Throwable}s that may be thrown by any of the steps of the request will be thrown by its method.</li>
+     * <li>Methods may return a {@link CompletableFuture} or {@link java.util.concurrent.CompletionStage CompletionStage}. Its type argument is used as the return type
+     * and any {@link Throwable}s of the response steps complete the future exceptionally instead of being thrown. Requests are performed through
+     * {@link AsyncHTTPClient#requestAsync(Request, Method, Object[])} if the client supports it, otherwise on the calling thread.
+     * Response parsing and interception take place on the thread that completes the request</li>
      *
      * <h1>Request steps</h1>
-     * <li>Request construction: A {@link Request.Builder} will be created with values according to the invoked request method. After this
+     * <li>Request construction: A {@link Request.Builder} will be created with values according to the invoked request method. The annotations of a method
+     * are evaluated on its first invocation only. After this
      * the Accept and Accept-Charset headers will be added, if not already manually set.
      * If a body is specified, the {@link RequestBodyParser} for its media type will be invoked to create the binary data for the request body.
-     * After this the Content-Type and Content-Length headers will be added, if not already manually set.
+     * If the parser is a {@link StreamedRequestBodyParser}, a {@link StreamedRequestBody} is created instead, which the {@link HTTPClient} writes directly into the request.
+     * Bodies of type {@link Path}, {@link FileChannel} and {@link InputStream} skip parsing and are streamed into the request as they are.
+     * After this the Content-Type and Content-Length headers will be added, if not already manually set. Content-Length is omitted for streamed bodies of unknown length.
      * May result in a {@link MissingRequestParserException} if no parser is registered for the required media type. May also result in any Exception that the
      * parser implementation may produce during {@link RequestBodyParser#parse(Object, String, String)}</li>
      * <li>Request interception: All available {@link RequestInterceptor}s are notified about the pending request. May result in a {@link com.seblit.rested.client.middleware.RequestInterceptedException RequestInterceptedException}
      * if an interceptor decides to abort the request</li>
      * <li>Request execution: The final {@link Request} is constructed and the factories {@link HTTPClient} is called to execute it.
      * May result in any Exceptions that the client implementation may produce during {@link HTTPClient#request(Request, Method, Object[])}</li>
-     * <li>Response parsing:<br>First the desired return type is determined. For success responses (status code 2xx) this is the return type of the method (void will skip response parsing).
+     * <li>Response parsing:<br>If {@link #setResponseDecompressionEnabled(boolean) response decompression} is enabled, gzip and deflate encoded bodies are decoded while they are read.
+     * Then the desired return type is determined. For success responses (status code 2xx) this is the return type of the method (void will skip response parsing).
      * For error responses this is the Exception type for the status code declared by {@link Error} or default {@link RESTException}.<br><br>
      * Then, unless the type is an instance of {@link StreamedRESTResponse} or {@link StreamedRESTException}, the {@link ResponseBodyParser} for the response media type will be invoked
      * to parse the binary response body into the desired object type. After parsing the stream will be closed. May result in a {@link MissingResponseParserException} if no parser is registered for the required media type.
@@ -205,58 +228,227 @@ public class ResourceFactory {
         return (R) Proxy.newProxyInstance(ResourceFactory.class.getClassLoader(), new Class[]{type}, handler);
     }
 
+    /**
+     * Calls a resource method repeatedly before the application serves traffic, so the JIT compiles the request pipeline
+     * and the {@link HTTPClient} opens its connections ahead of the first real requests.<br>
+     * Each call passes the full pipeline, including {@link RequestInterceptor}s, parsers and the {@link HTTPClient}.
+     * The calls run on the calling thread, failed calls don't stop the warm-up
+     *
+     * @param type The resource type to create
+     * @param iterations The amount of calls. A few thousand are usually enough to trigger compilation
+     * @param call The call to repeat, should be safe to repeat
+     * @param <R> The resource type
+     * @return the amount of calls that succeeded
+     */
+    public <R> int warmUp(@NotNull Class<R> type, int iterations, @NotNull WarmUpCall<R> call) {
+        R resource = createResource(type);
+        int succeeded = 0;
+        for (int i = 0; i < iterations; i++) {
+            try {
+                call.call(resource);
+                succeeded++;
+            } catch (Exception ignored) {
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Enables or disables transparent response decompression. When enabled, requests advertise gzip and deflate through the Accept-Encoding header,
+     * unless it is already set. Responses with one of these Content-Encodings get a body stream that decodes the body while it is read,
+     * and their Content-Encoding and Content-Length headers are removed, before they are parsed or passed to {@link ResponseInterceptor}s.<br>
+     * Default: disabled
+     *
+     * @param responseDecompressionEnabled true to request and decode compressed responses
+     */
+    public void setResponseDecompressionEnabled(boolean responseDecompressionEnabled) {
+        this.responseDecompressionEnabled = responseDecompressionEnabled;
+    }
+
+    /**
+     * @return true if compressed responses are requested and decoded
+     */
+    public boolean isResponseDecompressionEnabled() {
+        return responseDecompressionEnabled;
+    }
+
+    /**
+     * @return the amount of compressed response body bytes that were read from decoded responses
+     */
+    public long getCompressedResponseBytes() {
+        return compressedResponseBytes.sum();
+    }
+
+    /**
+     * @return the amount of bytes the compressed response bodies were decoded into
+     */
+    public long getDecompressedResponseBytes() {
+        return decompressedResponseBytes.sum();
+    }
+
+    /**
+     * @param method A resource method annotated with {@link Compress}
+     * @return the request body compression achieved by the method, or null if it isn't annotated with {@link Compress}
+     */
+    @Nullable
+    public CompressionStats getCompressionStats(@NotNull Method method) {
+        if (!method.isAnnotationPresent(Compress.class)) {
+            return null;
+        }
+        return handler.templates.computeIfAbsent(method, RequestTemplate::new).compressionStats;
+    }
+
     private class ResourceHandler implements InvocationHandler {
 
-        private static final String FORMAT_PATH_PARAM = "{%s}";
         private static final String FORMAT_HEADER_CONTENT_TYPE = "%s; charset=%s";
         private static final String HEADER_ACCEPT = "Accept";
-        private static final String HEADER_ACCEPT_DELIMITER = ", ";
         private static final String HEADER_ACCEPT_CHARSET = "Accept-Charset";
         private static final String HEADER_CONTENT_TYPE = "Content-Type";
         private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+        private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+        private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+        private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
         private static final String MEDIA_TYPE_GENERIC = "*/*";
         private static final String MEDIA_SUBTYPE_SEPARATOR = "/";
         private static final String GENERIC_MEDIA = "*";
         private static final String CONTENT_TYPE_CHARSET_PREFIX = "charset=";
         private static final String CONTENT_TYPE_CHARSET_SEPARATOR = ";";
 
+        private final Map<Method, RequestTemplate> templates = new ConcurrentHashMap<>();
+
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            Endpoint endpoint = method.getDeclaredAnnotation(Endpoint.class);
-            Request.Builder requestBuilder = new Request.Builder()
-                    .setMethod(endpoint.value())
-                    .setPath(buildPath(endpoint, method, args));
-            loadHeaders(endpoint, requestBuilder, method, args);
-            loadQuery(requestBuilder, method, args);
-            Object bodyObject = loadBody(requestBuilder, method, args);
+            RequestTemplate template = templates.computeIfAbsent(method, RequestTemplate::new);
+            Request.Builder requestBuilder = template.createBuilder(args);
+            loadHeaders(template, requestBuilder, args);
+            loadQuery(template, requestBuilder, args);
+            Object bodyObject = loadBody(template, requestBuilder, args);
 
             synchronized (requestInterceptors) {
                 for (RequestInterceptor interceptor : requestInterceptors) {
                     interceptor.intercept(requestBuilder, bodyObject, method, args);
                 }
             }
+            boolean ranged = template.parallelDownload != null && !requestBuilder.hasHeader(RangedInputStream.HEADER_RANGE);
+            if (ranged) {
+                requestBuilder.addHeader(RangedInputStream.HEADER_RANGE, RangedInputStream.probeRange(template.parallelDownload));
+            }
             Request request = requestBuilder.build();
-            Response response = client.request(request, method, args);
-            Object parsedResponse = parseResponse(request, response, method);
+            if (template.async) {
+                return invokeAsync(template, request, ranged, method, args);
+            }
+            Response response = prepareDownload(template, request, ranged, client.request(request, method, args), method, args);
+            Object parsedResponse = processResponse(template, request, response, method, args);
+            if (parsedResponse instanceof Throwable) {
+                throw (Throwable) parsedResponse;
+            }
+            return parsedResponse;
+        }
+
+        private CompletableFuture<Object> invokeAsync(RequestTemplate template, Request request, boolean ranged, Method method, Object[] args) {
+            CompletableFuture<Response> responseFuture;
+            if (client instanceof AsyncHTTPClient) {
+                responseFuture = ((AsyncHTTPClient) client).requestAsync(request, method, args);
+            } else {
+                responseFuture = new CompletableFuture<>();
+                try {
+                    responseFuture.complete(client.request(request, method, args));
+                } catch (Exception e) {
+                    responseFuture.completeExceptionally(e);
+                }
+            }
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            responseFuture.whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    return;
+                }
+                try {
+                    Object parsedResponse = processResponse(template, request, prepareDownload(template, request, ranged, response, method, args), method, args);
+                    if (parsedResponse instanceof Throwable) {
+                        result.completeExceptionally((Throwable) parsedResponse);
+                    } else {
+                        result.complete(parsedResponse);
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        }
+
+        /**
+         * Reassembles the parts of a {@link ParallelDownload} and makes the body of a {@link Resumable} download resume on failures
+         */
+        private Response prepareDownload(RequestTemplate template, Request request, boolean ranged, Response response, Method method, Object[] args) {
+            if (ranged) {
+                response = RangedInputStream.assemble(client, request, response, method, args, template.parallelDownload);
+            }
+            if (template.resumable != null) {
+                response = ResumingInputStream.wrap(client, request, response, method, args, template.resumable.maxAttempts());
+            }
+            return response;
+        }
 
+        private Object processResponse(RequestTemplate template, Request request, Response response, Method method, Object[] args) throws Exception {
+            if (responseDecompressionEnabled) {
+                response = decompress(response);
+            }
+            Object parsedResponse = template.sink && response.isSuccessResponse()
+                    ? writeSink(template, response, args) : parseResponse(request, response, method, template.resultType);
             synchronized (responseInterceptors) {
                 for (ResponseInterceptor interceptor : responseInterceptors) {
                     interceptor.intercept(request, response, parsedResponse, method, args);
                 }
             }
+            return parsedResponse;
+        }
 
-            if (parsedResponse instanceof Throwable) {
-                throw (Throwable) parsedResponse;
+        private Response decompress(Response response) {
+            InputStream bodyStream = response.getBodyStream();
+            String contentEncoding = response.getContentEncoding();
+            Boolean gzip = bodyStream != null && contentEncoding != null ? DecompressingInputStream.isGzip(contentEncoding) : null;
+            if (gzip == null) {
+                return response;
             }
-            return parsedResponse;
+            return new Response.Builder()
+                    .setStatusCode(response.getStatusCode())
+                    .setMessage(response.getMessage())
+                    .setBodyStream(new DecompressingInputStream(bodyStream, gzip, compressedResponseBytes, decompressedResponseBytes))
+                    .setHeaders(response.headers.copy().remove(HEADER_CONTENT_ENCODING).remove(HEADER_CONTENT_LENGTH))
+                    .build();
         }
 
-        private Object parseResponse(Request request, Response response, Method method) throws Exception {
+        private Object writeSink(RequestTemplate template, Response response, Object[] args) throws Exception {
+            Object target = template.sinkIndex >= 0 ? args[template.sinkIndex] : null;
+            Path path;
+            try (InputStream bodyStream = response.getBodyStream() != null ? response.getBodyStream() : InputStream.nullInputStream()) {
+                if (target instanceof WritableByteChannel) {
+                    ResponseSink.write(bodyStream, (WritableByteChannel) target);
+                    path = null;
+                } else if (target != null) {
+                    path = (Path) target;
+                    ResponseSink.writeAtomically(bodyStream, path);
+                } else {
+                    path = ResponseSink.writeTemp(bodyStream);
+                }
+            }
+            if (template.resultType == Path.class) {
+                return path;
+            } else if (template.resultType == void.class) {
+                return null;
+            }
+            FileResponse result = new FileResponse(path);
+            result.init(response.getStatusCode(), response.getMessage(), response.headers);
+            return result;
+        }
+
+        private Object parseResponse(Request request, Response response, Method method, Class<?> successType) throws Exception {
             InputStream bodyStream = response.getBodyStream();
             try {
                 Class<?> resultType;
                 if (response.isSuccessResponse()) {
-                    resultType = method.getReturnType();
+                    resultType = successType;
                     if (!RESTResponse.class.isAssignableFrom(resultType) && (void.class == resultType || bodyStream == null)) {
                         return null;
                     }
@@ -291,8 +483,8 @@ public class ResourceFactory {
         }
 
         private Map.Entry<String, String> parseMediaInfo(HeaderHolder headerHolder) {
-            if (headerHolder.hasHeader(HEADER_CONTENT_TYPE)) {
-                String contentType = headerHolder.getHeaderValues(HEADER_CONTENT_TYPE)[0];
+            String contentType = headerHolder.headers.getFirst(HEADER_CONTENT_TYPE);
+            if (contentType != null) {
                 String[] mediaInfo = contentType.split(CONTENT_TYPE_CHARSET_SEPARATOR, 2);
                 String mediaType = mediaInfo[0].trim();
                 String charset = Charset.defaultCharset().name();
@@ -341,89 +533,144 @@ public class ResourceFactory {
             }
         }
 
-        private void loadHeaders(Endpoint endpoint, Request.Builder builder, Method method, Object[] args) {
-            Parameter[] params = method.getParameters();
-            for (int paramIndex = 0; paramIndex < params.length; paramIndex++) {
-                Header header = params[paramIndex].getDeclaredAnnotation(Header.class);
+        private void loadHeaders(RequestTemplate template, Request.Builder builder, Object[] args) {
+            for (int paramIndex = 0; paramIndex < template.headerParams.length; paramIndex++) {
+                Header header = template.headerParams[paramIndex];
                 if (header != null) {
-                    forEachParamValue(args[paramIndex], value -> builder.addHeader(header.value(), String.valueOf(value)));
+                    ParamValues.forEach(args[paramIndex], header.delimiter(), value -> builder.addHeader(header.value(), value));
                 }
             }
-            if (!builder.hasHeader(HEADER_ACCEPT) && endpoint.mediaTypes().length != 0) {
-                builder.addHeader(HEADER_ACCEPT, String.join(HEADER_ACCEPT_DELIMITER, endpoint.mediaTypes()));
+            if (!builder.hasHeader(HEADER_ACCEPT) && template.accept != null) {
+                builder.addHeader(HEADER_ACCEPT, template.accept);
+            }
+            if (!builder.hasHeader(HEADER_ACCEPT_CHARSET) && template.acceptCharset != null) {
+                builder.addHeader(HEADER_ACCEPT_CHARSET, template.acceptCharset);
             }
-            if (!builder.hasHeader(HEADER_ACCEPT_CHARSET) && endpoint.charsets().length != 0) {
-                builder.addHeader(HEADER_ACCEPT_CHARSET, String.join(HEADER_ACCEPT_DELIMITER, endpoint.charsets()));
+            if (responseDecompressionEnabled && !builder.hasHeader(HEADER_ACCEPT_ENCODING)) {
+                builder.addHeader(HEADER_ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
             }
         }
 
-        private void loadQuery(Request.Builder builder, Method method, Object[] args) {
-            Parameter[] params = method.getParameters();
-            for (int paramIndex = 0; paramIndex < params.length; paramIndex++) {
-                QueryParam queryParam = params[paramIndex].getDeclaredAnnotation(QueryParam.class);
+        private void loadQuery(RequestTemplate template, Request.Builder builder, Object[] args) {
+            for (int paramIndex = 0; paramIndex < template.queryParams.length; paramIndex++) {
+                QueryParam queryParam = template.queryParams[paramIndex];
                 if (queryParam != null) {
-                    forEachParamValue(args[paramIndex], value -> builder.addQueryParam(queryParam.value(), String.valueOf(value)));
+                    ParamValues.forEach(args[paramIndex], queryParam.delimiter(), value -> builder.addQueryParam(queryParam.value(), value));
                 }
             }
         }
 
-        private void forEachParamValue(Object param, Consumer<Object> consumer) {
-            if (param != null) {
-                if (param.getClass().isArray()) {
-                    param = Arrays.asList((Object[]) param);
-                }
-                if (param instanceof Iterable<?>) {
-                    ((Iterable<?>) param).forEach(value -> {
-                        if (value != null) {
-                            consumer.accept(value);
+        private Object loadBody(RequestTemplate template, Request.Builder builder, Object[] args) throws Exception {
+            Body body = template.body;
+            if (body != null) {
+                Object bodyObject = args[template.bodyIndex];
+                StreamedRequestBody passThroughBody = createPassThroughBody(bodyObject);
+                if (passThroughBody != null) {
+                    addBodyHeaders(builder, body.value(), passThroughBody.getContentLength());
+                    builder.setStreamedBody(passThroughBody);
+                } else if (bodyObject != null) {
+                    String contentType = String.format(FORMAT_HEADER_CONTENT_TYPE, body.value(), body.charset());
+                    RequestBodyParser parser = findParser(requestParserRegistry, body.value(), false);
+                    if (parser instanceof StreamedRequestBodyParser) {
+                        StreamedRequestBody streamedBody = ((StreamedRequestBodyParser) parser).parseStreamed(bodyObject, body.value(), body.charset());
+                        if (streamedBody != null) {
+                            if (isCompressed(template, builder, streamedBody.getContentLength())) {
+                                streamedBody = new CompressedRequestBody(streamedBody, template.compress, template.compressionStats);
+                            }
+                            addBodyHeaders(builder, contentType, streamedBody.getContentLength());
+                            builder.setStreamedBody(streamedBody);
                         }
-                    });
-                } else {
-                    consumer.accept(param);
-                }
-            }
-        }
-
-        private Object loadBody(Request.Builder builder, Method method, Object[] args) throws Exception {
-            Parameter[] params = method.getParameters();
-            for (int paramIndex = 0; paramIndex < params.length; paramIndex++) {
-                Body body = params[paramIndex].getDeclaredAnnotation(Body.class);
-                if (body != null) {
-                    Object bodyObject = args[paramIndex];
-                    if (bodyObject != null) {
-                        RequestBodyParser parser = findParser(requestParserRegistry, body.value(), false);
+                    } else {
                         byte[] bodyData = parser.parse(bodyObject, body.value(), body.charset());
                         if (bodyData != null) {
-                            if (!builder.hasHeader(HEADER_CONTENT_TYPE)) {
-                                builder.addHeader(HEADER_CONTENT_TYPE, String.format(FORMAT_HEADER_CONTENT_TYPE, body.value(), body.charset()));
-                            }
-                            if (!builder.hasHeader(HEADER_CONTENT_LENGTH)) {
-                                builder.addHeader(HEADER_CONTENT_LENGTH, Integer.toString(bodyData.length));
+                            if (isCompressed(template, builder, bodyData.length)) {
+                                addBodyHeaders(builder, contentType, -1);
+                                builder.setStreamedBody(new CompressedRequestBody(bodyData, template.compress, template.compressionStats));
+                            } else {
+                                addBodyHeaders(builder, contentType, bodyData.length);
+                                builder.setBody(bodyData);
                             }
-                            builder.setBody(bodyData);
                         }
                     }
-                    return bodyObject;
                 }
+                return bodyObject;
+            } else if (template.multipart) {
+                return loadParts(template, builder, args);
             }
             return null;
         }
 
-        private String buildPath(Endpoint endpoint, Method method, Object[] args) {
-            Resource resource = method.getDeclaringClass().getDeclaredAnnotation(Resource.class);
-            String resourcePath = resource != null ? resource.value() : "";
-            String path = resourcePath + endpoint.path();
-            Parameter[] params = method.getParameters();
-            for (int paramIndex = 0; paramIndex < params.length; paramIndex++) {
-                PathParam param = params[paramIndex].getDeclaredAnnotation(PathParam.class);
-                if (param != null) {
-                    Object paramValue = args[paramIndex];
-                    if (paramValue != null) {
-                        path = path.replaceAll(Pattern.quote(String.format(FORMAT_PATH_PARAM, param.value())), String.valueOf(paramValue));
+        private MultipartRequestBody loadParts(RequestTemplate template, Request.Builder builder, Object[] args) throws Exception {
+            MultipartRequestBody multipartBody = new MultipartRequestBody();
+            for (int paramIndex = 0; paramIndex < args.length; paramIndex++) {
+                Part part = template.parts[paramIndex];
+                Object value = args[paramIndex];
+                if (part == null || value == null) {
+                    continue;
+                }
+                String fileName = !part.fileName().isEmpty() ? part.fileName() : value instanceof Path ? String.valueOf(((Path) value).getFileName()) : null;
+                StreamedRequestBody passThroughBody = createPassThroughBody(value);
+                if (passThroughBody != null) {
+                    multipartBody.addPart(part.value(), fileName, !part.mediaType().isEmpty() ? part.mediaType() : Body.BINARY, passThroughBody);
+                } else if (part.mediaType().isEmpty()) {
+                    String contentType = String.format(FORMAT_HEADER_CONTENT_TYPE, Body.TEXT, part.charset());
+                    multipartBody.addPart(part.value(), fileName, contentType, String.valueOf(value).getBytes(part.charset()));
+                } else {
+                    String contentType = String.format(FORMAT_HEADER_CONTENT_TYPE, part.mediaType(), part.charset());
+                    RequestBodyParser parser = findParser(requestParserRegistry, part.mediaType(), false);
+                    if (parser instanceof StreamedRequestBodyParser) {
+                        StreamedRequestBody streamedPart = ((StreamedRequestBodyParser) parser).parseStreamed(value, part.mediaType(), part.charset());
+                        if (streamedPart != null) {
+                            multipartBody.addPart(part.value(), fileName, contentType, streamedPart);
+                        }
+                    } else {
+                        byte[] partData = parser.parse(value, part.mediaType(), part.charset());
+                        if (partData != null) {
+                            multipartBody.addPart(part.value(), fileName, contentType, partData);
+                        }
                     }
                 }
             }
-            return path;
+            StreamedRequestBody streamedBody = multipartBody;
+            if (isCompressed(template, builder, multipartBody.getContentLength())) {
+                streamedBody = new CompressedRequestBody(multipartBody, template.compress, template.compressionStats);
+            }
+            addBodyHeaders(builder, multipartBody.getContentType(), streamedBody.getContentLength());
+            builder.setStreamedBody(streamedBody);
+            return multipartBody;
+        }
+
+        private boolean isCompressed(RequestTemplate template, Request.Builder builder, long contentLength) {
+            Compress compress = template.compress;
+            if (compress == null || builder.hasHeader(HEADER_CONTENT_ENCODING)) {
+                return false;
+            }
+            if (contentLength >= 0 && contentLength < compress.threshold()) {
+                template.compressionStats.onSkipped();
+                return false;
+            }
+            builder.addHeader(HEADER_CONTENT_ENCODING, compress.value());
+            return true;
+        }
+
+        private StreamedRequestBody createPassThroughBody(Object bodyObject) throws IOException {
+            if (bodyObject instanceof Path) {
+                return new FileRequestBody((Path) bodyObject);
+            } else if (bodyObject instanceof FileChannel) {
+                return new FileRequestBody((FileChannel) bodyObject);
+            } else if (bodyObject instanceof InputStream) {
+                return new InputStreamRequestBody((InputStream) bodyObject);
+            }
+            return null;
+        }
+
+        private void addBodyHeaders(Request.Builder builder, String contentType, long contentLength) {
+            if (!builder.hasHeader(HEADER_CONTENT_TYPE)) {
+                builder.addHeader(HEADER_CONTENT_TYPE, contentType);
+            }
+            if (!builder.hasHeader(HEADER_CONTENT_LENGTH) && contentLength >= 0) {
+                builder.addHeader(HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+            }
         }
 
     }
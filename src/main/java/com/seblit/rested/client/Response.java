@@ -12,6 +12,11 @@ import java.util.Map;
  */
 public class Response extends HeaderHolder implements AutoCloseable {
 
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_ETAG = "ETag";
+
     private final int statusCode;
     private final String message;
     private final InputStream bodyStream;
@@ -31,6 +36,61 @@ public class Response extends HeaderHolder implements AutoCloseable {
         this.bodyStream = bodyStream;
     }
 
+    private Response(@NotNull Builder builder) {
+        super();
+        setHeaders(builder.headers);
+        this.statusCode = builder.statusCode;
+        this.message = builder.message;
+        this.bodyStream = builder.bodyStream;
+    }
+
+    /**
+     * @return the value of the Content-Type header. May be null if the header isn't present
+     */
+    @Nullable
+    public String getContentType() {
+        return headers.getFirst(HEADER_CONTENT_TYPE);
+    }
+
+    /**
+     * @return the value of the Content-Length header, or -1 if the header isn't present or invalid
+     */
+    public long getContentLength() {
+        String contentLength = headers.getFirst(HEADER_CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of the Content-Encoding header. May be null if the header isn't present
+     */
+    @Nullable
+    public String getContentEncoding() {
+        return headers.getFirst(HEADER_CONTENT_ENCODING);
+    }
+
+    /**
+     * @return the value of the ETag header. May be null if the header isn't present
+     */
+    @Nullable
+    public String getETag() {
+        return headers.getFirst(HEADER_ETAG);
+    }
+
+    /**
+     * @return a read-only view of the headers of this response. Shared by all objects created from this response
+     */
+    @NotNull
+    public Headers getHeaderView() {
+        return headers;
+    }
+
     /**
      * @return the http status code of this response
      */
@@ -64,7 +124,8 @@ public class Response extends HeaderHolder implements AutoCloseable {
     }
 
     /**
-     * Closes this responses body {@link InputStream} if available
+     * Closes this responses body {@link InputStream} if available.
+     * The default clients drain small unread bodies on close so the connection can be reused, see {@link DrainingInputStream}
      */
     @Override
     public void close() throws Exception {
@@ -72,4 +133,72 @@ public class Response extends HeaderHolder implements AutoCloseable {
             bodyStream.close();
         }
     }
+
+    /**
+     * A Builder to construct a {@link Response}. Allows clients to provide the response headers as {@link Headers} without copying them
+     */
+    public static class Builder {
+
+        private int statusCode;
+        private String message;
+        private InputStream bodyStream;
+        private Headers headers = Headers.EMPTY;
+
+        /**
+         * Creates a new {@link Response} with the current builder values
+         *
+         * @return the created {@link Response}
+         */
+        @NotNull
+        public Response build() {
+            return new Response(this);
+        }
+
+        /**
+         * @param statusCode The http status code of the response
+         * @return the builder instance for method chaining
+         */
+        @NotNull
+        public Builder setStatusCode(int statusCode) {
+            this.statusCode = statusCode;
+            return this;
+        }
+
+        /**
+         * @param message The http response message. May be null if none was received
+         * @return the builder instance for method chaining
+         */
+        @NotNull
+        public Builder setMessage(@Nullable String message) {
+            this.message = message;
+            return this;
+        }
+
+        /**
+         * @param bodyStream An {@link InputStream} to read the body of the response. May be null if no body is expected/desired
+         * @return the builder instance for method chaining
+         */
+        @NotNull
+        public Builder setBodyStream(@Nullable InputStream bodyStream) {
+            this.bodyStream = bodyStream;
+            return this;
+        }
+
+        /**
+         * Sets the response headers. The response uses a read-only {@link Headers#snapshot() snapshot} of them.
+         * Use {@link Headers#lazy(Headers.Source)} to read them from the transport only when they are accessed
+         *
+         * @param headers The response headers
+         * @return the builder instance for method chaining
+         * @throws IllegalArgumentException if headers is null
+         */
+        @NotNull
+        public Builder setHeaders(@NotNull Headers headers) {
+            if (headers == null) {
+                throw new IllegalArgumentException("headers may not be null. Use Headers.EMPTY for no headers");
+            }
+            this.headers = headers;
+            return this;
+        }
+    }
 }
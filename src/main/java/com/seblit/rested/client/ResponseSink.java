@@ -0,0 +1,113 @@
+package com.seblit.rested.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes response bodies into files and channels, see {@link com.seblit.rested.client.annotation.Sink}.<br>
+ * Bodies that are also a {@link ReadableByteChannel} are transferred with {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}
+ * or through a direct buffer, other bodies are copied through a large heap buffer, so each write reaches the target in few system calls
+ */
+final class ResponseSink {
+
+    private static final String TEMP_PREFIX = "rested-";
+    private static final String TEMP_SUFFIX = ".download";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
+    private ResponseSink() {
+    }
+
+    /**
+     * Writes the body into a new temporary file
+     *
+     * @return the temporary file
+     */
+    static Path writeTemp(InputStream body) throws IOException {
+        Path file = Files.createTempFile(TEMP_PREFIX, TEMP_SUFFIX);
+        writeFile(body, file);
+        return file;
+    }
+
+    /**
+     * Writes the body into a temporary file in the directory of the target, which then replaces the target.
+     * The replacement is atomic if the file system supports it
+     */
+    static void writeAtomically(InputStream body, Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), PART_SUFFIX);
+        writeFile(body, temp);
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes the body into the channel at its current position. The channel is not closed
+     *
+     * @return the amount of written bytes
+     */
+    static long write(InputStream body, WritableByteChannel target) throws IOException {
+        if (body instanceof ReadableByteChannel) {
+            ReadableByteChannel source = (ReadableByteChannel) body;
+            if (target instanceof FileChannel) {
+                FileChannel file = (FileChannel) target;
+                long start = file.position();
+                long position = start;
+                long count;
+                while ((count = file.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                    position += count;
+                }
+                file.position(position);
+                return position - start;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long written = 0;
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                written += writeFully(buffer, target);
+                buffer.clear();
+            }
+            return written;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        int count;
+        while ((count = body.readNBytes(buffer, 0, buffer.length)) > 0) {
+            written += writeFully(ByteBuffer.wrap(buffer, 0, count), target);
+        }
+        return written;
+    }
+
+    private static void writeFile(InputStream body, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(body, channel);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static int writeFully(ByteBuffer buffer, WritableByteChannel target) throws IOException {
+        int count = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Continues a response body after a failed read with a ranged request for the remaining bytes, see {@link com.seblit.rested.client.annotation.Resumable}.<br>
+ * A body that ends before its Content-Length is treated as failed as well. The resumed response must be 206 Partial Content starting at the
+ * current position and, if known, of the same total length. Otherwise it is discarded and the original exception is thrown
+ */
+final class ResumingInputStream extends InputStream {
+
+    private final HTTPClient client;
+    private final Request request;
+    private final Method method;
+    private final Object[] args;
+    private final String validator;
+    private final long length;
+    private final int maxAttempts;
+    private InputStream current;
+    private long position;
+    private int attempts;
+    private boolean closed;
+
+    private ResumingInputStream(HTTPClient client, Request request, Method method, Object[] args, String validator, InputStream first, long length, int maxAttempts) {
+        this.client = client;
+        this.request = request;
+        this.method = method;
+        this.args = args;
+        this.validator = validator;
+        this.length = length;
+        this.maxAttempts = maxAttempts;
+        current = first;
+    }
+
+    /**
+     * @return a response whose body is resumed on failures, or the response itself if it isn't a complete body with a validator
+     */
+    static Response wrap(HTTPClient client, Request request, Response response, Method method, Object[] args, int maxAttempts) {
+        InputStream bodyStream = response.getBodyStream();
+        String validator = RangedInputStream.validator(response);
+        if (response.getStatusCode() != 200 || bodyStream == null || validator == null) {
+            return response;
+        }
+        return new Response.Builder()
+                .setStatusCode(response.getStatusCode())
+                .setMessage(response.getMessage())
+                .setBodyStream(new ResumingInputStream(client, request, method, args, validator, bodyStream, response.getContentLength(), maxAttempts))
+                .setHeaders(response.headers)
+                .build();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            int count;
+            try {
+                count = current.read(b, off, len);
+                if (count < 0 && length >= 0 && position < length) {
+                    throw new EOFException("Body ended after " + position + " of " + length + " bytes");
+                }
+            } catch (IOException e) {
+                resume(e);
+                continue;
+            }
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : current.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current.close();
+    }
+
+    private void resume(IOException failure) throws IOException {
+        if (attempts >= maxAttempts) {
+            throw failure;
+        }
+        attempts++;
+        try {
+            current.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        Response response;
+        try {
+            response = client.request(RangedInputStream.rangeRequest(request, position, -1, validator).build(), method, args);
+        } catch (Exception e) {
+            failure.addSuppressed(e);
+            throw failure;
+        }
+        long[] range = RangedInputStream.parseContentRange(response.getHeaderValue(RangedInputStream.HEADER_CONTENT_RANGE));
+        InputStream bodyStream = response.getBodyStream();
+        if (response.getStatusCode() != RangedInputStream.STATUS_PARTIAL_CONTENT || range == null || range[0] != position
+                || (length >= 0 && range[2] != length) || bodyStream == null) {
+            try {
+                response.close();
+            } catch (Exception e) {
+                failure.addSuppressed(e);
+            }
+            failure.addSuppressed(new IOException("Resuming at byte " + position + " failed with status " + response.getStatusCode()
+                    + " and Content-Range " + response.getHeaderValue(RangedInputStream.HEADER_CONTENT_RANGE)));
+            throw failure;
+        }
+        current = bodyStream;
+    }
+
+}
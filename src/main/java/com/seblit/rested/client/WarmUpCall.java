@@ -0,0 +1,20 @@
+package com.seblit.rested.client;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A call of a resource method used by {@link ResourceFactory#warmUp(Class, int, WarmUpCall)}. It is repeated many times, so it should be safe to repeat,
+ * like a health check
+ *
+ * @param <R> The resource type
+ */
+@FunctionalInterface
+public interface WarmUpCall<R> {
+
+    /**
+     * @param resource The resource created by the factory
+     * @throws Exception any exception counts the call as failed without stopping the warm-up
+     */
+    void call(@NotNull R resource) throws Exception;
+
+}
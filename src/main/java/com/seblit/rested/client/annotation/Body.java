@@ -9,6 +9,9 @@ import java.lang.annotation.Target;
  * Marks a parameter as the body of a request that will be processed by {@link com.seblit.rested.client.media.RequestBodyParser RequestBodyParser}
  * and sent as the body of the request.<br>
  * Only one per Method allowed.<br>
+ * Parameters of type {@link java.nio.file.Path Path}, {@link java.nio.channels.FileChannel FileChannel} and {@link java.io.InputStream InputStream}
+ * are not parsed but streamed into the request as they are. Their Content-Type is the media type without charset.
+ * The Content-Length of files is taken from their size, streams are sent with unknown length.<br>
  * Null parameters will be ignored and no body is sent
  * */
 @Target(ElementType.PARAMETER)
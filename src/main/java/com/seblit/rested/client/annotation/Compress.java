@@ -0,0 +1,37 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compresses the {@link Body} of an {@link Endpoint} if it is at least {@link #threshold()} bytes large. Bodies of unknown length are always compressed.<br>
+ * The body produced by the {@link com.seblit.rested.client.media.RequestBodyParser RequestBodyParser} is compressed while it is written into the request,
+ * the Content-Encoding header is set and the body is sent with unknown length. Bodies that are streamed as they are, like files, are not compressed.
+ * If the Content-Encoding header is already set, the body isn't compressed either.<br>
+ * The achieved compression is available through {@link com.seblit.rested.client.ResourceFactory#getCompressionStats(java.lang.reflect.Method) ResourceFactory.getCompressionStats}
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Compress {
+
+    String GZIP = "gzip";
+    String DEFLATE = "deflate";
+
+    /**
+     * The content coding. Either {@link #GZIP} or {@link #DEFLATE}
+     * */
+    String value() default GZIP;
+
+    /**
+     * The minimum body size in bytes for compression. Smaller bodies usually don't gain enough to be worth the CPU time
+     * */
+    long threshold() default 1024;
+
+    /**
+     * The compression level from 1 (fastest) to 9 (smallest), 0 for no compression, or -1 for the default level
+     * */
+    int level() default -1;
+
+}
@@ -0,0 +1,30 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Downloads the body of a GET {@link Endpoint} returning {@link com.seblit.rested.client.StreamedRESTResponse StreamedRESTResponse} in byte ranges over several requests at once.<br>
+ * The first request asks for the first {@link #partSize()} bytes. If the server answers with 206 Partial Content, the remaining parts are requested
+ * in parallel with If-Range set to the validator of the first part, and are returned in order through the body stream.
+ * At most {@link #parallelism()} parts are read ahead and buffered while the stream is consumed.
+ * If the server ignores the range, the full response is returned as it is.<br>
+ * If the request already contains a Range header, the method behaves as if it wasn't annotated
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ParallelDownload {
+
+    /**
+     * The maximum amount of parts that are downloaded at the same time, including the one that is currently read
+     * */
+    int parallelism() default 4;
+
+    /**
+     * The size of each part in bytes. Each part that is read ahead is buffered in memory
+     * */
+    int partSize() default 8 * 1024 * 1024;
+
+}
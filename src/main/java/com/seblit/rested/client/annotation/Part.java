@@ -0,0 +1,42 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a parameter as a part of a multipart/form-data request body. Methods with parts must not declare a {@link Body}.<br>
+ * Parameters of type {@link java.nio.file.Path Path}, {@link java.nio.channels.FileChannel FileChannel} and {@link java.io.InputStream InputStream}
+ * are streamed into the part as they are. If a {@link #mediaType()} is set, other values are processed by the
+ * {@link com.seblit.rested.client.media.RequestBodyParser RequestBodyParser} registered for it, otherwise they are sent as text.<br>
+ * The body is written part by part while the request is sent and is never held in memory as a whole.
+ * Null parameters will be ignored and no part is sent
+ * */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Part {
+
+    /**
+     * The name of the form field
+     * */
+    String value();
+
+    /**
+     * The media type of the part. See {@link Body} for some constants.<br>
+     * Default: {@link Body#BINARY} for streamed parameters, {@link Body#TEXT} for others
+     * */
+    String mediaType() default "";
+
+    /**
+     * The charset for parsed and text parts.<br>
+     * Default: UTF-8
+     * */
+    String charset() default "UTF-8";
+
+    /**
+     * The file name of the part. Defaults to the name of the file for {@link java.nio.file.Path Path} parameters, otherwise no file name is sent
+     * */
+    String fileName() default "";
+
+}
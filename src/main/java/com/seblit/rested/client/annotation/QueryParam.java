@@ -7,8 +7,9 @@ import java.lang.annotation.Target;
 
 /**
  * Marks a parameter as a query parameter.<br>
- * Parameter may be an array or an {@link Iterable}, in which case each contained value is added separately for the same query parameter.
- * Otherwise, the parameter will be converted to a String using {@link String#valueOf(Object)}. Null values are skipped
+ * Parameter may be an array, including primitive arrays, an {@link Iterable} or an {@link java.util.stream.IntStream IntStream}, {@link java.util.stream.LongStream LongStream}
+ * or {@link java.util.stream.DoubleStream DoubleStream}, in which case each contained value is added separately for the same query parameter, or joined into a single value if a {@link #delimiter()} is set.
+ * Primitive values are formatted without boxing. Otherwise, the parameter will be converted to a String using {@link String#valueOf(Object)}. Null values are skipped
  * */
 @Target(ElementType.PARAMETER)
 @Retention(RetentionPolicy.RUNTIME)
@@ -19,4 +20,10 @@ public @interface QueryParam {
      * */
     String value();
 
+    /**
+     * If set, all values of the parameter are joined into a single query parameter value, separated by the delimiter. Values are not escaped.
+     * By default, each value is added separately with the same name
+     * */
+    String delimiter() default "";
+
 }
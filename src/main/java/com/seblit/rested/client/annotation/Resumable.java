@@ -0,0 +1,24 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Resumes the body of a GET {@link Endpoint} returning {@link com.seblit.rested.client.StreamedRESTResponse StreamedRESTResponse}
+ * if reading it fails or it ends before its Content-Length.<br>
+ * The request is sent again with Range set to the bytes that weren't read yet and If-Range set to the strong ETag or Last-Modified date of the response.
+ * If the server answers with 206 Partial Content at the expected offset, reading continues transparently. Otherwise, or once all attempts are used,
+ * the original {@link java.io.IOException} is thrown. Responses without a validator aren't resumed, as a changed resource can't be detected
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Resumable {
+
+    /**
+     * The maximum amount of times a download is resumed
+     * */
+    int maxAttempts() default 3;
+
+}
@@ -0,0 +1,16 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter whose value decides which host a {@link com.seblit.rested.client.balancing.ConsistentHashClient ConsistentHashClient} sends the request to.
+ * Requests with equal keys are routed to the same host. The key is the {@link String#valueOf(Object) string value} of the parameter.<br>
+ * May be combined with the other parameter annotations, for example to use a {@link PathParam} as key
+ * */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
@@ -0,0 +1,20 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a parameter as the target the body of a successful response is written into, instead of parsing it.<br>
+ * Only one per Method allowed. The parameter must be a {@link java.nio.file.Path Path} or a {@link java.nio.channels.WritableByteChannel WritableByteChannel}.
+ * Files are written into a temporary file next to them that replaces the file once the body is complete, so readers never see a partial file.
+ * Channels are written at their current position and are not closed. If the parameter is null, the body is written into a new temporary file.<br>
+ * The method may return void, {@link java.nio.file.Path Path} for the written file, or {@link com.seblit.rested.client.RESTResponse RESTResponse}
+ * and {@link com.seblit.rested.client.FileResponse FileResponse} for the status code and headers as well.
+ * Error responses are handled as usual
+ * */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sink {
+}
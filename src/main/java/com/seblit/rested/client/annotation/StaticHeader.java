@@ -0,0 +1,25 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a header with a constant value that is sent with every request.<br>
+ * On a resource interface it applies to all {@link Endpoint}s within it, on a method only to its {@link Endpoint}.
+ * Resource headers are added before method headers, both before headers from {@link Header} parameters.<br>
+ * Static headers are compiled once per method and not re-evaluated for each request
+ * */
+@Repeatable(StaticHeaders.class)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaticHeader {
+
+    /**
+     * The name of the header
+     * */
+    String name();
+    /**
+     * The value of the header
+     * */
+    String value();
+
+}
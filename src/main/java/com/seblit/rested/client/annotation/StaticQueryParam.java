@@ -0,0 +1,25 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a query parameter with a constant value that is sent with every request.<br>
+ * On a resource interface it applies to all {@link Endpoint}s within it, on a method only to its {@link Endpoint}.
+ * Resource parameters are added before method parameters, both before parameters from {@link QueryParam} parameters.<br>
+ * Static query parameters are encoded once per method and only appended to the query of each request
+ * */
+@Repeatable(StaticQueryParams.class)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaticQueryParam {
+
+    /**
+     * The name of the query parameter
+     * */
+    String name();
+    /**
+     * The value of the query parameter
+     * */
+    String value();
+
+}
@@ -0,0 +1,18 @@
+package com.seblit.rested.client.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container annotation for repeatable {@link StaticQueryParam} annotation
+ * */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaticQueryParams {
+    /**
+     * {@link StaticQueryParam} annotations within this container
+     * */
+    StaticQueryParam[] value();
+}
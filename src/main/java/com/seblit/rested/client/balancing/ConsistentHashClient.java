@@ -0,0 +1,336 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.annotation.ShardKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes each request to the host that owns its key, so sharded services receive all requests for a key on the same replica.<br>
+ * The key is the value of the parameter annotated with {@link ShardKey}, or the request path if the method has none or the value is null.
+ * Requests without a path use the empty key.
+ * Keys are hashed onto a ring on which each host is placed at many virtual nodes. A key belongs to the first node at or after its hash.
+ * Adding or removing a host therefore only moves the keys of that host's nodes, about 1/N of all keys.<br>
+ * If the owning host is unavailable because it failed its {@link HealthCheck} or was ejected after consecutive failures,
+ * the request goes to the next host on the ring. Lookups read an immutable ring and never lock.<br>
+ * Instances are created using the {@link Builder} and should be closed if a health check is configured. See {@link HTTPClient} for further information
+ */
+public class ConsistentHashClient implements AsyncHTTPClient, Closeable {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int NO_KEY = -1;
+
+    private final UpstreamGroup group;
+    private final int virtualNodes;
+    private final Map<String, Upstream> hosts = new LinkedHashMap<>();
+    private final Map<Method, Integer> keyIndices = new ConcurrentHashMap<>();
+    private volatile Ring ring;
+
+    private ConsistentHashClient(Builder builder) {
+        virtualNodes = builder.virtualNodes;
+        group = new UpstreamGroup(new ArrayList<>(builder.hosts.values()), new Upstream.OutlierPolicy(builder.maxConsecutiveFailures, null, builder.ejectionTime),
+                builder.maxEjectionPercent, builder.healthCheck, builder.healthCheckInterval, "ConsistentHashClient");
+        int index = 0;
+        for (String name : builder.hosts.keySet()) {
+            hosts.put(name, group.upstreams[index++]);
+        }
+        ring = new Ring(hosts, virtualNodes);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that may occur during the request of the selected host
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        return group.request(select(resolveKey(request, method, params)), request, method, params);
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * Hosts whose client doesn't implement {@link AsyncHTTPClient} perform the request on the calling thread
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        return group.requestAsync(select(resolveKey(request, method, params)), request, method, params);
+    }
+
+    /**
+     * Adds a host to the ring. Only the keys that now belong to its virtual nodes are routed differently
+     * @param name The unique name of the host. Its nodes are placed based on the name, so the same name always owns the same keys
+     * @param client The client that performs the requests of the host
+     * @throws IllegalArgumentException if name or client is null or a host with the name already exists
+     * */
+    public synchronized void addHost(@NotNull String name, @NotNull HTTPClient client) {
+        if (name == null || client == null) {
+            throw new IllegalArgumentException("name and client must not be null");
+        }
+        if (hosts.containsKey(name)) {
+            throw new IllegalArgumentException("Host already exists: " + name);
+        }
+        hosts.put(name, group.createUpstream(client));
+        updateRing();
+    }
+
+    /**
+     * Removes a host from the ring. Its keys are routed to the following hosts on the ring, other keys are not affected
+     * @param name The name of the host
+     * @return true if the host was removed, false if it doesn't exist or is the last host
+     * */
+    public synchronized boolean removeHost(@NotNull String name) {
+        if (hosts.size() == 1 || hosts.remove(name) == null) {
+            return false;
+        }
+        updateRing();
+        return true;
+    }
+
+    /**
+     * @param name The name of the host
+     * @return the upstream of the host, or null if there is no host with that name
+     * */
+    @Nullable
+    public synchronized Upstream getUpstream(@NotNull String name) {
+        return hosts.get(name);
+    }
+
+    /**
+     * @return the upstreams of all hosts in the order they were added
+     * */
+    @NotNull
+    public List<Upstream> getUpstreams() {
+        return group.getUpstreams();
+    }
+
+    /**
+     * Stops the health checks. The clients of the hosts are not closed
+     * */
+    @Override
+    public void close() {
+        group.close();
+    }
+
+    /**
+     * @return the upstream that owns the key, or the next available one on the ring
+     * */
+    Upstream select(String key) {
+        Ring current = ring;
+        long[] points = current.points;
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == points.length) {
+            index = 0;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < points.length; i++) {
+            Upstream owner = current.owners[(index + i) % points.length];
+            if (owner.isAvailable(now)) {
+                return owner;
+            }
+        }
+        return current.owners[index];
+    }
+
+    private String resolveKey(Request request, Method method, Object[] params) {
+        int index = keyIndices.computeIfAbsent(method, ConsistentHashClient::findKeyIndex);
+        if (index != NO_KEY && params != null && params[index] != null) {
+            return String.valueOf(params[index]);
+        }
+        String path = request.getPath();
+        return path != null ? path : "";
+    }
+
+    private static int findKeyIndex(Method method) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(ShardKey.class)) {
+                return i;
+            }
+        }
+        return NO_KEY;
+    }
+
+    private void updateRing() {
+        ring = new Ring(hosts, virtualNodes);
+        group.upstreams = hosts.values().toArray(new Upstream[0]);
+    }
+
+    /**
+     * 64 bit FNV-1a of the characters, followed by the murmur3 finalizer to spread similar keys across the ring
+     * */
+    static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53a87cdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * The sorted node positions and their owners. Replaced as a whole when hosts change
+     * */
+    private static final class Ring {
+
+        private final long[] points;
+        private final Upstream[] owners;
+
+        private Ring(Map<String, Upstream> hosts, int virtualNodes) {
+            long[][] nodes = new long[hosts.size() * virtualNodes][];
+            List<Upstream> upstreams = new ArrayList<>(hosts.values());
+            int count = 0;
+            int hostIndex = 0;
+            for (String name : hosts.keySet()) {
+                for (int i = 0; i < virtualNodes; i++) {
+                    nodes[count++] = new long[]{hash(name + '#' + i), hostIndex};
+                }
+                hostIndex++;
+            }
+            Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+            points = new long[nodes.length];
+            owners = new Upstream[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                points[i] = nodes[i][0];
+                owners[i] = upstreams.get((int) nodes[i][1]);
+            }
+        }
+    }
+
+    /**
+     * Creates and configures {@link ConsistentHashClient} instances
+     * */
+    public static class Builder {
+
+        private final Map<String, HTTPClient> hosts = new LinkedHashMap<>();
+        private int virtualNodes = 160;
+        private int maxConsecutiveFailures = 5;
+        private Duration ejectionTime = Duration.ofSeconds(30);
+        private int maxEjectionPercent = 50;
+        private HealthCheck healthCheck;
+        private Duration healthCheckInterval;
+
+        /**
+         * Adds a host to the ring
+         * @param name The unique name of the host. Its nodes are placed based on the name, so the same name always owns the same keys
+         * @param client The client that performs the requests of the host
+         * @return this instance for method chaining
+         * @throws IllegalArgumentException if name or client is null or a host with the name already exists
+         * */
+        @NotNull
+        public Builder addHost(@NotNull String name, @NotNull HTTPClient client) {
+            if (name == null || client == null) {
+                throw new IllegalArgumentException("name and client must not be null");
+            }
+            if (hosts.putIfAbsent(name, client) != null) {
+                throw new IllegalArgumentException("Host already exists: " + name);
+            }
+            return this;
+        }
+
+        /**
+         * More nodes spread the keys more evenly across the hosts at the cost of a larger ring.<br>
+         * Default: 160
+         * @param virtualNodes The amount of nodes per host. Must be at least 1
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setVirtualNodes(int virtualNodes) {
+            if (virtualNodes <= 0) {
+                throw new IllegalArgumentException("virtualNodes must be positive");
+            }
+            this.virtualNodes = virtualNodes;
+            return this;
+        }
+
+        /**
+         * Default: 5
+         * @param maxConsecutiveFailures The amount of consecutive failures after which a host is ejected. 0 to disable
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+            this.maxConsecutiveFailures = maxConsecutiveFailures;
+            return this;
+        }
+
+        /**
+         * Default: 30 seconds
+         * @param ejectionTime The time a host is ejected for the first time. Each repeated ejection lasts longer
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setEjectionTime(@NotNull Duration ejectionTime) {
+            if (ejectionTime == null) {
+                throw new IllegalArgumentException("ejectionTime must not be null");
+            }
+            this.ejectionTime = ejectionTime;
+            return this;
+        }
+
+        /**
+         * Default: 50
+         * @param maxEjectionPercent The maximum percentage of hosts that may be ejected at the same time
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxEjectionPercent(int maxEjectionPercent) {
+            if (maxEjectionPercent < 0 || maxEjectionPercent > 100) {
+                throw new IllegalArgumentException("maxEjectionPercent must be between 0 and 100");
+            }
+            this.maxEjectionPercent = maxEjectionPercent;
+            return this;
+        }
+
+        /**
+         * Enables active health checks. The check is run for all hosts on a separate thread, starting when the client is built
+         * @param healthCheck The check to run. null to disable health checks
+         * @param interval The delay between the end of a round of checks and the next one
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setHealthCheck(@Nullable HealthCheck healthCheck, @NotNull Duration interval) {
+            if (interval == null || interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            this.healthCheck = healthCheck;
+            this.healthCheckInterval = interval;
+            return this;
+        }
+
+        /**
+         * @return a new {@link ConsistentHashClient} with the current configuration
+         * @throws IllegalStateException if no host was added
+         * */
+        @NotNull
+        public ConsistentHashClient build() {
+            if (hosts.isEmpty()) {
+                throw new IllegalStateException("At least one host is required");
+            }
+            return new ConsistentHashClient(this);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.HTTPClient;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An active health check of an {@link Upstream}. Called periodically for each upstream, outside the request path.
+ * Upstreams whose check fails are not selected until a later check succeeds
+ */
+@FunctionalInterface
+public interface HealthCheck {
+
+    /**
+     * Probes the upstream, for example by requesting a health endpoint through its client
+     *
+     * @param client The client of the upstream to check
+     * @return true if the upstream is healthy
+     * @throws Exception any exception marks the upstream as unhealthy
+     */
+    boolean check(@NotNull HTTPClient client) throws Exception;
+
+}
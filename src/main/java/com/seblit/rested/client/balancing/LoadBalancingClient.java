@@ -0,0 +1,290 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Distributes requests across multiple delegate {@link HTTPClient}s, for example one per replica of a service.<br>
+ * Each request is sent to one {@link Upstream} chosen by the {@link Strategy}. Selection only reads atomic counters and never locks.
+ * Upstreams that fail repeatedly or respond too slowly are ejected for a while, upstreams that fail the optional {@link HealthCheck} are skipped.
+ * If no upstream is available, all of them are considered again, so requests are never rejected by the balancer itself.<br>
+ * Asynchronous requests use {@link AsyncHTTPClient#requestAsync(Request, Method, Object[])} of delegates that support it.<br>
+ * Instances are created using the {@link Builder} and should be closed if a health check is configured. See {@link HTTPClient} for further information
+ */
+public class LoadBalancingClient implements AsyncHTTPClient, Closeable {
+
+    /**
+     * The ways an {@link Upstream} is selected for a request
+     */
+    public enum Strategy {
+        /**
+         * Each upstream in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * The upstream with the fewest requests waiting for a response. Ties are resolved in turns
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * The upstream with fewer outstanding requests out of two chosen at random.
+         * Almost as even as {@link #LEAST_OUTSTANDING} without inspecting all upstreams, and avoids herding onto a single one
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    private final UpstreamGroup group;
+    private final Strategy strategy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private LoadBalancingClient(Builder builder) {
+        group = new UpstreamGroup(builder.clients, new Upstream.OutlierPolicy(builder.maxConsecutiveFailures, builder.latencyThreshold, builder.ejectionTime),
+                builder.maxEjectionPercent, builder.healthCheck, builder.healthCheckInterval, "LoadBalancingClient");
+        strategy = builder.strategy;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that may occur during the request of the selected delegate
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        return group.request(select(), request, method, params);
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * Delegates that don't implement {@link AsyncHTTPClient} perform the request on the calling thread
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        return group.requestAsync(select(), request, method, params);
+    }
+
+    /**
+     * @return the upstreams of this client in the order of their delegates
+     * */
+    @NotNull
+    public List<Upstream> getUpstreams() {
+        return group.getUpstreams();
+    }
+
+    /**
+     * @return the selection strategy of this client
+     * */
+    @NotNull
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Stops the health checks. The delegates are not closed
+     * */
+    @Override
+    public void close() {
+        group.close();
+    }
+
+    Upstream select() {
+        Upstream[] upstreams = group.upstreams;
+        if (upstreams.length == 1) {
+            return upstreams[0];
+        }
+        long now = System.nanoTime();
+        switch (strategy) {
+            case ROUND_ROBIN:
+                return selectRoundRobin(upstreams, now);
+            case LEAST_OUTSTANDING:
+                return selectLeastOutstanding(upstreams, now);
+            default:
+                return selectPowerOfTwoChoices(upstreams, now);
+        }
+    }
+
+    private Upstream selectRoundRobin(Upstream[] upstreams, long now) {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[Math.floorMod(start + i, upstreams.length)];
+            if (upstream.isAvailable(now)) {
+                return upstream;
+            }
+        }
+        return upstreams[Math.floorMod(start, upstreams.length)];
+    }
+
+    private Upstream selectLeastOutstanding(Upstream[] upstreams, long now) {
+        int start = next.getAndIncrement();
+        Upstream selected = null;
+        int selectedOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[Math.floorMod(start + i, upstreams.length)];
+            int outstanding = upstream.getOutstandingRequests();
+            if (outstanding < selectedOutstanding && upstream.isAvailable(now)) {
+                selected = upstream;
+                selectedOutstanding = outstanding;
+            }
+        }
+        return selected != null ? selected : upstreams[Math.floorMod(start, upstreams.length)];
+    }
+
+    private Upstream selectPowerOfTwoChoices(Upstream[] upstreams, long now) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(upstreams.length);
+        int second = random.nextInt(upstreams.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        Upstream a = upstreams[first];
+        Upstream b = upstreams[second];
+        boolean aAvailable = a.isAvailable(now);
+        boolean bAvailable = b.isAvailable(now);
+        if (aAvailable && bAvailable) {
+            return a.getOutstandingRequests() <= b.getOutstandingRequests() ? a : b;
+        } else if (aAvailable) {
+            return a;
+        } else if (bAvailable) {
+            return b;
+        }
+        return selectLeastOutstanding(upstreams, now);
+    }
+
+    /**
+     * Creates and configures {@link LoadBalancingClient} instances
+     * */
+    public static class Builder {
+
+        private final List<HTTPClient> clients;
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+        private int maxConsecutiveFailures = 5;
+        private Duration latencyThreshold;
+        private Duration ejectionTime = Duration.ofSeconds(30);
+        private int maxEjectionPercent = 50;
+        private HealthCheck healthCheck;
+        private Duration healthCheckInterval;
+
+        /**
+         * Creates a new builder for a client that distributes requests across the provided delegates
+         * @param clients The delegates, usually one per host. Must not be empty
+         * */
+        public Builder(@NotNull HTTPClient... clients) {
+            this(clients != null ? Arrays.asList(clients) : null);
+        }
+
+        /**
+         * Creates a new builder for a client that distributes requests across the provided delegates
+         * @param clients The delegates, usually one per host. Must not be empty
+         * */
+        public Builder(@NotNull Collection<? extends HTTPClient> clients) {
+            if (clients == null || clients.isEmpty()) {
+                throw new IllegalArgumentException("clients must not be null or empty");
+            }
+            if (clients.contains(null)) {
+                throw new IllegalArgumentException("clients must not contain null");
+            }
+            this.clients = new ArrayList<>(clients);
+        }
+
+        /**
+         * Default: {@link Strategy#POWER_OF_TWO_CHOICES}
+         * @param strategy The way upstreams are selected
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setStrategy(@NotNull Strategy strategy) {
+            if (strategy == null) {
+                throw new IllegalArgumentException("strategy must not be null");
+            }
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Default: 5
+         * @param maxConsecutiveFailures The amount of consecutive failures after which an upstream is ejected. 0 to disable
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+            this.maxConsecutiveFailures = maxConsecutiveFailures;
+            return this;
+        }
+
+        /**
+         * Default: disabled
+         * @param latencyThreshold The average time until a response is received above which an upstream is ejected. null to disable
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setLatencyThreshold(@Nullable Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+            return this;
+        }
+
+        /**
+         * Default: 30 seconds
+         * @param ejectionTime The time an upstream is ejected for the first time. Each repeated ejection lasts longer
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setEjectionTime(@NotNull Duration ejectionTime) {
+            if (ejectionTime == null) {
+                throw new IllegalArgumentException("ejectionTime must not be null");
+            }
+            this.ejectionTime = ejectionTime;
+            return this;
+        }
+
+        /**
+         * Default: 50
+         * @param maxEjectionPercent The maximum percentage of upstreams that may be ejected at the same time
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxEjectionPercent(int maxEjectionPercent) {
+            if (maxEjectionPercent < 0 || maxEjectionPercent > 100) {
+                throw new IllegalArgumentException("maxEjectionPercent must be between 0 and 100");
+            }
+            this.maxEjectionPercent = maxEjectionPercent;
+            return this;
+        }
+
+        /**
+         * Enables active health checks. The check is run for all upstreams on a separate thread, starting when the client is built
+         * @param healthCheck The check to run. null to disable health checks
+         * @param interval The delay between the end of a round of checks and the next one
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setHealthCheck(@Nullable HealthCheck healthCheck, @NotNull Duration interval) {
+            if (interval == null || interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            this.healthCheck = healthCheck;
+            this.healthCheckInterval = interval;
+            return this;
+        }
+
+        /**
+         * @return a new {@link LoadBalancingClient} with the current configuration
+         * */
+        @NotNull
+        public LoadBalancingClient build() {
+            return new LoadBalancingClient(this);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.HTTPClient;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A delegate {@link HTTPClient} of a balancing client together with its load and health state.<br>
+ * An upstream is available for selection unless its health check failed or it is ejected as an outlier.
+ * It is ejected for the ejection time after too many consecutive failures or when its average latency exceeds the threshold.
+ * Repeated ejections last longer, up to ten times the ejection time
+ */
+public final class Upstream {
+
+    private static final int LATENCY_WEIGHT_DIVISOR = 5;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final HTTPClient client;
+    private final OutlierPolicy policy;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong latency = new AtomicLong();
+    private final AtomicInteger latencySamples = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger ejections = new AtomicInteger();
+    private volatile long ejectedUntil;
+    private volatile boolean healthy = true;
+
+    Upstream(HTTPClient client, OutlierPolicy policy) {
+        this.client = client;
+        this.policy = policy;
+    }
+
+    /**
+     * @return the delegate that performs the requests of this upstream
+     */
+    @NotNull
+    public HTTPClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return the amount of requests that are currently waiting for a response of this upstream
+     */
+    public int getOutstandingRequests() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return the total amount of requests sent to this upstream
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the total amount of requests that failed with an exception or a 5xx response
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the time until a response is received
+     */
+    @NotNull
+    public Duration getLatency() {
+        return Duration.ofNanos(latency.get());
+    }
+
+    /**
+     * @return false if the last health check failed, true otherwise or if no health check is configured
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return true if this upstream is currently ejected as an outlier
+     */
+    public boolean isEjected() {
+        return isEjected(System.nanoTime());
+    }
+
+    boolean isAvailable(long now) {
+        return healthy && !isEjected(now);
+    }
+
+    boolean isEjected(long now) {
+        long until = ejectedUntil;
+        return until != 0 && now - until < 0;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    void onStart() {
+        requests.increment();
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @return true if the upstream should be ejected because its average latency exceeds the threshold
+     */
+    boolean onSuccess(long latencyNanos) {
+        outstanding.decrementAndGet();
+        consecutiveFailures.set(0);
+        long average;
+        long current;
+        do {
+            current = latency.get();
+            average = current == 0 ? latencyNanos : current + (latencyNanos - current) / LATENCY_WEIGHT_DIVISOR;
+        } while (!latency.compareAndSet(current, average));
+        return policy.latencyThresholdNanos > 0 && latencySamples.incrementAndGet() >= MIN_LATENCY_SAMPLES
+                && average > policy.latencyThresholdNanos;
+    }
+
+    /**
+     * @return true if the upstream should be ejected because of too many consecutive failures
+     */
+    boolean onFailure() {
+        outstanding.decrementAndGet();
+        failures.increment();
+        return policy.maxConsecutiveFailures > 0 && consecutiveFailures.incrementAndGet() >= policy.maxConsecutiveFailures;
+    }
+
+    void eject(long now) {
+        int multiplier = Math.min(ejections.incrementAndGet(), MAX_EJECTION_MULTIPLIER);
+        consecutiveFailures.set(0);
+        latency.set(0);
+        latencySamples.set(0);
+        ejectedUntil = now + policy.ejectionTimeNanos * multiplier;
+    }
+
+    /**
+     * The outlier detection settings shared by all upstreams of a client
+     */
+    static final class OutlierPolicy {
+
+        final int maxConsecutiveFailures;
+        final long latencyThresholdNanos;
+        final long ejectionTimeNanos;
+
+        OutlierPolicy(int maxConsecutiveFailures, Duration latencyThreshold, Duration ejectionTime) {
+            this.maxConsecutiveFailures = maxConsecutiveFailures;
+            this.latencyThresholdNanos = latencyThreshold != null ? latencyThreshold.toNanos() : 0;
+            this.ejectionTimeNanos = ejectionTime.toNanos();
+        }
+    }
+}
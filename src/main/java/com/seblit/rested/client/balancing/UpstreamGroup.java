@@ -0,0 +1,149 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The upstreams of a balancing client. Performs requests on a selected upstream and records their outcome for outlier ejection.
+ * Runs the active health checks on a daemon thread if configured.<br>
+ * A request fails if the delegate throws or responds with a 5xx status code. At most maxEjectionPercent of the upstreams are ejected at the same time.<br>
+ * The upstreams may be replaced while requests are running, readers always see a complete array
+ */
+final class UpstreamGroup {
+
+    volatile Upstream[] upstreams;
+    private final Upstream.OutlierPolicy policy;
+    private final int maxEjectionPercent;
+    private final ScheduledExecutorService healthChecker;
+
+    UpstreamGroup(List<HTTPClient> clients, Upstream.OutlierPolicy policy, int maxEjectionPercent, HealthCheck healthCheck, Duration healthCheckInterval, String name) {
+        this.policy = policy;
+        this.maxEjectionPercent = maxEjectionPercent;
+        Upstream[] initial = new Upstream[clients.size()];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = createUpstream(clients.get(i));
+        }
+        upstreams = initial;
+        if (healthCheck != null) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = healthCheckInterval.toNanos();
+            healthChecker.scheduleWithFixedDelay(() -> checkHealth(healthCheck), 0, interval, TimeUnit.NANOSECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    Upstream createUpstream(HTTPClient client) {
+        return new Upstream(client, policy);
+    }
+
+    List<Upstream> getUpstreams() {
+        return Collections.unmodifiableList(Arrays.asList(upstreams));
+    }
+
+    Response request(Upstream upstream, Request request, Method method, Object[] params) throws Exception {
+        long start = System.nanoTime();
+        upstream.onStart();
+        Response response;
+        try {
+            response = upstream.getClient().request(request, method, params);
+        } catch (Exception e) {
+            onFailure(upstream);
+            throw e;
+        }
+        onResponse(upstream, response, start);
+        return response;
+    }
+
+    CompletableFuture<Response> requestAsync(Upstream upstream, Request request, Method method, Object[] params) {
+        HTTPClient client = upstream.getClient();
+        if (!(client instanceof AsyncHTTPClient)) {
+            try {
+                return CompletableFuture.completedFuture(request(upstream, request, method, params));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        long start = System.nanoTime();
+        upstream.onStart();
+        CompletableFuture<Response> response;
+        try {
+            response = ((AsyncHTTPClient) client).requestAsync(request, method, params);
+        } catch (RuntimeException e) {
+            onFailure(upstream);
+            return CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((result, error) -> {
+            if (error != null) {
+                onFailure(upstream);
+            } else {
+                onResponse(upstream, result, start);
+            }
+        });
+    }
+
+    void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    private void onResponse(Upstream upstream, Response response, long start) {
+        if (response.getStatusCode() / 100 == 5) {
+            onFailure(upstream);
+        } else {
+            long now = System.nanoTime();
+            if (upstream.onSuccess(now - start)) {
+                tryEject(upstream, now);
+            }
+        }
+    }
+
+    private void onFailure(Upstream upstream) {
+        if (upstream.onFailure()) {
+            tryEject(upstream, System.nanoTime());
+        }
+    }
+
+    private void tryEject(Upstream upstream, long now) {
+        Upstream[] current = upstreams;
+        int ejected = 0;
+        for (Upstream candidate : current) {
+            if (candidate.isEjected(now)) {
+                ejected++;
+            }
+        }
+        if (ejected < current.length * maxEjectionPercent / 100 && !upstream.isEjected(now)) {
+            upstream.eject(now);
+        }
+    }
+
+    private void checkHealth(HealthCheck healthCheck) {
+        for (Upstream upstream : upstreams) {
+            boolean healthy;
+            try {
+                healthy = healthCheck.check(upstream.getClient());
+            } catch (Exception e) {
+                healthy = false;
+            }
+            upstream.setHealthy(healthy);
+        }
+    }
+
+}
@@ -0,0 +1,570 @@
+package com.seblit.rested.client.http;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.DrainingInputStream;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.PercentEncoder;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLContext;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uses a {@link HttpClient} to perform its requests. Supports HTTP/2, which multiplexes concurrent requests over a single connection,
+ * and asynchronous requests through {@link #requestAsync(Request, Method, Object[])}.<br>
+ * Request bodies are streamed: files of a {@link FileRequestBody} are published directly, other {@link StreamedRequestBody}s are written
+ * on the executor of the client as fast as the {@link HttpClient} consumes them, and stop once the response is received. They can only be sent once,
+ * so the {@link HttpClient} can't repeat them for redirects or retries. Response bodies are provided as {@link InputStream} that reads from the connection.
+ * Closing an unfinished HTTP/1.1 body closes its connection, so small remaining bodies are drained first, see {@link Builder#setMaxDrainBytes(long)}.<br>
+ * The headers Connection, Content-Length, Expect, Host and Upgrade are managed by the {@link HttpClient} and are not sent.
+ * Content-Length is used as the length of streamed bodies, "Expect: 100-continue" enables {@link HttpRequest.Builder#expectContinue(boolean)}.<br>
+ * Instances are created using the {@link Builder}. See {@link HTTPClient} for further information
+ * */
+public class JavaHttpClient implements AsyncHTTPClient {
+
+    private static final String PROTOCOL_HTTP = "http";
+    private static final String PROTOCOL_HTTPS = "https";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_EXPECT = "Expect";
+    private static final String EXPECT_CONTINUE = "100-continue";
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final ExecutorService BODY_WRITERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "JavaHttpClient-body-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        RESTRICTED_HEADERS.add("Connection");
+        RESTRICTED_HEADERS.add(HEADER_CONTENT_LENGTH);
+        RESTRICTED_HEADERS.add(HEADER_EXPECT);
+        RESTRICTED_HEADERS.add("Host");
+        RESTRICTED_HEADERS.add("Upgrade");
+    }
+
+    private final HttpClient httpClient;
+    private final String baseUri;
+    private final Duration requestTimeout;
+    private final long maxDrainBytes;
+    private final Executor bodyExecutor;
+
+    private JavaHttpClient(Builder builder) {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .version(builder.version);
+        if (builder.executor != null) {
+            clientBuilder.executor(builder.executor);
+        }
+        if (builder.connectTimeout != null) {
+            clientBuilder.connectTimeout(builder.connectTimeout);
+        }
+        if (builder.sslContext != null) {
+            clientBuilder.sslContext(builder.sslContext);
+        }
+        httpClient = clientBuilder.build();
+        String protocol = builder.secure ? PROTOCOL_HTTPS : PROTOCOL_HTTP;
+        int port = builder.port >= 0 ? builder.port : builder.secure ? 443 : 80;
+        String host = builder.host.indexOf(':') >= 0 && !builder.host.startsWith("[") ? "[" + builder.host + "]" : builder.host;
+        baseUri = protocol + "://" + host + ":" + port;
+        requestTimeout = builder.requestTimeout;
+        maxDrainBytes = builder.maxDrainBytes;
+        bodyExecutor = builder.executor != null ? builder.executor : BODY_WRITERS;
+    }
+
+    /**
+     * @return the underlying {@link HttpClient}
+     * */
+    @NotNull
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that may occur during the request
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        HttpRequest httpRequest = createHttpRequest(request);
+        try {
+            return createResponse(httpClient.send(httpRequest, createBodyHandler(request)));
+        } finally {
+            cancelBody(httpRequest);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = createHttpRequest(request);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(httpRequest, createBodyHandler(request))
+                .whenComplete((response, error) -> cancelBody(httpRequest))
+                .thenApply(this::createResponse);
+    }
+
+    /**
+     * Performs the request concurrently, so that connections are opened and TLS handshakes completed ahead of time.
+     * The response bodies are discarded, which leaves HTTP/1.1 connections alive for reuse. HTTP/2 requests share a single connection
+     * @param request A request that is safe to repeat, like a health check
+     * @param connections The amount of concurrent requests
+     * @return a future that completes with the amount of requests that were answered with a 2xx or 3xx status, once all of them finished
+     * */
+    @NotNull
+    public CompletableFuture<Integer> warmUp(@NotNull Request request, int connections) {
+        AtomicInteger succeeded = new AtomicInteger();
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[Math.max(0, connections)];
+        for (int i = 0; i < requests.length; i++) {
+            CompletableFuture<HttpResponse<Void>> response;
+            try {
+                response = httpClient.sendAsync(createHttpRequest(request), HttpResponse.BodyHandlers.discarding());
+            } catch (Exception e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            requests[i] = response.handle((result, error) -> error == null && result.statusCode() < 400 ? succeeded.incrementAndGet() : 0);
+        }
+        return CompletableFuture.allOf(requests).thenApply(ignored -> succeeded.get());
+    }
+
+    /**
+     * Creates the {@link HttpRequest} for the provided {@link Request}
+     * @param request The request to convert
+     * @throws FileNotFoundException if the file of a {@link FileRequestBody} doesn't exist
+     * @return the created {@link HttpRequest}
+     * */
+    @NotNull
+    protected HttpRequest createHttpRequest(@NotNull Request request) throws FileNotFoundException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(createUri(request.getPath(), request.getEncodedQuery()));
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        for (String header : request.getHeaders()) {
+            if (RESTRICTED_HEADERS.contains(header)) {
+                continue;
+            }
+            for (String headerValue : request.getHeaderValues(header)) {
+                builder.header(header, headerValue);
+            }
+        }
+        String expect = request.getHeaderValue(HEADER_EXPECT);
+        if (expect != null && EXPECT_CONTINUE.equalsIgnoreCase(expect.trim())) {
+            builder.expectContinue(true);
+        }
+        return builder.method(request.getMethod().name(), createBodyPublisher(request)).build();
+    }
+
+    private URI createUri(String path, String query) {
+        String encodedPath = path != null ? path : "";
+        StringBuilder uri = new StringBuilder(baseUri.length() + encodedPath.length() + (query != null ? query.length() + 1 : 0) + 16)
+                .append(baseUri);
+        PercentEncoder.encodePath(encodedPath, uri);
+        if (query != null) {
+            uri.append('?').append(query);
+        }
+        return URI.create(uri.toString());
+    }
+
+    private HttpRequest.BodyPublisher createBodyPublisher(Request request) throws FileNotFoundException {
+        byte[] body = request.getBody();
+        if (body != null) {
+            return HttpRequest.BodyPublishers.ofByteArray(body);
+        }
+        StreamedRequestBody streamedBody = request.getStreamedBody();
+        if (streamedBody == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (streamedBody instanceof FileRequestBody && ((FileRequestBody) streamedBody).getPath() != null) {
+            return HttpRequest.BodyPublishers.ofFile(((FileRequestBody) streamedBody).getPath());
+        }
+        return new StreamingBodyPublisher(streamedBody, getContentLength(request, streamedBody), bodyExecutor);
+    }
+
+    /**
+     * Stops writing a streamed body that is still in progress, as its exchange completed
+     * */
+    private static void cancelBody(HttpRequest request) {
+        request.bodyPublisher().ifPresent(publisher -> {
+            if (publisher instanceof StreamingBodyPublisher) {
+                ((StreamingBodyPublisher) publisher).cancel();
+            }
+        });
+    }
+
+    private long getContentLength(Request request, StreamedRequestBody streamedBody) {
+        long contentLength = streamedBody.getContentLength();
+        String header = request.getHeaderValue(HEADER_CONTENT_LENGTH);
+        if (contentLength < 0 && header != null) {
+            try {
+                contentLength = Long.parseLong(header.trim());
+            } catch (NumberFormatException e) {
+                contentLength = -1;
+            }
+        }
+        return contentLength;
+    }
+
+    private HttpResponse.BodyHandler<InputStream> createBodyHandler(Request request) {
+        if (request.getMethod().isResponseBodySupported()) {
+            return HttpResponse.BodyHandlers.ofInputStream();
+        }
+        return responseInfo -> HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    private Response createResponse(HttpResponse<InputStream> response) {
+        InputStream bodyStream = response.body();
+        if (bodyStream != null && response.version() == HttpClient.Version.HTTP_1_1) {
+            long contentLength = response.headers().firstValueAsLong(HEADER_CONTENT_LENGTH).orElse(-1);
+            bodyStream = new DrainingInputStream(bodyStream, contentLength, maxDrainBytes, null);
+        }
+        return new Response.Builder()
+                .setStatusCode(response.statusCode())
+                .setBodyStream(bodyStream)
+                .setHeaders(Headers.lazy(new HttpHeadersSource(response.headers())))
+                .build();
+    }
+
+    private static class HttpHeadersSource implements Headers.Source {
+
+        private final HttpHeaders headers;
+
+        private HttpHeadersSource(HttpHeaders headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public @Nullable String getFirst(@NotNull String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        @Override
+        public void load(@NotNull Headers target) {
+            headers.map().forEach((name, values) -> {
+                for (String value : values) {
+                    target.add(name, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Publishes a {@link StreamedRequestBody} by writing it on the executor directly into the subscriber.
+     * Writes block until the subscriber requests more data, and fail once it cancels. A second subscription fails, as the body can only be written once
+     * */
+    private static class StreamingBodyPublisher implements HttpRequest.BodyPublisher {
+
+        private final StreamedRequestBody body;
+        private final long contentLength;
+        private final Executor executor;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+        private volatile BodySubscription subscription;
+
+        private StreamingBodyPublisher(StreamedRequestBody body, long contentLength, Executor executor) {
+            this.body = body;
+            this.contentLength = contentLength;
+            this.executor = executor;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            BodySubscription current = new BodySubscription(subscriber);
+            subscriber.onSubscribe(current);
+            if (!subscribed.compareAndSet(false, true)) {
+                current.cancel();
+                subscriber.onError(new IOException("Streamed request body can't be sent more than once"));
+                return;
+            }
+            subscription = current;
+            try {
+                executor.execute(() -> current.writeBody(body));
+            } catch (RejectedExecutionException e) {
+                current.cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        private void cancel() {
+            BodySubscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private static class BodySubscription extends OutputStream implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+        private long demand;
+        private boolean cancelled;
+
+        private BodySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Requested " + n + " items"));
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        private void writeBody(StreamedRequestBody body) {
+            try {
+                body.writeTo(this);
+                flush();
+            } catch (Exception e) {
+                if (!isCancelled()) {
+                    cancel();
+                    subscriber.onError(new IOException("Failed to write request body", e));
+                }
+                return;
+            }
+            if (!isCancelled()) {
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                emit();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            while (len > 0) {
+                if (count == buffer.length) {
+                    emit();
+                }
+                int copied = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, copied);
+                count += copied;
+                off += copied;
+                len -= copied;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                emit();
+            }
+        }
+
+        /**
+         * Closing has no effect, the body is complete once it is written
+         * */
+        @Override
+        public void close() {
+        }
+
+        private void emit() throws IOException {
+            synchronized (this) {
+                while (!cancelled && demand == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while writing the request body");
+                    }
+                }
+                if (cancelled) {
+                    throw new IOException("Request body cancelled");
+                }
+                demand--;
+            }
+            subscriber.onNext(ByteBuffer.wrap(buffer, 0, count));
+            buffer = new byte[CHUNK_SIZE];
+            count = 0;
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Creates and configures {@link JavaHttpClient} instances
+     * */
+    public static class Builder {
+
+        private final String host;
+        private int port = -1;
+        private boolean secure;
+        private Executor executor;
+        private Duration connectTimeout;
+        private Duration requestTimeout;
+        private SSLContext sslContext;
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+        private long maxDrainBytes = 64 * 1024;
+
+        /**
+         * Creates a new builder for a client that connects to the provided host
+         * @param host The host the client connects to
+         * */
+        public Builder(@NotNull String host) {
+            if (host == null) {
+                throw new IllegalArgumentException("host must not be null");
+            }
+            this.host = host;
+        }
+
+        /**
+         * Default: 80, or 443 if secure
+         * @param port The port the client connects to
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Default: false
+         * @param secure true to connect using https, false to use http
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setSecure(boolean secure) {
+            this.secure = secure;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Executor} the {@link HttpClient} uses for asynchronous tasks and dependent stages, which also writes streamed request bodies.
+         * Each streamed body occupies a thread of the executor while it is sent
+         * @param executor The executor to use. null to use the default of {@link HttpClient}
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setExecutor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout The timeout for establishing connections. null for no timeout
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setConnectTimeout(@Nullable Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param requestTimeout The timeout until the response headers must be received. null for no timeout
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setRequestTimeout(@Nullable Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * @param sslContext The {@link SSLContext} used for https connections. null to use the default
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setSSLContext(@Nullable SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * Sets the preferred http version. HTTP/2 is negotiated with the server and falls back to HTTP/1.1 if unsupported.<br>
+         * Default: {@link HttpClient.Version#HTTP_2}
+         * @param version The http version
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setVersion(@NotNull HttpClient.Version version) {
+            if (version == null) {
+                throw new IllegalArgumentException("version must not be null");
+            }
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of unread HTTP/1.1 response body bytes that are read and discarded when the body stream is closed,
+         * so the connection can be reused. Connections with larger remaining bodies are closed instead. HTTP/2 streams are reset without affecting their connection.<br>
+         * Default: 64 KiB
+         * @param maxDrainBytes The maximum amount of bytes to drain
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxDrainBytes(long maxDrainBytes) {
+            if (maxDrainBytes < 0) {
+                throw new IllegalArgumentException("maxDrainBytes must not be negative");
+            }
+            this.maxDrainBytes = maxDrainBytes;
+            return this;
+        }
+
+        /**
+         * @return a new {@link JavaHttpClient} with the current configuration
+         * */
+        @NotNull
+        public JavaHttpClient build() {
+            return new JavaHttpClient(this);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.seblit.rested.client.media;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link StreamedRequestBody} that transfers the content of a file without reading it into memory.<br>
+ * Used by {@link com.seblit.rested.client.ResourceFactory ResourceFactory} for {@link Path} and {@link FileChannel} body parameters.
+ * Clients that write into a {@link WritableByteChannel} may use {@link #transferTo(WritableByteChannel)} to let the operating system copy the data
+ * */
+public class FileRequestBody implements StreamedRequestBody {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long position;
+    private final long contentLength;
+
+    /**
+     * Creates a new instance that sends the entire file. The file is opened for each write and closed afterward
+     * @param path The file to send
+     * @throws IOException if the size of the file can't be determined
+     * */
+    public FileRequestBody(@NotNull Path path) throws IOException {
+        this.path = path;
+        this.channel = null;
+        this.position = 0;
+        this.contentLength = Files.size(path);
+    }
+
+    /**
+     * Creates a new instance that sends the remaining content of the channel, starting at its current position.
+     * The position of the channel is not changed and the channel is not closed by this body
+     * @param channel The channel to send
+     * @throws IOException if the size or position of the channel can't be determined
+     * */
+    public FileRequestBody(@NotNull FileChannel channel) throws IOException {
+        this.path = null;
+        this.channel = channel;
+        this.position = channel.position();
+        this.contentLength = Math.max(0, channel.size() - position);
+    }
+
+    /**
+     * @return the file this body sends. May be null if it was created for a {@link FileChannel}
+     * */
+    @Nullable
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NotNull OutputStream output) throws Exception {
+        transferTo(Channels.newChannel(output));
+    }
+
+    /**
+     * Transfers the content of the file into the target channel using {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * @param target The channel to write into. It will not be closed
+     * @throws IOException if the file can't be read or the target can't be written
+     * @return the amount of transferred bytes
+     * */
+    public long transferTo(@NotNull WritableByteChannel target) throws IOException {
+        if (channel != null) {
+            return transfer(channel, target);
+        }
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return transfer(fileChannel, target);
+        }
+    }
+
+    private long transfer(FileChannel source, WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < contentLength) {
+            long count = source.transferTo(position + transferred, contentLength - transferred, target);
+            if (count <= 0 && source.size() <= position + transferred) {
+                throw new IOException("File was truncated during transfer");
+            }
+            transferred += count;
+        }
+        return transferred;
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.seblit.rested.client.media;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link StreamedRequestBody} that copies the remaining content of an {@link InputStream} into the request.<br>
+ * Used by {@link com.seblit.rested.client.ResourceFactory ResourceFactory} for {@link InputStream} body parameters.
+ * The stream is consumed by the first write and is not closed by this body
+ * */
+public class InputStreamRequestBody implements StreamedRequestBody {
+
+    private final InputStream input;
+    private final long contentLength;
+
+    /**
+     * Creates a new instance with unknown length
+     * @param input The stream to send
+     * */
+    public InputStreamRequestBody(@NotNull InputStream input) {
+        this(input, -1);
+    }
+
+    /**
+     * Creates a new instance
+     * @param input The stream to send
+     * @param contentLength The amount of bytes the stream provides, or -1 if unknown
+     * */
+    public InputStreamRequestBody(@NotNull InputStream input, long contentLength) {
+        this.input = input;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * @return the stream this body sends
+     * */
+    @NotNull
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NotNull OutputStream output) throws Exception {
+        input.transferTo(output);
+    }
+}
@@ -0,0 +1,152 @@
+package com.seblit.rested.client.media;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A multipart/form-data {@link StreamedRequestBody}. Each part is written into the request when the body is written,
+ * streamed parts are never buffered.<br>
+ * Used by {@link com.seblit.rested.client.ResourceFactory ResourceFactory} for methods with {@link com.seblit.rested.client.annotation.Part Part} parameters.
+ * The content length is known if it is known for all parts, otherwise the body is sent with unknown length
+ * */
+public class MultipartRequestBody implements StreamedRequestBody {
+
+    /**
+     * The media type of multipart form bodies
+     * */
+    public static final String MEDIA_TYPE = "multipart/form-data";
+    private static final String BOUNDARY_PREFIX = "RESTedBoundary";
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] DASHES = {'-', '-'};
+
+    private final String boundary;
+    private final List<Entry> parts = new ArrayList<>();
+
+    /**
+     * Creates a new instance with a random boundary
+     * */
+    public MultipartRequestBody() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.boundary = BOUNDARY_PREFIX + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    /**
+     * @return the boundary that separates the parts
+     * */
+    @NotNull
+    public String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * @return the value of the Content-Type header for this body, including the boundary
+     * */
+    @NotNull
+    public String getContentType() {
+        return MEDIA_TYPE + "; boundary=" + boundary;
+    }
+
+    /**
+     * @return the amount of parts added to this body
+     * */
+    public int getPartCount() {
+        return parts.size();
+    }
+
+    /**
+     * Adds a part with binary content
+     * @param name The name of the form field
+     * @param fileName The file name of the part. May be null
+     * @param contentType The Content-Type of the part. May be null
+     * @param data The content of the part
+     * @return this instance for method chaining
+     * */
+    @NotNull
+    public MultipartRequestBody addPart(@NotNull String name, @Nullable String fileName, @Nullable String contentType, byte @NotNull [] data) {
+        parts.add(new Entry(header(name, fileName, contentType), data, null));
+        return this;
+    }
+
+    /**
+     * Adds a part whose content is streamed when the body is written
+     * @param name The name of the form field
+     * @param fileName The file name of the part. May be null
+     * @param contentType The Content-Type of the part. May be null
+     * @param body The content of the part
+     * @return this instance for method chaining
+     * */
+    @NotNull
+    public MultipartRequestBody addPart(@NotNull String name, @Nullable String fileName, @Nullable String contentType, @NotNull StreamedRequestBody body) {
+        parts.add(new Entry(header(name, fileName, contentType), null, body));
+        return this;
+    }
+
+    @Override
+    public long getContentLength() {
+        long length = DASHES.length * 2L + boundary.length() + CRLF.length;
+        for (Entry part : parts) {
+            long partLength = part.data != null ? part.data.length : part.body.getContentLength();
+            if (partLength < 0) {
+                return -1;
+            }
+            length += part.header.length + partLength + CRLF.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NotNull OutputStream output) throws Exception {
+        for (Entry part : parts) {
+            output.write(part.header);
+            if (part.data != null) {
+                output.write(part.data);
+            } else {
+                part.body.writeTo(output);
+            }
+            output.write(CRLF);
+        }
+        output.write(DASHES);
+        output.write(boundary.getBytes(StandardCharsets.US_ASCII));
+        output.write(DASHES);
+        output.write(CRLF);
+    }
+
+    private byte[] header(String name, String fileName, String contentType) {
+        StringBuilder header = new StringBuilder("--").append(boundary).append("\r\nContent-Disposition: form-data; name=\"").append(escape(name)).append('"');
+        if (fileName != null) {
+            header.append("; filename=\"").append(escape(fileName)).append('"');
+        }
+        header.append("\r\n");
+        if (contentType != null) {
+            header.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        return header.append("\r\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Percent-encodes quotes and line breaks in names, as browsers do for form data
+     * */
+    private static String escape(String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+
+    private static final class Entry {
+
+        private final byte[] header;
+        private final byte[] data;
+        private final StreamedRequestBody body;
+
+        private Entry(byte[] header, byte[] data, StreamedRequestBody body) {
+            this.header = header;
+            this.data = data;
+            this.body = body;
+        }
+    }
+
+}
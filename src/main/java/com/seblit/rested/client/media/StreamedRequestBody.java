@@ -0,0 +1,26 @@
+package com.seblit.rested.client.media;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.OutputStream;
+
+/**
+ * A request body that is written directly into the output of the {@link com.seblit.rested.client.HTTPClient HTTPClient}
+ * instead of being held as binary data in memory. Created by a {@link StreamedRequestBodyParser}
+ * */
+public interface StreamedRequestBody {
+
+    /**
+     * @return the amount of bytes that {@link #writeTo(OutputStream)} will write, or -1 if it isn't known in advance.
+     * Clients may use chunked transfer-encoding for bodies with unknown length
+     * */
+    long getContentLength();
+
+    /**
+     * Writes the body data into the provided {@link OutputStream}. The stream must not be closed by this method
+     * @param output The {@link OutputStream} of the request body
+     * @throws Exception Any Exceptions thrown by this method will be thrown by the resource method that initiated the request
+     * */
+    void writeTo(@NotNull OutputStream output) throws Exception;
+
+}
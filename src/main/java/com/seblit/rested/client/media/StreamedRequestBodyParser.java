@@ -0,0 +1,41 @@
+package com.seblit.rested.client.media;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A {@link RequestBodyParser} that writes the body object directly into the request output instead of creating the binary data upfront.<br>
+ * {@link com.seblit.rested.client.ResourceFactory ResourceFactory} prefers {@link #parseStreamed(Object, String, String)} for parsers of this type
+ * */
+public interface StreamedRequestBodyParser extends RequestBodyParser {
+
+    /**
+     * Creates a {@link StreamedRequestBody} that writes the body object, formatted as the requested media type and encoded with the requested charset
+     * @param body The {@link Object} that should be parsed
+     * @param mediaType The media type which the result must be formatted as. This can only be a media type that this parser is registered for
+     * @param charset The charset for the byte encoding
+     * @throws Exception Any Exceptions thrown by this method will be thrown by the resource method that initiated the request
+     * @return the {@link StreamedRequestBody}. May be null if no body should be sent
+     * */
+    @Nullable
+    StreamedRequestBody parseStreamed(@NotNull Object body, @NotNull String mediaType, @NotNull String charset) throws Exception;
+
+    /**
+     * Buffers the result of {@link #parseStreamed(Object, String, String)} into binary data.
+     * {@inheritDoc}
+     * */
+    @Override
+    default byte @Nullable [] parse(@NotNull Object body, @NotNull String mediaType, @NotNull String charset) throws Exception {
+        StreamedRequestBody streamedBody = parseStreamed(body, mediaType, charset);
+        if (streamedBody == null) {
+            return null;
+        }
+        long contentLength = streamedBody.getContentLength();
+        ByteArrayOutputStream output = contentLength > 0 && contentLength <= Integer.MAX_VALUE ? new ByteArrayOutputStream((int) contentLength) : new ByteArrayOutputStream();
+        streamedBody.writeTo(output);
+        return output.toByteArray();
+    }
+
+}
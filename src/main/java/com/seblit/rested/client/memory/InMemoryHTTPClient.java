@@ -0,0 +1,231 @@
+package com.seblit.rested.client.memory;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers requests in memory without any network, for unit tests and for measuring the overhead of the request pipeline.<br>
+ * Requests are routed to a {@link RequestHandler} by their method and path. Paths are matched against templates like "/users/{id}",
+ * where a parameter matches exactly one path segment. Templates without parameters are looked up directly, the others are tried in the order they were added.
+ * The query is not considered, requests without a path are routed to "/". Requests without a matching route are answered with the fallback handler, by default a 404 response without body.<br>
+ * Routes are fixed when the client is built, so routing reads immutable tables and never locks.
+ * Fixed responses added with {@link Builder#addResponse(RequestMethod, String, int, String, byte[])} share their encoded body and headers across all requests,
+ * each request only creates the {@link Response} and a stream over the shared body.<br>
+ * Asynchronous requests are answered on the calling thread.<br>
+ * Instances are created using the {@link Builder}. See {@link HTTPClient} for further information
+ * */
+public class InMemoryHTTPClient implements AsyncHTTPClient {
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final RequestHandler NOT_FOUND = (request, pathParams) -> new Response.Builder().setStatusCode(404).build();
+
+    private final Map<RequestMethod, Routes> routes;
+    private final RequestHandler fallback;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder unmatchedRequests = new LongAdder();
+
+    private InMemoryHTTPClient(Builder builder) {
+        routes = new EnumMap<>(RequestMethod.class);
+        builder.routes.forEach((method, methodRoutes) -> routes.put(method, new Routes(methodRoutes)));
+        fallback = builder.fallback;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that the handler of the route throws
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        requests.increment();
+        Routes methodRoutes = routes.get(request.getMethod());
+        if (methodRoutes != null) {
+            String path = request.getPath() != null ? request.getPath() : "/";
+            Route exact = methodRoutes.exact.get(path);
+            if (exact == null && !methodRoutes.exact.isEmpty()) {
+                exact = methodRoutes.exact.get(PathTemplate.normalize(path));
+            }
+            if (exact != null) {
+                return exact.handler.handle(request, Collections.emptyMap());
+            }
+            for (Route route : methodRoutes.parameterized) {
+                Map<String, String> pathParams = route.template.match(path);
+                if (pathParams != null) {
+                    return route.handler.handle(request, pathParams);
+                }
+            }
+        }
+        unmatchedRequests.increment();
+        return fallback.handle(request, Collections.emptyMap());
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The request is answered on the calling thread, the returned future is already completed
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        try {
+            return CompletableFuture.completedFuture(request(request, method, params));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return the amount of requests received by this client
+     * */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the amount of requests that didn't match any route and were answered by the fallback handler
+     * */
+    public long getUnmatchedRequests() {
+        return unmatchedRequests.sum();
+    }
+
+    private static final class Route {
+
+        private final PathTemplate template;
+        private final RequestHandler handler;
+
+        private Route(PathTemplate template, RequestHandler handler) {
+            this.template = template;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * The routes of a single request method
+     * */
+    private static final class Routes {
+
+        private final Map<String, Route> exact = new HashMap<>();
+        private final Route[] parameterized;
+
+        private Routes(List<Route> routes) {
+            List<Route> parameterizedRoutes = new ArrayList<>();
+            for (Route route : routes) {
+                if (route.template.isParameterized()) {
+                    parameterizedRoutes.add(route);
+                } else {
+                    exact.putIfAbsent(route.template.template, route);
+                }
+            }
+            parameterized = parameterizedRoutes.toArray(new Route[0]);
+        }
+    }
+
+    /**
+     * A response whose body and headers are created once and shared by all requests
+     * */
+    private static final class FixedResponse implements RequestHandler {
+
+        private final int statusCode;
+        private final byte[] body;
+        private final Headers headers;
+
+        private FixedResponse(int statusCode, String contentType, byte[] body) {
+            this.statusCode = statusCode;
+            this.body = body;
+            Headers responseHeaders = new Headers();
+            if (contentType != null) {
+                responseHeaders.add(HEADER_CONTENT_TYPE, contentType);
+            }
+            if (body != null) {
+                responseHeaders.add(HEADER_CONTENT_LENGTH, String.valueOf(body.length));
+            }
+            headers = responseHeaders.snapshot();
+        }
+
+        @Override
+        public @NotNull Response handle(@NotNull Request request, @NotNull Map<String, String> pathParams) {
+            return new Response.Builder()
+                    .setStatusCode(statusCode)
+                    .setHeaders(headers)
+                    .setBodyStream(body != null && request.getMethod().isResponseBodySupported() ? new ByteArrayInputStream(body) : null)
+                    .build();
+        }
+    }
+
+    /**
+     * Creates and configures {@link InMemoryHTTPClient} instances
+     * */
+    public static class Builder {
+
+        private final Map<RequestMethod, List<Route>> routes = new EnumMap<>(RequestMethod.class);
+        private RequestHandler fallback = NOT_FOUND;
+
+        /**
+         * Adds a route. If multiple routes match a request, templates without parameters are preferred, otherwise the first added route is used
+         * @param method The request method of the route
+         * @param pathTemplate The path of the route, may contain parameters like "/users/{id}"
+         * @param handler The handler that answers the requests of the route
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder addHandler(@NotNull RequestMethod method, @NotNull String pathTemplate, @NotNull RequestHandler handler) {
+            if (method == null || pathTemplate == null || handler == null) {
+                throw new IllegalArgumentException("method, pathTemplate and handler must not be null");
+            }
+            routes.computeIfAbsent(method, ignored -> new ArrayList<>()).add(new Route(new PathTemplate(pathTemplate), handler));
+            return this;
+        }
+
+        /**
+         * Adds a route that always answers with the same response. The body is shared by all responses and must not be modified afterward
+         * @param method The request method of the route
+         * @param pathTemplate The path of the route, may contain parameters like "/users/{id}"
+         * @param statusCode The status code of the response
+         * @param contentType The value of the Content-Type header. null to omit it
+         * @param body The encoded response body. null for no body
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder addResponse(@NotNull RequestMethod method, @NotNull String pathTemplate, int statusCode, @Nullable String contentType, byte @Nullable [] body) {
+            return addHandler(method, pathTemplate, new FixedResponse(statusCode, contentType, body));
+        }
+
+        /**
+         * Default: a 404 response without body
+         * @param fallback The handler for requests that don't match any route
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setFallback(@NotNull RequestHandler fallback) {
+            if (fallback == null) {
+                throw new IllegalArgumentException("fallback must not be null");
+            }
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * @return a new {@link InMemoryHTTPClient} with the current routes
+         * */
+        @NotNull
+        public InMemoryHTTPClient build() {
+            return new InMemoryHTTPClient(this);
+        }
+    }
+
+}
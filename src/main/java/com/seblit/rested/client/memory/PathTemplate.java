@@ -0,0 +1,106 @@
+package com.seblit.rested.client.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A path like "/users/{id}/posts" split into its segments. Parameters match exactly one non-empty segment.
+ * Matching walks the path in place without creating substrings for literal segments
+ */
+final class PathTemplate {
+
+    private static final char SEPARATOR = '/';
+
+    final String template;
+    private final String[] segments;
+    private final String[] parameters;
+    private final boolean parameterized;
+
+    PathTemplate(String template) {
+        this.template = normalize(template);
+        List<String> segmentList = new ArrayList<>();
+        List<String> parameterList = new ArrayList<>();
+        boolean hasParameters = false;
+        int start = 1;
+        while (start <= this.template.length()) {
+            int end = this.template.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = this.template.length();
+            }
+            String segment = this.template.substring(start, end);
+            if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+                segmentList.add(null);
+                parameterList.add(segment.substring(1, segment.length() - 1));
+                hasParameters = true;
+            } else {
+                segmentList.add(segment);
+                parameterList.add(null);
+            }
+            start = end + 1;
+        }
+        segments = segmentList.toArray(new String[0]);
+        parameters = parameterList.toArray(new String[0]);
+        parameterized = hasParameters;
+    }
+
+    boolean isParameterized() {
+        return parameterized;
+    }
+
+    /**
+     * @return the parameter values by name, an empty map if the template has no parameters, or null if the path doesn't match
+     */
+    Map<String, String> match(String path) {
+        int length = trimmedLength(path);
+        int position = path.startsWith("/") ? 1 : 0;
+        Map<String, String> values = null;
+        for (int i = 0; i < segments.length; i++) {
+            if (position > length) {
+                return null;
+            }
+            int end = path.indexOf(SEPARATOR, position);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            String literal = segments[i];
+            if (literal != null) {
+                if (end - position != literal.length() || !path.regionMatches(position, literal, 0, literal.length())) {
+                    return null;
+                }
+            } else {
+                if (end == position) {
+                    return null;
+                }
+                if (values == null) {
+                    values = new HashMap<>(4);
+                }
+                values.put(parameters[i], path.substring(position, end));
+            }
+            position = end + 1;
+        }
+        if (position <= length) {
+            return null;
+        }
+        return values != null ? values : Collections.emptyMap();
+    }
+
+    /**
+     * @return the path with a leading and without a trailing separator
+     */
+    static String normalize(String path) {
+        String normalized = path.startsWith("/") ? path : SEPARATOR + path;
+        int length = trimmedLength(normalized);
+        return length == 0 ? "/" : normalized.substring(0, length);
+    }
+
+    private static int trimmedLength(String path) {
+        int length = path.length();
+        while (length > 1 && path.charAt(length - 1) == SEPARATOR) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,24 @@
+package com.seblit.rested.client.memory;
+
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Answers the requests of an {@link InMemoryHTTPClient} route. Called on the thread that performs the request, possibly by many threads at once
+ */
+@FunctionalInterface
+public interface RequestHandler {
+
+    /**
+     * @param request    The request to answer
+     * @param pathParams The values of the path template parameters by name. Empty if the template has none
+     * @return the response to the request
+     * @throws Exception any exception is thrown by the request of the client
+     */
+    @NotNull
+    Response handle(@NotNull Request request, @NotNull Map<String, String> pathParams) throws Exception;
+
+}
@@ -0,0 +1,310 @@
+package com.seblit.rested.client.nio;
+
+import com.seblit.rested.client.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The connections of a {@link NioHttpClient} to its host. Idle connections are reused most recently used first.
+ * New connections are opened until maxConnections is reached, further exchanges wait for a connection to become available.<br>
+ * Idle connections are closed after the idle timeout, connections of any state are not reused after their max lifetime.<br>
+ * If a Unix domain socket is configured, connections are opened to the socket file instead of host and port.
+ * Connections that are opened by an event loop resolve the host on the resolver instead, so the event loop never blocks on DNS lookups
+ */
+final class ConnectionPool {
+
+    final ByteBufferPool bufferPool;
+    final long connectTimeoutNanos;
+    final long readTimeoutNanos;
+    final long maxBufferedBody;
+    final long maxDrainBytes;
+    final String hostHeader;
+    private final String host;
+    private final int port;
+    private final Path unixDomainSocket;
+    private final EventLoop[] eventLoops;
+    private final Executor resolver;
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+    private final int maxConnections;
+    private final int maxPendingRequests;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final boolean tcpNoDelay;
+    private final boolean keepAlive;
+    private final int receiveBufferSize;
+    private final int sendBufferSize;
+    private final AtomicLong createdConnections = new AtomicLong();
+    private final AtomicLong reusedConnections = new AtomicLong();
+
+    private final Deque<HttpConnection> idle = new ArrayDeque<>();
+    private final Deque<Exchange> pending = new ArrayDeque<>();
+    private int open;
+    private boolean closed;
+
+    ConnectionPool(NioHttpClient.Builder builder, EventLoop[] eventLoops, Executor resolver) {
+        this.eventLoops = eventLoops;
+        this.resolver = resolver;
+        host = builder.host;
+        port = builder.port;
+        unixDomainSocket = builder.unixDomainSocket;
+        hostHeader = port == 80 ? host : host + ":" + port;
+        bufferPool = new ByteBufferPool(builder.bufferSize, builder.maxPooledBuffers);
+        maxBufferedBody = builder.maxBufferedBody;
+        maxDrainBytes = builder.maxDrainBytes;
+        maxConnections = builder.maxConnections;
+        maxPendingRequests = builder.maxPendingRequests;
+        connectTimeoutNanos = toNanos(builder.connectTimeout);
+        readTimeoutNanos = toNanos(builder.readTimeout);
+        idleTimeoutNanos = toNanos(builder.idleTimeout);
+        maxLifetimeNanos = toNanos(builder.maxLifetime);
+        tcpNoDelay = builder.tcpNoDelay;
+        keepAlive = builder.keepAlive;
+        receiveBufferSize = builder.receiveBufferSize;
+        sendBufferSize = builder.sendBufferSize;
+    }
+
+    /**
+     * Performs the exchange on an idle or new connection, or queues it until a connection becomes available
+     */
+    void execute(Exchange exchange) {
+        HttpConnection connection;
+        synchronized (this) {
+            if (closed) {
+                exchange.fail(new IOException("Client is closed"));
+                return;
+            }
+            connection = idle.pollFirst();
+            if (connection == null) {
+                if (open >= maxConnections) {
+                    if (pending.size() >= maxPendingRequests) {
+                        exchange.fail(new RejectedExecutionException("Too many pending requests: " + pending.size()));
+                    } else {
+                        pending.addLast(exchange);
+                    }
+                    return;
+                }
+                open++;
+            }
+        }
+        if (connection != null) {
+            reusedConnections.incrementAndGet();
+            connection.start(exchange);
+        } else {
+            connect(exchange);
+        }
+    }
+
+    /**
+     * Opens new connections that are kept idle, without exceeding maxConnections
+     *
+     * @return the futures of the connections, completed once connected
+     */
+    List<CompletableFuture<Response>> warmUp(int connections) {
+        List<CompletableFuture<Response>> futures = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            synchronized (this) {
+                if (closed || open >= maxConnections) {
+                    break;
+                }
+                open++;
+            }
+            Exchange exchange = Exchange.warmUp();
+            futures.add(exchange.future);
+            connect(exchange);
+        }
+        return futures;
+    }
+
+    /**
+     * Returns a connection after its exchange completed. It is either handed to the next pending exchange or kept idle
+     */
+    void release(HttpConnection connection) {
+        Exchange next;
+        synchronized (this) {
+            next = pending.pollFirst();
+            if (next == null) {
+                if (!closed) {
+                    idle.addFirst(connection);
+                    return;
+                }
+            }
+        }
+        if (next != null) {
+            reusedConnections.incrementAndGet();
+            connection.start(next);
+        } else {
+            connection.close(null);
+        }
+    }
+
+    /**
+     * Removes a closed connection. If exchanges are pending, a new connection is opened for the next one
+     */
+    void onClosed(HttpConnection connection) {
+        Exchange next;
+        synchronized (this) {
+            idle.remove(connection);
+            next = replaceConnection();
+        }
+        if (next != null) {
+            connect(next);
+        }
+    }
+
+    /**
+     * @return true if the connection was idle and is removed, false if it was acquired in the meantime
+     */
+    synchronized boolean removeIdle(HttpConnection connection) {
+        return idle.remove(connection);
+    }
+
+    boolean isExpired(HttpConnection connection, long now) {
+        return (maxLifetimeNanos > 0 && now - connection.getCreatedAt() > maxLifetimeNanos)
+                || (idleTimeoutNanos > 0 && now - connection.getLastActivity() > idleTimeoutNanos);
+    }
+
+    synchronized int getOpenConnections() {
+        return open;
+    }
+
+    synchronized int getIdleConnections() {
+        return idle.size();
+    }
+
+    synchronized int getPendingRequests() {
+        return pending.size();
+    }
+
+    long getCreatedConnections() {
+        return createdConnections.get();
+    }
+
+    long getReusedConnections() {
+        return reusedConnections.get();
+    }
+
+    /**
+     * Fails all pending exchanges. Connections are closed by their event loops
+     */
+    void close() {
+        Exchange[] failed;
+        synchronized (this) {
+            closed = true;
+            failed = pending.toArray(new Exchange[0]);
+            pending.clear();
+        }
+        for (Exchange exchange : failed) {
+            exchange.fail(new IOException("Client is closed"));
+        }
+    }
+
+    /**
+     * Opens a connection for the exchange. If opening fails, the exchange fails and the next pending exchange takes its place
+     */
+    private void connect(Exchange exchange) {
+        Exchange next = exchange;
+        while (next != null) {
+            try {
+                if (unixDomainSocket == null && isEventLoop()) {
+                    Exchange resolving = next;
+                    resolver.execute(() -> connect(resolving));
+                } else {
+                    open(next);
+                }
+                return;
+            } catch (IOException | RejectedExecutionException e) {
+                Exchange failed = next;
+                synchronized (this) {
+                    next = replaceConnection();
+                }
+                failed.fail(e);
+            }
+        }
+    }
+
+    private void open(Exchange exchange) throws IOException {
+        createdConnections.incrementAndGet();
+        EventLoop eventLoop = eventLoops[Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length)];
+        SocketChannel channel = null;
+        try {
+            SocketAddress address;
+            if (unixDomainSocket != null) {
+                address = UnixDomainSockets.address(unixDomainSocket);
+                channel = UnixDomainSockets.open();
+                channel.configureBlocking(false);
+            } else {
+                InetSocketAddress inetAddress = new InetSocketAddress(host, port);
+                if (inetAddress.isUnresolved()) {
+                    throw new IOException("Unable to resolve host " + host);
+                }
+                address = inetAddress;
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, keepAlive);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            if (sendBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+            }
+            HttpConnection connection = new HttpConnection(this, eventLoop, channel);
+            eventLoop.execute(() -> connection.connect(exchange, address));
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gives up a connection slot. Must be called while holding the lock
+     *
+     * @return the next pending exchange, which now owns the slot, or null if there is none
+     */
+    private Exchange replaceConnection() {
+        open--;
+        Exchange next = null;
+        if (!closed && open < maxConnections) {
+            next = pending.pollFirst();
+            if (next != null) {
+                open++;
+            }
+        }
+        return next;
+    }
+
+    private boolean isEventLoop() {
+        for (EventLoop eventLoop : eventLoops) {
+            if (eventLoop.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration != null ? duration.toNanos() : 0;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.seblit.rested.client.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread that serves the {@link HttpConnection}s registered with its {@link Selector}.<br>
+ * All state changes of a connection happen on its event loop. Other threads submit work through {@link #execute(Runnable)}.
+ * Timeouts of the connections are checked periodically
+ */
+final class EventLoop implements Runnable {
+
+    private static final long TICK_MILLIS = 100;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    EventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the task on this event loop. Tasks are executed in submission order
+     */
+    void execute(Runnable task) {
+        tasks.offer(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastTick = System.nanoTime();
+        while (running) {
+            try {
+                selector.select(TICK_MILLIS);
+            } catch (IOException e) {
+                continue;
+            }
+            Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while (selectedKeys.hasNext()) {
+                SelectionKey key = selectedKeys.next();
+                selectedKeys.remove();
+                if (key.isValid()) {
+                    ((HttpConnection) key.attachment()).handle(key);
+                }
+            }
+            runTasks();
+            long now = System.nanoTime();
+            if (now - lastTick >= TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS)) {
+                lastTick = now;
+                for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                    if (key.isValid()) {
+                        ((HttpConnection) key.attachment()).checkTimeouts(now);
+                    }
+                }
+            }
+        }
+        runTasks();
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            ((HttpConnection) key.attachment()).close(new IOException("Client closed"));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+        }
+    }
+
+}
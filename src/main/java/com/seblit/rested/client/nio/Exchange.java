@@ -0,0 +1,206 @@
+package com.seblit.rested.client.nio;
+
+import com.seblit.rested.client.PercentEncoder;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.StreamedRequestBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single request and its pending response. Serializes the request head on the calling thread, so event loops only copy bytes.
+ * Files of a {@link FileRequestBody} are transferred from their {@link FileChannel}. Other streamed bodies are written into a {@link RequestBodyPipe}
+ * by {@link #writeBody()} while the connection sends them, with chunked transfer encoding if their length is unknown
+ */
+final class Exchange {
+
+    private static final String HEADER_HOST = "Host";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+    private static final String CHUNKED = "chunked";
+    private static final String SEPARATORS = "()<>@,;:\\\"/[]?={}";
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    private static final String CRLF = "\r\n";
+    private static final String HEADER_SEPARATOR = ": ";
+    private static final String HTTP_VERSION = " HTTP/1.1";
+    private static final Set<String> MANAGED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        MANAGED_HEADERS.add(HEADER_HOST);
+        MANAGED_HEADERS.add(HEADER_CONTENT_LENGTH);
+        MANAGED_HEADERS.add(HEADER_TRANSFER_ENCODING);
+        MANAGED_HEADERS.add("Connection");
+    }
+
+    final CompletableFuture<Response> future = new CompletableFuture<>();
+    final boolean responseBodyExpected;
+    final boolean idempotent;
+    final byte[] head;
+    final byte[] body;
+    final RequestBodyPipe bodyPipe;
+    private final StreamedRequestBody streamedBody;
+    private final Path bodyFile;
+    private final long bodyFileLength;
+    boolean retried;
+
+    private Exchange(boolean responseBodyExpected, boolean idempotent, byte[] head, byte[] body, StreamedRequestBody streamedBody, RequestBodyPipe bodyPipe,
+                     Path bodyFile, long bodyFileLength) {
+        this.responseBodyExpected = responseBodyExpected;
+        this.idempotent = idempotent;
+        this.head = head;
+        this.body = body;
+        this.streamedBody = streamedBody;
+        this.bodyPipe = bodyPipe;
+        this.bodyFile = bodyFile;
+        this.bodyFileLength = bodyFileLength;
+    }
+
+    /**
+     * @return an exchange without request that completes with null as soon as its connection is established, leaving the connection idle
+     */
+    static Exchange warmUp() {
+        return new Exchange(false, true, null, null, null, null, null, -1);
+    }
+
+    /**
+     * Creates the exchange for the request. Streamed bodies that aren't backed by a file must be written with {@link #writeBody()} afterwards
+     *
+     * @param request     The request to send
+     * @param hostHeader  The value of the Host header
+     * @param maxBuffered The amount of streamed body bytes after which writing the body blocks until they are sent
+     * @throws IllegalArgumentException if a header name or value contains characters that aren't allowed
+     */
+    static Exchange create(Request request, String hostHeader, long maxBuffered) {
+        byte[] body = request.getBody();
+        Path bodyFile = null;
+        RequestBodyPipe bodyPipe = null;
+        long bodyLength = body != null ? body.length : -1;
+        StreamedRequestBody streamedBody = body == null ? request.getStreamedBody() : null;
+        if (streamedBody instanceof FileRequestBody && ((FileRequestBody) streamedBody).getPath() != null) {
+            bodyFile = ((FileRequestBody) streamedBody).getPath();
+            bodyLength = streamedBody.getContentLength();
+            streamedBody = null;
+        } else if (streamedBody != null) {
+            bodyLength = streamedBody.getContentLength();
+            bodyPipe = new RequestBodyPipe(bodyLength, maxBuffered);
+        }
+
+        StringBuilder head = new StringBuilder(256).append(request.getMethod().name()).append(' ');
+        String path = request.getPath();
+        PercentEncoder.encodePath(path == null || path.isEmpty() ? "/" : path, head);
+        String query = request.getEncodedQuery();
+        if (query != null) {
+            head.append('?').append(query);
+        }
+        head.append(HTTP_VERSION).append(CRLF);
+        head.append(HEADER_HOST).append(HEADER_SEPARATOR).append(hostHeader).append(CRLF);
+        for (String header : request.getHeaders()) {
+            if (MANAGED_HEADERS.contains(header)) {
+                continue;
+            }
+            checkHeaderName(header);
+            for (String value : request.getHeaderValues(header)) {
+                checkHeaderValue(header, value);
+                head.append(header).append(HEADER_SEPARATOR).append(value).append(CRLF);
+            }
+        }
+        if (bodyPipe != null && bodyPipe.isChunked()) {
+            head.append(HEADER_TRANSFER_ENCODING).append(HEADER_SEPARATOR).append(CHUNKED).append(CRLF);
+        } else if (bodyLength >= 0) {
+            head.append(HEADER_CONTENT_LENGTH).append(HEADER_SEPARATOR).append(bodyLength).append(CRLF);
+        } else if (isBodyMethod(request.getMethod())) {
+            head.append(HEADER_CONTENT_LENGTH).append(HEADER_SEPARATOR).append(0).append(CRLF);
+        }
+        head.append(CRLF);
+        return new Exchange(request.getMethod().isResponseBodySupported(), isIdempotent(request.getMethod()), head.toString().getBytes(StandardCharsets.ISO_8859_1),
+                body, streamedBody, bodyPipe, bodyFile, bodyLength);
+    }
+
+    /**
+     * Writes the streamed body into the pipe, blocking while the connection hasn't sent enough of it.
+     * Failures are passed to the connection, which fails the exchange. Does nothing if the body isn't piped
+     */
+    void writeBody() {
+        if (bodyPipe == null) {
+            return;
+        }
+        try {
+            OutputStream output = new BufferedOutputStream(bodyPipe, WRITE_BUFFER_SIZE);
+            streamedBody.writeTo(output);
+            output.flush();
+            bodyPipe.complete();
+        } catch (Exception e) {
+            bodyPipe.fail(e);
+        }
+    }
+
+    /**
+     * @return a new channel of the body file, or null if the body isn't a file
+     * @throws IOException if the file can't be opened
+     */
+    FileChannel openBodyFile() throws IOException {
+        return bodyFile != null ? FileChannel.open(bodyFile, StandardOpenOption.READ) : null;
+    }
+
+    boolean isWarmUp() {
+        return head == null;
+    }
+
+    long getBodyFileLength() {
+        return bodyFileLength;
+    }
+
+    void fail(Throwable failure) {
+        future.completeExceptionally(failure);
+        if (bodyPipe != null) {
+            bodyPipe.abort(failure);
+        }
+    }
+
+    /**
+     * Rejects names that aren't tokens, as they could end the head or inject further headers
+     */
+    private static void checkHeaderName(String name) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Header name must not be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c >= 0x7F || SEPARATORS.indexOf(c) >= 0) {
+                throw new IllegalArgumentException("Invalid header name: " + name);
+            }
+        }
+    }
+
+    /**
+     * Rejects line breaks and NUL in values, which would split the request
+     */
+    private static void checkHeaderValue(String name, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n' || c == 0) {
+                throw new IllegalArgumentException("Invalid value for header " + name);
+            }
+        }
+    }
+
+    private static boolean isIdempotent(RequestMethod method) {
+        return method != RequestMethod.POST && method != RequestMethod.PATCH;
+    }
+
+    private static boolean isBodyMethod(RequestMethod method) {
+        return method == RequestMethod.POST || method == RequestMethod.PUT || method == RequestMethod.PATCH;
+    }
+
+}
@@ -0,0 +1,666 @@
+package com.seblit.rested.client.nio;
+
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A non-blocking HTTP/1.1 connection that performs one {@link Exchange} at a time. Only accessed by its {@link EventLoop},
+ * except {@link #start(Exchange)}, {@link #resumeReading()}, {@link #resumeWriting()} and {@link #discardBody(NioBodyStream)} which hand over to it.<br>
+ * A piped request body is sent while it is written, writing pauses while the pipe is empty.
+ * The response is delivered as soon as its head is received, the body is passed to a {@link NioBodyStream} while it arrives.
+ * After the body is complete, the connection is returned to the {@link ConnectionPool} if it may be kept alive.
+ * A body that is closed early is read and discarded up to the pools maxDrainBytes, larger remainders close the connection
+ */
+final class HttpConnection {
+
+    private static final int INITIAL_HEAD_SIZE = 1024;
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_LINE_SIZE = 4096;
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+    private static final String HEADER_CONNECTION = "Connection";
+    private static final String HTTP_1_0 = "HTTP/1.0";
+
+    private enum State {
+        CONNECTING, IDLE, WRITING, READING_HEAD, READING_BODY, CLOSED
+    }
+
+    private enum Framing {
+        FIXED, CHUNKED, UNTIL_CLOSE
+    }
+
+    private enum ChunkState {
+        SIZE, DATA, DATA_END, TRAILER
+    }
+
+    private final ConnectionPool pool;
+    private final EventLoop eventLoop;
+    private final SocketChannel channel;
+    private final long createdAt;
+    private SelectionKey key;
+    private State state = State.CONNECTING;
+    private long lastActivity;
+    private int exchangeCount;
+    private Exchange exchange;
+    private boolean responseStarted;
+    private boolean requestWritten;
+    private ByteBuffer buffer;
+    private ByteBuffer idleBuffer;
+
+    private int headOffset;
+    private int bodyOffset;
+    private byte[] pipeChunk;
+    private int pipeOffset;
+    private boolean awaitingBody;
+    private FileChannel bodyFile;
+    private long filePosition;
+    private long fileRemaining;
+
+    private byte[] head = new byte[INITIAL_HEAD_SIZE];
+    private int headLength;
+
+    private NioBodyStream bodyStream;
+    private Framing framing;
+    private boolean keepAlive;
+    private long remaining;
+    private long discarded;
+    private ChunkState chunkState;
+    private final StringBuilder chunkLine = new StringBuilder();
+
+    HttpConnection(ConnectionPool pool, EventLoop eventLoop, SocketChannel channel) {
+        this.pool = pool;
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.createdAt = System.nanoTime();
+        this.lastActivity = createdAt;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Connects to the address and starts the exchange once connected. Must be called on the event loop
+     */
+    void connect(Exchange first, SocketAddress address) {
+        exchange = first;
+        try {
+            if (channel.connect(address)) {
+                key = channel.register(eventLoop.getSelector(), 0, this);
+                onConnected();
+            } else {
+                key = channel.register(eventLoop.getSelector(), SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    /**
+     * Starts the exchange on this connection. May be called from any thread, the exchange always begins in a separate event loop task
+     */
+    void start(Exchange next) {
+        eventLoop.execute(() -> begin(next));
+    }
+
+    /**
+     * Continues reading a paused response body. May be called from any thread
+     */
+    void resumeReading() {
+        eventLoop.execute(() -> {
+            if (state == State.READING_BODY && key.isValid()) {
+                lastActivity = System.nanoTime();
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        });
+    }
+
+    /**
+     * Continues sending a piped request body after new data was written into the pipe. May be called from any thread
+     */
+    void resumeWriting() {
+        eventLoop.execute(() -> {
+            if (state == State.WRITING && awaitingBody && key.isValid()) {
+                awaitingBody = false;
+                lastActivity = System.nanoTime();
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    /**
+     * Discards the remaining body after its stream was closed. The connection is closed instead if the remainder exceeds the drain limit.
+     * May be called from any thread
+     */
+    void discardBody(NioBodyStream stream) {
+        eventLoop.execute(() -> {
+            if (bodyStream != stream || state != State.READING_BODY) {
+                return;
+            }
+            if (exceedsDrainLimit()) {
+                close(null);
+            } else if (stream.paused.compareAndSet(true, false) && key.isValid()) {
+                lastActivity = System.nanoTime();
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        });
+    }
+
+    void handle(SelectionKey selectedKey) {
+        try {
+            if (selectedKey.isConnectable()) {
+                if (channel.finishConnect()) {
+                    onConnected();
+                }
+                return;
+            }
+            if (selectedKey.isWritable() && state == State.WRITING) {
+                onWritable();
+            }
+            if (selectedKey.isValid() && selectedKey.isReadable()) {
+                onReadable();
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            close(new IOException(e));
+        }
+    }
+
+    void checkTimeouts(long now) {
+        switch (state) {
+            case CONNECTING:
+                if (pool.connectTimeoutNanos > 0 && now - createdAt > pool.connectTimeoutNanos) {
+                    close(new SocketTimeoutException("Connect timed out"));
+                }
+                break;
+            case IDLE:
+                if (pool.isExpired(this, now) && pool.removeIdle(this)) {
+                    close(null);
+                }
+                break;
+            case WRITING:
+            case READING_HEAD:
+            case READING_BODY:
+                boolean paused = awaitingBody || (bodyStream != null && bodyStream.paused.get());
+                if (!paused && pool.readTimeoutNanos > 0 && now - lastActivity > pool.readTimeoutNanos) {
+                    close(new SocketTimeoutException("Read timed out"));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Closes the connection. A pending exchange fails with the cause, unless the connection was reused and closed before any response was received,
+     * in which case the exchange is retried once on another connection. Requests that aren't idempotent are only retried if none of their bytes were written,
+     * as the server may already have processed them. Piped bodies are never retried, as they can't be written again
+     *
+     * @param cause The cause, or null if the connection is closed without failure
+     */
+    void close(Throwable cause) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CLOSED;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        closeBodyFile();
+        pipeChunk = null;
+        pool.bufferPool.release(buffer);
+        buffer = null;
+        Exchange pending = exchange;
+        NioBodyStream pendingStream = bodyStream;
+        boolean retry = pending != null && pendingStream == null && exchangeCount > 1 && !responseStarted
+                && (pending.idempotent || !requestWritten) && pending.bodyPipe == null && !pending.retried && !(cause instanceof SocketTimeoutException);
+        exchange = null;
+        bodyStream = null;
+        IOException failure = cause instanceof IOException ? (IOException) cause : new IOException("Connection closed", cause);
+        if (pendingStream != null) {
+            pendingStream.fail(failure);
+        }
+        pool.onClosed(this);
+        if (retry) {
+            pending.retried = true;
+            pool.execute(pending);
+        } else if (pending != null && pendingStream == null) {
+            pending.fail(failure);
+        }
+    }
+
+    private void onConnected() {
+        Exchange first = exchange;
+        exchange = null;
+        state = State.IDLE;
+        key.interestOps(SelectionKey.OP_READ);
+        begin(first);
+    }
+
+    private void begin(Exchange next) {
+        if (state != State.IDLE) {
+            pool.execute(next);
+            return;
+        }
+        if (next.isWarmUp()) {
+            next.future.complete(null);
+            pool.release(this);
+            return;
+        }
+        exchange = next;
+        exchangeCount++;
+        responseStarted = false;
+        requestWritten = false;
+        lastActivity = System.nanoTime();
+        headOffset = 0;
+        bodyOffset = 0;
+        pipeChunk = null;
+        awaitingBody = false;
+        try {
+            bodyFile = next.openBodyFile();
+        } catch (IOException e) {
+            exchange = null;
+            next.fail(e);
+            pool.release(this);
+            return;
+        }
+        filePosition = 0;
+        fileRemaining = bodyFile != null ? next.getBodyFileLength() : 0;
+        buffer = pool.bufferPool.acquire();
+        state = State.WRITING;
+        try {
+            key.interestOps(SelectionKey.OP_WRITE);
+            onWritable();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    private void onWritable() throws IOException {
+        lastActivity = System.nanoTime();
+        Exchange current = exchange;
+        while (true) {
+            fillWriteBuffer(current);
+            if (buffer.position() > 0) {
+                buffer.flip();
+                if (channel.write(buffer) > 0) {
+                    requestWritten = true;
+                }
+                boolean pending = buffer.hasRemaining();
+                buffer.compact();
+                if (pending) {
+                    return;
+                }
+                continue;
+            }
+            if (fileRemaining > 0) {
+                long transferred = bodyFile.transferTo(filePosition, fileRemaining, channel);
+                filePosition += transferred;
+                fileRemaining -= transferred;
+                if (transferred > 0) {
+                    requestWritten = true;
+                } else {
+                    if (filePosition >= bodyFile.size()) {
+                        throw new IOException("File is shorter than its content length");
+                    }
+                    return;
+                }
+                continue;
+            }
+            RequestBodyPipe pipe = current.bodyPipe;
+            if (pipe != null && !pipe.isDrained()) {
+                Exception failure = pipe.getFailure();
+                if (failure != null) {
+                    current.fail(failure);
+                    close(failure);
+                    return;
+                }
+                awaitingBody = true;
+                key.interestOps(0);
+                return;
+            }
+            closeBodyFile();
+            buffer.clear();
+            headLength = 0;
+            state = State.READING_HEAD;
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+    }
+
+    private void fillWriteBuffer(Exchange current) {
+        if (headOffset < current.head.length && buffer.hasRemaining()) {
+            int count = Math.min(buffer.remaining(), current.head.length - headOffset);
+            buffer.put(current.head, headOffset, count);
+            headOffset += count;
+        }
+        if (headOffset == current.head.length && current.body != null && bodyOffset < current.body.length && buffer.hasRemaining()) {
+            int count = Math.min(buffer.remaining(), current.body.length - bodyOffset);
+            buffer.put(current.body, bodyOffset, count);
+            bodyOffset += count;
+        }
+        if (headOffset == current.head.length && current.bodyPipe != null) {
+            while (buffer.hasRemaining()) {
+                if (pipeChunk == null) {
+                    pipeChunk = current.bodyPipe.poll(this::resumeWriting);
+                    pipeOffset = 0;
+                    if (pipeChunk == null) {
+                        return;
+                    }
+                }
+                int count = Math.min(buffer.remaining(), pipeChunk.length - pipeOffset);
+                buffer.put(pipeChunk, pipeOffset, count);
+                pipeOffset += count;
+                if (pipeOffset == pipeChunk.length) {
+                    pipeChunk = null;
+                }
+            }
+        }
+    }
+
+    private void onReadable() throws IOException {
+        if (state == State.IDLE) {
+            if (idleBuffer == null) {
+                idleBuffer = ByteBuffer.allocate(1);
+            }
+            idleBuffer.clear();
+            if (channel.read(idleBuffer) != 0 && pool.removeIdle(this)) {
+                close(null);
+            }
+            return;
+        }
+        buffer.clear();
+        int read = channel.read(buffer);
+        if (read < 0) {
+            onEndOfStream();
+            return;
+        }
+        if (read == 0) {
+            return;
+        }
+        lastActivity = System.nanoTime();
+        responseStarted = true;
+        buffer.flip();
+        while (buffer != null && buffer.hasRemaining()) {
+            if (state == State.READING_HEAD) {
+                readHead();
+            } else if (state == State.READING_BODY) {
+                readBody();
+            } else {
+                break;
+            }
+        }
+        if (state == State.READING_BODY) {
+            if (bodyStream.isClosed() && exceedsDrainLimit()) {
+                close(null);
+            } else if (bodyStream.isFull()) {
+                pauseReading();
+            }
+        }
+    }
+
+    private boolean exceedsDrainLimit() {
+        switch (framing) {
+            case FIXED:
+                return discarded + remaining > pool.maxDrainBytes;
+            case CHUNKED:
+                return discarded > pool.maxDrainBytes;
+            default:
+                return true;
+        }
+    }
+
+    private void onEndOfStream() throws IOException {
+        if (state == State.READING_BODY && framing == Framing.UNTIL_CLOSE) {
+            keepAlive = false;
+            completeBody();
+        } else {
+            close(new IOException("Connection closed by server"));
+        }
+    }
+
+    private void readHead() throws IOException {
+        while (buffer.hasRemaining()) {
+            byte value = buffer.get();
+            if (headLength == head.length) {
+                if (headLength >= MAX_HEAD_SIZE) {
+                    throw new IOException("Response head exceeds " + MAX_HEAD_SIZE + " bytes");
+                }
+                head = Arrays.copyOf(head, Math.min(MAX_HEAD_SIZE, headLength * 2));
+            }
+            head[headLength++] = value;
+            if (value == '\n' && headLength >= 4 && head[headLength - 2] == '\r' && head[headLength - 3] == '\n' && head[headLength - 4] == '\r') {
+                onHead();
+                return;
+            }
+        }
+    }
+
+    private void onHead() throws IOException {
+        String[] lines = new String(head, 0, headLength - 4, StandardCharsets.ISO_8859_1).split("\r\n");
+        headLength = 0;
+        String statusLine = lines[0];
+        int versionEnd = statusLine.indexOf(' ');
+        int statusEnd = versionEnd >= 0 ? statusLine.indexOf(' ', versionEnd + 1) : -1;
+        if (!statusLine.startsWith("HTTP/") || versionEnd < 0) {
+            throw new IOException("Invalid status line: " + statusLine);
+        }
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(statusLine.substring(versionEnd + 1, statusEnd >= 0 ? statusEnd : statusLine.length()).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + statusLine, e);
+        }
+        if (statusCode >= 100 && statusCode < 200 && statusCode != 101) {
+            return;
+        }
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int separator = lines[i].indexOf(':');
+            if (separator > 0) {
+                headers.add(lines[i].substring(0, separator).trim(), lines[i].substring(separator + 1).trim());
+            }
+        }
+
+        String connection = headers.getFirst(HEADER_CONNECTION);
+        String version = statusLine.substring(0, versionEnd);
+        keepAlive = HTTP_1_0.equals(version)
+                ? connection != null && connection.equalsIgnoreCase("keep-alive")
+                : connection == null || !connection.equalsIgnoreCase("close");
+        Exchange current = exchange;
+        boolean hasBody = current.responseBodyExpected && statusCode != 204 && statusCode != 304 && statusCode != 101;
+        if (statusCode == 101) {
+            keepAlive = false;
+        }
+        if (hasBody) {
+            String transferEncoding = headers.getFirst(HEADER_TRANSFER_ENCODING);
+            String contentLength = headers.getFirst(HEADER_CONTENT_LENGTH);
+            if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                framing = Framing.CHUNKED;
+                chunkState = ChunkState.SIZE;
+                chunkLine.setLength(0);
+            } else if (contentLength != null) {
+                framing = Framing.FIXED;
+                try {
+                    remaining = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid Content-Length: " + contentLength, e);
+                }
+                hasBody = remaining > 0;
+            } else {
+                framing = Framing.UNTIL_CLOSE;
+                keepAlive = false;
+            }
+        }
+
+        InputStream responseBody;
+        if (hasBody) {
+            discarded = 0;
+            bodyStream = new NioBodyStream(this, pool.maxBufferedBody);
+            responseBody = bodyStream;
+            state = State.READING_BODY;
+        } else {
+            responseBody = current.responseBodyExpected ? InputStream.nullInputStream() : null;
+            finishExchange(keepAlive && !buffer.hasRemaining());
+        }
+        current.future.complete(new Response.Builder()
+                .setStatusCode(statusCode)
+                .setMessage(statusEnd >= 0 ? statusLine.substring(statusEnd + 1) : null)
+                .setBodyStream(responseBody)
+                .setHeaders(headers)
+                .build());
+    }
+
+    private void readBody() throws IOException {
+        switch (framing) {
+            case FIXED:
+                offer((int) Math.min(remaining, buffer.remaining()));
+                if (remaining == 0) {
+                    completeBody();
+                }
+                break;
+            case UNTIL_CLOSE:
+                offer(buffer.remaining());
+                break;
+            case CHUNKED:
+                readChunked();
+                break;
+        }
+    }
+
+    private void readChunked() throws IOException {
+        while (buffer.hasRemaining()) {
+            switch (chunkState) {
+                case SIZE:
+                    if (readLine()) {
+                        String line = chunkLine.toString();
+                        chunkLine.setLength(0);
+                        int extension = line.indexOf(';');
+                        try {
+                            remaining = Long.parseLong((extension >= 0 ? line.substring(0, extension) : line).trim(), 16);
+                        } catch (NumberFormatException e) {
+                            throw new IOException("Invalid chunk size: " + line, e);
+                        }
+                        chunkState = remaining == 0 ? ChunkState.TRAILER : ChunkState.DATA;
+                    }
+                    break;
+                case DATA:
+                    offer((int) Math.min(remaining, buffer.remaining()));
+                    if (remaining == 0) {
+                        chunkState = ChunkState.DATA_END;
+                    }
+                    break;
+                case DATA_END:
+                    if (readLine()) {
+                        chunkLine.setLength(0);
+                        chunkState = ChunkState.SIZE;
+                    }
+                    break;
+                case TRAILER:
+                    if (readLine()) {
+                        boolean end = chunkLine.length() == 0;
+                        chunkLine.setLength(0);
+                        if (end) {
+                            completeBody();
+                            return;
+                        }
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads into chunkLine until the end of a line
+     *
+     * @return true if the line is complete
+     */
+    private boolean readLine() throws IOException {
+        while (buffer.hasRemaining()) {
+            char value = (char) (buffer.get() & 0xFF);
+            if (value == '\n') {
+                return true;
+            } else if (value != '\r') {
+                if (chunkLine.length() >= MAX_CHUNK_LINE_SIZE) {
+                    throw new IOException("Chunk line exceeds " + MAX_CHUNK_LINE_SIZE + " bytes");
+                }
+                chunkLine.append(value);
+            }
+        }
+        return false;
+    }
+
+    private void offer(int count) {
+        if (bodyStream.isClosed()) {
+            buffer.position(buffer.position() + count);
+            discarded += count;
+        } else {
+            byte[] chunk = new byte[count];
+            buffer.get(chunk);
+            bodyStream.offer(chunk);
+        }
+        remaining -= count;
+    }
+
+    private void completeBody() {
+        bodyStream.complete();
+        finishExchange(keepAlive && !buffer.hasRemaining());
+    }
+
+    private void pauseReading() {
+        NioBodyStream stream = bodyStream;
+        stream.paused.set(true);
+        key.interestOps(0);
+        if (!stream.isFull() && stream.paused.compareAndSet(true, false)) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void finishExchange(boolean reusable) {
+        exchange = null;
+        bodyStream = null;
+        pool.bufferPool.release(buffer);
+        buffer = null;
+        closeBodyFile();
+        lastActivity = System.nanoTime();
+        if (reusable && !pool.isExpired(this, lastActivity)) {
+            state = State.IDLE;
+            key.interestOps(SelectionKey.OP_READ);
+            pool.release(this);
+        } else {
+            close(null);
+        }
+    }
+
+    private void closeBodyFile() {
+        if (bodyFile != null) {
+            try {
+                bodyFile.close();
+            } catch (IOException ignored) {
+            }
+            bodyFile = null;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.seblit.rested.client.nio;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The response body of a {@link HttpConnection}. The event loop offers the received chunks, the consumer reads them on its own thread.<br>
+ * When more than highWater bytes are buffered, the connection stops reading from the socket until the consumer has read half of them.
+ * Closing the stream before the body is complete lets the connection discard the remainder, see {@link HttpConnection#discardBody(NioBodyStream)}
+ */
+final class NioBodyStream extends InputStream {
+
+    private final HttpConnection connection;
+    private final long highWater;
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    final AtomicBoolean paused = new AtomicBoolean();
+    private byte[] current;
+    private int position;
+    private long buffered;
+    private boolean complete;
+    private boolean closed;
+    private IOException failure;
+
+    NioBodyStream(HttpConnection connection, long highWater) {
+        this.connection = connection;
+        this.highWater = highWater;
+    }
+
+    synchronized void offer(byte[] chunk) {
+        if (!closed) {
+            chunks.add(chunk);
+            buffered += chunk.length;
+            notifyAll();
+        }
+    }
+
+    synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    synchronized void fail(IOException failure) {
+        if (!complete) {
+            this.failure = failure;
+            notifyAll();
+        }
+    }
+
+    synchronized boolean isFull() {
+        return buffered >= highWater;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count;
+        synchronized (this) {
+            while (current == null || position == current.length) {
+                current = chunks.poll();
+                position = 0;
+                if (current != null) {
+                    buffered -= current.length;
+                } else if (closed) {
+                    throw new IOException("Stream closed");
+                } else if (failure != null) {
+                    throw failure;
+                } else if (complete) {
+                    return -1;
+                } else {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the response body", e);
+                    }
+                }
+            }
+            count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+        }
+        resumeIfDrained();
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+        return (int) Math.min(Integer.MAX_VALUE, buffered + (current != null ? current.length - position : 0));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            chunks.clear();
+            current = null;
+            buffered = 0;
+            notifyAll();
+            if (complete || failure != null) {
+                return;
+            }
+        }
+        connection.discardBody(this);
+    }
+
+    private void resumeIfDrained() {
+        if (paused.get()) {
+            boolean drained;
+            synchronized (this) {
+                drained = buffered <= highWater / 2;
+            }
+            if (drained && paused.compareAndSet(true, false)) {
+                connection.resumeReading();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,463 @@
+package com.seblit.rested.client.nio;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.FileRequestBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A dependency-free HTTP/1.1 client based on non-blocking {@link java.nio.channels.SocketChannel}s.<br>
+ * A small number of event loop threads serve all connections, so the amount of concurrent requests isn't bound to the amount of threads.
+ * Connections to the host are kept in a pool with a maximum size, idle timeout and max lifetime. Socket reads and writes use pooled direct buffers.<br>
+ * The response is delivered as soon as its head is received. Its body stream reads the data while it arrives,
+ * reading from the socket pauses while too much unread data is buffered. Files of a {@link FileRequestBody} with a path are transferred from their channel,
+ * other streamed request bodies are written on the calling thread, or on the callback executor for asynchronous requests, while they are sent.
+ * They use chunked transfer encoding if their length is unknown, writing blocks while too much of them waits to be sent.<br>
+ * Connections may also be opened to a Unix domain socket, for example of a local sidecar proxy, which requires Java 16 or later.<br>
+ * Only http is supported. The headers Host, Content-Length, Transfer-Encoding and Connection are managed by this client.<br>
+ * Instances are created using the {@link Builder} and should be closed when no longer needed. See {@link HTTPClient} for further information
+ * */
+public class NioHttpClient implements AsyncHTTPClient, Closeable {
+
+    private final EventLoop[] eventLoops;
+    private final ConnectionPool pool;
+    private final Executor callbackExecutor;
+    private final ExecutorService ownedCallbackExecutor;
+
+    private NioHttpClient(Builder builder) throws IOException {
+        eventLoops = new EventLoop[builder.eventLoopThreads];
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new EventLoop("NioHttpClient-event-loop-" + i);
+            }
+        } catch (IOException e) {
+            shutdownEventLoops();
+            throw e;
+        }
+        if (builder.callbackExecutor != null) {
+            callbackExecutor = builder.callbackExecutor;
+            ownedCallbackExecutor = null;
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            ownedCallbackExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "NioHttpClient-callback-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            callbackExecutor = ownedCallbackExecutor;
+        }
+        pool = new ConnectionPool(builder, eventLoops, callbackExecutor);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that may occur during the request
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        Exchange exchange = Exchange.create(request, pool.hostHeader, pool.maxBufferedBody);
+        pool.execute(exchange);
+        exchange.writeBody();
+        try {
+            return exchange.future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The returned future is completed on the callback executor, never on an event loop
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        Exchange exchange;
+        try {
+            exchange = Exchange.create(request, pool.hostHeader, pool.maxBufferedBody);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        exchange.future.whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(response);
+            }
+        }, callbackExecutor);
+        pool.execute(exchange);
+        if (exchange.bodyPipe != null) {
+            try {
+                callbackExecutor.execute(exchange::writeBody);
+            } catch (RejectedExecutionException e) {
+                exchange.fail(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Opens connections ahead of time, so the first requests don't wait for them to be established.
+     * The connections are kept idle until they are used or their idle timeout expires
+     * @param connections The amount of connections to open. Limited by the maximum amount of connections
+     * @return a future that completes with the amount of connections that were established, once all attempts finished
+     * */
+    @NotNull
+    public CompletableFuture<Integer> warmUp(int connections) {
+        List<CompletableFuture<Response>> attempts = pool.warmUp(connections);
+        AtomicInteger established = new AtomicInteger();
+        CompletableFuture<?>[] counted = new CompletableFuture<?>[attempts.size()];
+        for (int i = 0; i < counted.length; i++) {
+            counted[i] = attempts.get(i).handle((ignored, error) -> error == null ? established.incrementAndGet() : 0);
+        }
+        return CompletableFuture.allOf(counted).thenApply(ignored -> established.get());
+    }
+
+    /**
+     * @return the amount of open connections, including those that are currently connecting
+     * */
+    public int getOpenConnections() {
+        return pool.getOpenConnections();
+    }
+
+    /**
+     * @return the amount of open connections that are currently not used by a request
+     * */
+    public int getIdleConnections() {
+        return pool.getIdleConnections();
+    }
+
+    /**
+     * @return the amount of requests that wait for a connection
+     * */
+    public int getPendingRequests() {
+        return pool.getPendingRequests();
+    }
+
+    /**
+     * @return the amount of connections this client has opened, including failed attempts
+     * */
+    public long getCreatedConnections() {
+        return pool.getCreatedConnections();
+    }
+
+    /**
+     * @return the amount of requests that were performed on a kept-alive connection instead of a new one
+     * */
+    public long getReusedConnections() {
+        return pool.getReusedConnections();
+    }
+
+    /**
+     * Closes all connections and stops the event loops. Pending requests fail with an {@link IOException}
+     * */
+    @Override
+    public void close() {
+        pool.close();
+        shutdownEventLoops();
+        if (ownedCallbackExecutor != null) {
+            ownedCallbackExecutor.shutdown();
+        }
+    }
+
+    private void shutdownEventLoops() {
+        for (EventLoop eventLoop : eventLoops) {
+            if (eventLoop != null) {
+                eventLoop.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Creates and configures {@link NioHttpClient} instances
+     * */
+    public static class Builder {
+
+        final String host;
+        int port = 80;
+        Path unixDomainSocket;
+        int eventLoopThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        int maxConnections = 64;
+        int maxPendingRequests = 10_000;
+        Duration connectTimeout;
+        Duration readTimeout;
+        Duration idleTimeout = Duration.ofSeconds(60);
+        Duration maxLifetime;
+        boolean tcpNoDelay = true;
+        boolean keepAlive = true;
+        int receiveBufferSize = -1;
+        int sendBufferSize = -1;
+        int bufferSize = 16 * 1024;
+        int maxPooledBuffers = 256;
+        long maxBufferedBody = 256 * 1024;
+        long maxDrainBytes = 64 * 1024;
+        Executor callbackExecutor;
+
+        /**
+         * Creates a new builder for a client that connects to the provided host
+         * @param host The host the client connects to
+         * */
+        public Builder(@NotNull String host) {
+            if (host == null) {
+                throw new IllegalArgumentException("host must not be null");
+            }
+            this.host = host;
+        }
+
+        /**
+         * Default: 80
+         * @param port The port the client connects to
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Connects to a Unix domain socket instead of the host and port, avoiding the TCP loopback overhead for servers on the same machine.
+         * The host is still sent in the Host header. TCP_NODELAY and SO_KEEPALIVE don't apply to these connections.<br>
+         * Requires Java 16 or later
+         * @param unixDomainSocket The path of the socket file. null to connect to the host and port
+         * @return this instance for method chaining
+         * @throws UnsupportedOperationException if the runtime doesn't support Unix domain sockets
+         * */
+        @NotNull
+        public Builder setUnixDomainSocket(@Nullable Path unixDomainSocket) {
+            if (unixDomainSocket != null && !UnixDomainSockets.isSupported()) {
+                throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+            }
+            this.unixDomainSocket = unixDomainSocket;
+            return this;
+        }
+
+        /**
+         * Default: the amount of available processors, at most 4
+         * @param eventLoopThreads The amount of threads that serve the connections. Must be at least 1
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setEventLoopThreads(int eventLoopThreads) {
+            this.eventLoopThreads = requirePositive(eventLoopThreads, "eventLoopThreads");
+            return this;
+        }
+
+        /**
+         * Default: 64
+         * @param maxConnections The maximum amount of open connections to the host. Must be at least 1
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxConnections(int maxConnections) {
+            this.maxConnections = requirePositive(maxConnections, "maxConnections");
+            return this;
+        }
+
+        /**
+         * Requests beyond this limit fail with a {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException}.<br>
+         * Default: 10000
+         * @param maxPendingRequests The maximum amount of requests that wait for a connection
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxPendingRequests(int maxPendingRequests) {
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout The timeout for establishing connections. null for no timeout
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setConnectTimeout(@Nullable Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout The maximum time without progress while sending a request or receiving its response. null for no timeout
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setReadTimeout(@Nullable Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Default: 60 seconds
+         * @param idleTimeout The time after which unused connections are closed. null to keep them open
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setIdleTimeout(@Nullable Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Connections older than this are closed once their current request completes. Useful to pick up DNS changes.<br>
+         * Default: unlimited
+         * @param maxLifetime The maximum lifetime of a connection. null for unlimited
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxLifetime(@Nullable Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+            return this;
+        }
+
+        /**
+         * Default: true
+         * @param tcpNoDelay Value of {@link java.net.StandardSocketOptions#TCP_NODELAY}
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        /**
+         * Default: true
+         * @param keepAlive Value of {@link java.net.StandardSocketOptions#SO_KEEPALIVE}
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param receiveBufferSize Value of {@link java.net.StandardSocketOptions#SO_RCVBUF}. -1 for the system default
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setReceiveBufferSize(int receiveBufferSize) {
+            this.receiveBufferSize = receiveBufferSize;
+            return this;
+        }
+
+        /**
+         * @param sendBufferSize Value of {@link java.net.StandardSocketOptions#SO_SNDBUF}. -1 for the system default
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setSendBufferSize(int sendBufferSize) {
+            this.sendBufferSize = sendBufferSize;
+            return this;
+        }
+
+        /**
+         * Default: 16 KiB
+         * @param bufferSize The size of the pooled direct buffers used for socket reads and writes. Must be at least 1
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setBufferSize(int bufferSize) {
+            this.bufferSize = requirePositive(bufferSize, "bufferSize");
+            return this;
+        }
+
+        /**
+         * Default: 256
+         * @param maxPooledBuffers The maximum amount of unused buffers kept for reuse
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = maxPooledBuffers;
+            return this;
+        }
+
+        /**
+         * Default: 256 KiB
+         * @param maxBufferedBody The amount of unread response body bytes after which reading from the socket pauses,
+         *                        and of unsent streamed request body bytes after which writing the request body blocks. Must be at least 1
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxBufferedBody(long maxBufferedBody) {
+            if (maxBufferedBody <= 0) {
+                throw new IllegalArgumentException("maxBufferedBody must be positive");
+            }
+            this.maxBufferedBody = maxBufferedBody;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of unread response body bytes that are read and discarded when the body stream is closed early,
+         * so the connection can be reused. Connections with larger remaining bodies are closed instead.<br>
+         * Default: 64 KiB
+         * @param maxDrainBytes The maximum amount of bytes to drain. 0 to close the connection whenever a body isn't read completely
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setMaxDrainBytes(long maxDrainBytes) {
+            if (maxDrainBytes < 0) {
+                throw new IllegalArgumentException("maxDrainBytes must not be negative");
+            }
+            this.maxDrainBytes = maxDrainBytes;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Executor} that completes the futures of {@link #requestAsync(Request, Method, Object[])}, and therefore runs their dependent stages.
+         * It also resolves the host for connections that are opened by an event loop, so event loops never block on DNS lookups,
+         * and writes streamed request bodies of asynchronous requests
+         * @param callbackExecutor The executor to use. null to use a cached thread pool owned by the client
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setCallbackExecutor(@Nullable Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        /**
+         * @return a new {@link NioHttpClient} with the current configuration
+         * @throws UncheckedIOException if a selector can't be opened
+         * */
+        @NotNull
+        public NioHttpClient build() {
+            try {
+                return new NioHttpClient(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.seblit.rested.client.nio;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * Passes a streamed request body from the thread that writes it to the {@link HttpConnection} that sends it.<br>
+ * Writes block while more than maxBuffered bytes wait to be sent. Bodies of unknown length are framed with chunked transfer encoding.
+ * The connection polls the written chunks and is woken up through a callback once new data is available
+ */
+final class RequestBodyPipe extends OutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final long contentLength;
+    private final long maxBuffered;
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private long buffered;
+    private long written;
+    private boolean complete;
+    private Exception failure;
+    private Throwable abortCause;
+    private Runnable waiter;
+
+    /**
+     * @param contentLength The length of the body, or -1 to send it chunked
+     * @param maxBuffered   The amount of bytes after which writes block until the connection has sent them
+     */
+    RequestBodyPipe(long contentLength, long maxBuffered) {
+        this.contentLength = contentLength;
+        this.maxBuffered = maxBuffered;
+    }
+
+    boolean isChunked() {
+        return contentLength < 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return;
+        }
+        Runnable wakeup;
+        synchronized (this) {
+            while (abortCause == null && buffered >= maxBuffered) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing the request body");
+                }
+            }
+            if (abortCause != null) {
+                throw new IOException("Request aborted", abortCause);
+            }
+            if (complete) {
+                throw new IOException("Body is already complete");
+            }
+            if (contentLength >= 0 && written + len > contentLength) {
+                throw new IOException("Body exceeds its content length of " + contentLength + " bytes");
+            }
+            byte[] chunk = frame(b, off, len);
+            chunks.addLast(chunk);
+            buffered += chunk.length;
+            written += len;
+            wakeup = takeWaiter();
+        }
+        if (wakeup != null) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Closing has no effect, the body ends with {@link #complete()}
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Ends the body after all bytes were written
+     *
+     * @throws IOException if the amount of written bytes doesn't match the content length, or the request was aborted
+     */
+    void complete() throws IOException {
+        Runnable wakeup;
+        synchronized (this) {
+            if (abortCause != null) {
+                throw new IOException("Request aborted", abortCause);
+            }
+            if (contentLength >= 0 && written != contentLength) {
+                throw new IOException("Body ended after " + written + " of " + contentLength + " bytes");
+            }
+            if (contentLength < 0) {
+                chunks.addLast(LAST_CHUNK);
+            }
+            complete = true;
+            wakeup = takeWaiter();
+        }
+        if (wakeup != null) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Reports that writing the body failed. The connection fails the exchange with the failure
+     */
+    void fail(Exception failure) {
+        Runnable wakeup;
+        synchronized (this) {
+            if (complete || abortCause != null || this.failure != null) {
+                return;
+            }
+            this.failure = failure;
+            wakeup = takeWaiter();
+        }
+        if (wakeup != null) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Discards the buffered chunks and lets current and further writes fail, as the body won't be sent
+     */
+    synchronized void abort(Throwable cause) {
+        if (abortCause == null) {
+            abortCause = cause;
+            chunks.clear();
+            buffered = 0;
+            waiter = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @param wakeup Run once after new data is available, the body is complete or has failed, if no chunk is available now
+     * @return the next chunk to send, or null if there is none at the moment
+     */
+    synchronized byte[] poll(Runnable wakeup) {
+        byte[] chunk = chunks.pollFirst();
+        if (chunk != null) {
+            buffered -= chunk.length;
+            notifyAll();
+        } else if (!complete && failure == null && abortCause == null) {
+            waiter = wakeup;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return true if the body is complete and all chunks were polled
+     */
+    synchronized boolean isDrained() {
+        return complete && chunks.isEmpty();
+    }
+
+    /**
+     * @return the failure of the writing thread, or null if it didn't fail
+     */
+    synchronized Exception getFailure() {
+        return failure;
+    }
+
+    private Runnable takeWaiter() {
+        Runnable wakeup = waiter;
+        waiter = null;
+        return wakeup;
+    }
+
+    private byte[] frame(byte[] b, int off, int len) {
+        if (contentLength >= 0) {
+            byte[] chunk = new byte[len];
+            System.arraycopy(b, off, chunk, 0, len);
+            return chunk;
+        }
+        byte[] size = (Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] chunk = new byte[size.length + len + CRLF.length];
+        System.arraycopy(size, 0, chunk, 0, size.length);
+        System.arraycopy(b, off, chunk, size.length, len);
+        System.arraycopy(CRLF, 0, chunk, size.length + len, CRLF.length);
+        return chunk;
+    }
+
+}
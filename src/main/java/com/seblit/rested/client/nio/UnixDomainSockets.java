@@ -0,0 +1,93 @@
+package com.seblit.rested.client.nio;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Opens channels to Unix domain sockets. They are supported by {@link SocketChannel} since Java 16,
+ * the classes and methods are looked up at runtime so the client still compiles and runs on older versions without them
+ */
+final class UnixDomainSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method OPEN;
+    private static final Method ADDRESS_OF;
+
+    static {
+        ProtocolFamily family = null;
+        Method open = null;
+        Method addressOf = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException ignored) {
+        }
+        UNIX = family;
+        OPEN = open;
+        ADDRESS_OF = addressOf;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * @return true if the runtime supports Unix domain socket channels
+     */
+    static boolean isSupported() {
+        return UNIX != null && OPEN != null && ADDRESS_OF != null;
+    }
+
+    /**
+     * @return a new unconnected channel for a Unix domain socket
+     * @throws UnsupportedOperationException if the runtime doesn't support Unix domain sockets
+     */
+    static SocketChannel open() throws IOException {
+        requireSupported();
+        try {
+            return (SocketChannel) OPEN.invoke(null, UNIX);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the address of the socket file
+     * @throws UnsupportedOperationException if the runtime doesn't support Unix domain sockets
+     */
+    static SocketAddress address(Path path) {
+        requireSupported();
+        try {
+            return (SocketAddress) ADDRESS_OF.invoke(null, path);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void requireSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.seblit.rested.client.replay;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads a body directly from a region of the memory-mapped log, without copying it beforehand.
+ * As a {@link ReadableByteChannel} the region can be written into files and channels without passing through a heap array.
+ * Bodies that were stored truncated are followed by zeros up to their recorded size
+ */
+final class ByteBufferInputStream extends InputStream implements ReadableByteChannel {
+
+    private final ByteBuffer buffer;
+    private long padding;
+
+    /**
+     * @param buffer The stored body
+     * @param size   The recorded size of the body, may exceed the stored bytes
+     */
+    ByteBufferInputStream(ByteBuffer buffer, long size) {
+        this.buffer = buffer;
+        this.padding = Math.max(0, size - buffer.remaining());
+    }
+
+    @Override
+    public int read() {
+        if (buffer.hasRemaining()) {
+            return buffer.get() & 0xFF;
+        }
+        if (padding > 0) {
+            padding--;
+            return 0;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (buffer.hasRemaining()) {
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+        if (padding > 0) {
+            int count = (int) Math.min(len, padding);
+            Arrays.fill(b, off, off + count, (byte) 0);
+            padding -= count;
+            return count;
+        }
+        return -1;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        long skippedPadding = Math.max(0, Math.min(n - count, padding));
+        padding -= skippedPadding;
+        return count + skippedPadding;
+    }
+
+    @Override
+    public int read(@NotNull ByteBuffer dst) {
+        if (buffer.hasRemaining()) {
+            int count = Math.min(dst.remaining(), buffer.remaining());
+            dst.put(buffer.slice().limit(count));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+        if (padding > 0) {
+            int count = (int) Math.min(dst.remaining(), padding);
+            for (int i = 0; i < count; i++) {
+                dst.put((byte) 0);
+            }
+            padding -= count;
+            return count;
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, buffer.remaining() + padding);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+}
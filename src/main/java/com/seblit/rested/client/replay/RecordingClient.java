@@ -0,0 +1,289 @@
+package com.seblit.rested.client.replay;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the requests of a delegate {@link HTTPClient} and their responses into a log file, so they can be served by a {@link ReplayClient} later.<br>
+ * Each exchange is appended as one length-prefixed binary record once its response body was read or closed. The record contains the request, the response,
+ * the start time and the latency until the response was received. Request bodies are stored if they are available as bytes, only the size of streamed bodies is recorded.<br>
+ * Response bodies are stored up to the recording limit, longer ones are truncated. Closing an unfinished body doesn't read its remainder,
+ * it is recorded with the bytes read so far and its Content-Length, if known. The size of truncated bodies is recorded, so replays keep it.<br>
+ * The file is created if it doesn't exist, records are appended to an existing log. Should be closed when no longer needed
+ * */
+public class RecordingClient implements AsyncHTTPClient, Closeable {
+
+    /**
+     * The amount of response body bytes stored per exchange, unless configured otherwise
+     * */
+    public static final int DEFAULT_MAX_RECORDED_BODY = 1024 * 1024;
+
+    private final HTTPClient delegate;
+    private final int maxRecordedBody;
+    private final FileChannel channel;
+    private final LongAdder recordedExchanges = new LongAdder();
+
+    /**
+     * Creates a new instance that records into the file and stores up to {@link #DEFAULT_MAX_RECORDED_BODY} bytes of each response body
+     * @param delegate The client that performs the requests
+     * @param file The log file. Records are appended if it already exists
+     * @throws IOException if the file can't be opened or isn't a log of this format
+     * */
+    public RecordingClient(@NotNull HTTPClient delegate, @NotNull Path file) throws IOException {
+        this(delegate, file, DEFAULT_MAX_RECORDED_BODY);
+    }
+
+    /**
+     * Creates a new instance that records into the file
+     * @param delegate The client that performs the requests
+     * @param file The log file. Records are appended if it already exists
+     * @param maxRecordedBody The amount of bytes stored of each response body, the rest is only counted. 0 to record only the sizes
+     * @throws IOException if the file can't be opened or isn't a log of this format
+     * @throws IllegalArgumentException if maxRecordedBody is negative
+     * */
+    public RecordingClient(@NotNull HTTPClient delegate, @NotNull Path file, int maxRecordedBody) throws IOException {
+        if (delegate == null || file == null) {
+            throw new IllegalArgumentException("delegate and file must not be null");
+        }
+        if (maxRecordedBody < 0) {
+            throw new IllegalArgumentException("maxRecordedBody must not be negative");
+        }
+        this.delegate = delegate;
+        this.maxRecordedBody = maxRecordedBody;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            initFile(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws Exception any that may occur during the request of the delegate
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        Response response = delegate.request(request, method, params);
+        return record(request, response, startedAt, System.nanoTime() - start);
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * Delegates that don't implement {@link AsyncHTTPClient} perform the request on the calling thread
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        if (!(delegate instanceof AsyncHTTPClient)) {
+            try {
+                return CompletableFuture.completedFuture(request(request, method, params));
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        return ((AsyncHTTPClient) delegate).requestAsync(request, method, params)
+                .thenApply(response -> record(request, response, startedAt, System.nanoTime() - start));
+    }
+
+    /**
+     * @return the amount of exchanges written to the log
+     * */
+    public long getRecordedExchanges() {
+        return recordedExchanges.sum();
+    }
+
+    /**
+     * Closes the log file. Exchanges whose body is read afterward are not recorded anymore. The delegate is not closed
+     * @throws IOException if the file can't be closed
+     * */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void initFile(Path file) throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(ReplayLog.FILE_HEADER_SIZE).putInt(ReplayLog.MAGIC).putInt(ReplayLog.VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(ReplayLog.FILE_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // read the complete header
+        }
+        header.flip();
+        if (header.remaining() < ReplayLog.FILE_HEADER_SIZE || header.getInt() != ReplayLog.MAGIC || header.getInt() != ReplayLog.VERSION) {
+            throw new IOException("Not a replay log: " + file);
+        }
+    }
+
+    private Response record(Request request, Response response, long startedAt, long latency) {
+        InputStream body = response.getBodyStream();
+        if (body == null) {
+            write(request, response, startedAt, latency, null, -1);
+            return response;
+        }
+        return new Response.Builder()
+                .setStatusCode(response.getStatusCode())
+                .setMessage(response.getMessage())
+                .setHeaders(response.getHeaderView())
+                .setBodyStream(new RecordingInputStream(body, request, response, startedAt, latency))
+                .build();
+    }
+
+    private void write(Request request, Response response, long startedAt, long latency, ByteArrayOutputStream responseBody, long responseSize) {
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256 + (responseBody != null ? responseBody.size() : 0));
+            DataOutputStream output = new DataOutputStream(record);
+            output.writeInt(0);
+            output.writeLong(startedAt);
+            output.writeLong(latency);
+            ReplayLog.writeString(output, request.getMethod().name());
+            ReplayLog.writeString(output, request.getPath());
+            ReplayLog.writeString(output, request.getEncodedQuery());
+            ReplayLog.writeHeaders(output, request);
+            byte[] requestBody = request.getBody();
+            StreamedRequestBody streamedBody = requestBody == null ? request.getStreamedBody() : null;
+            if (requestBody != null) {
+                output.writeLong(requestBody.length);
+                output.writeInt(requestBody.length);
+                output.write(requestBody);
+            } else {
+                output.writeLong(streamedBody != null ? streamedBody.getContentLength() : -1);
+                output.writeInt(-1);
+            }
+            output.writeInt(response.getStatusCode());
+            ReplayLog.writeString(output, response.getMessage());
+            ReplayLog.writeHeaders(output, response);
+            output.writeLong(responseSize);
+            if (responseBody != null) {
+                output.writeInt(responseBody.size());
+                responseBody.writeTo(output);
+            } else {
+                output.writeInt(-1);
+            }
+            output.flush();
+            ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+            buffer.putInt(0, buffer.capacity() - Integer.BYTES);
+            synchronized (channel) {
+                if (!channel.isOpen()) {
+                    return;
+                }
+                long position = channel.size();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+            recordedExchanges.increment();
+        } catch (IOException ignored) {
+            // recording must not fail the exchange
+        }
+    }
+
+    /**
+     * Copies the body up to the recording limit while it is read and writes the record once the body is complete or closed
+     * */
+    private final class RecordingInputStream extends FilterInputStream {
+
+        private final Request request;
+        private final Response response;
+        private final long startedAt;
+        private final long latency;
+        private final ByteArrayOutputStream copy;
+        private long size;
+        private boolean recorded;
+
+        private RecordingInputStream(InputStream in, Request request, Response response, long startedAt, long latency) {
+            super(in);
+            this.request = request;
+            this.response = response;
+            this.startedAt = startedAt;
+            this.latency = latency;
+            long contentLength = response.getContentLength();
+            copy = new ByteArrayOutputStream((int) Math.min(maxRecordedBody, contentLength >= 0 ? contentLength : 8192));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = in.read();
+            if (value >= 0) {
+                if (copy.size() < maxRecordedBody) {
+                    copy.write(value);
+                }
+                size++;
+            } else {
+                finish(size);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte @NotNull [] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0) {
+                copy.write(b, off, Math.min(count, maxRecordedBody - copy.size()));
+                size += count;
+            } else if (count < 0) {
+                finish(size);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            int count = read(skipped, 0, skipped.length);
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish(Math.max(size, response.getContentLength()));
+            } finally {
+                super.close();
+            }
+        }
+
+        private void finish(long bodySize) {
+            if (!recorded) {
+                recorded = true;
+                write(request, response, startedAt, latency, copy, bodySize);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.seblit.rested.client.replay;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the exchanges recorded by a {@link RecordingClient} without any network, for example to run load tests against realistic payloads offline.<br>
+ * A request is answered with a recorded response of a request with the same method, path and query. Requests without a path match recordings without a path.
+ * If there are multiple, they are served in the recorded order and start over after the last one. Requests without a recording are answered with 404.<br>
+ * The log is memory-mapped when the client is created. Response bodies are read directly from the mapped file, only the headers are parsed upfront.
+ * Bodies that were recorded truncated are served with their recorded size, the part that wasn't stored is filled with zeros.
+ * Responses are delayed by their recorded latency, multiplied by the latency scale. Asynchronous requests are delayed without blocking a thread.<br>
+ * Instances are created using the {@link Builder}. See {@link HTTPClient} for further information
+ * */
+public class ReplayClient implements AsyncHTTPClient, Closeable {
+
+    private static final Response NOT_FOUND = new Response.Builder().setStatusCode(404).build();
+
+    private final FileChannel channel;
+    private final Map<String, Recording> recordings;
+    private final double latencyScale;
+    private final int recordCount;
+    private final LongAdder replayedRequests = new LongAdder();
+    private final LongAdder unmatchedRequests = new LongAdder();
+
+    private ReplayClient(Builder builder) throws IOException {
+        latencyScale = builder.latencyScale;
+        channel = FileChannel.open(builder.file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Replay logs larger than 2 GiB are not supported: " + builder.file);
+            }
+            MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < ReplayLog.FILE_HEADER_SIZE || log.getInt() != ReplayLog.MAGIC || log.getInt() != ReplayLog.VERSION) {
+                throw new IOException("Not a replay log: " + builder.file);
+            }
+            Map<String, List<RecordedResponse>> index = new HashMap<>();
+            int count = 0;
+            while (log.remaining() >= Integer.BYTES) {
+                int length = log.getInt();
+                if (length < 0 || length > log.remaining()) {
+                    // the last record is incomplete if recording was interrupted
+                    break;
+                }
+                ByteBuffer record = ReplayLog.slice(log, length);
+                try {
+                    readRecord(record, index);
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Corrupt record " + count + " in replay log " + builder.file, e);
+                }
+                count++;
+            }
+            recordCount = count;
+            recordings = new HashMap<>(index.size() * 2);
+            index.forEach((key, responses) -> recordings.put(key, new Recording(responses.toArray(new RecordedResponse[0]))));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * Blocks for the scaled latency of the recording
+     * @throws InterruptedException if the thread is interrupted while waiting for the latency
+     * */
+    @Override
+    public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
+        RecordedResponse recorded = select(request);
+        if (recorded == null) {
+            return NOT_FOUND;
+        }
+        long delay = scale(recorded.latencyNanos);
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+        return recorded.createResponse();
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The future is completed after the scaled latency of the recording
+     * */
+    @Override
+    public @NotNull CompletableFuture<Response> requestAsync(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) {
+        RecordedResponse recorded = select(request);
+        if (recorded == null) {
+            return CompletableFuture.completedFuture(NOT_FOUND);
+        }
+        long delay = scale(recorded.latencyNanos);
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(recorded.createResponse());
+        }
+        return CompletableFuture.supplyAsync(recorded::createResponse, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return the amount of exchanges in the log
+     * */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the amount of requests that were answered with a recorded response
+     * */
+    public long getReplayedRequests() {
+        return replayedRequests.sum();
+    }
+
+    /**
+     * @return the amount of requests without a recording, which were answered with 404
+     * */
+    public long getUnmatchedRequests() {
+        return unmatchedRequests.sum();
+    }
+
+    /**
+     * Closes the log file. The mapping stays valid for responses that are still read
+     * @throws IOException if the file can't be closed
+     * */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private RecordedResponse select(Request request) {
+        Recording recording = recordings.get(key(request.getMethod().name(), request.getPath(), request.getEncodedQuery()));
+        if (recording == null) {
+            unmatchedRequests.increment();
+            return null;
+        }
+        replayedRequests.increment();
+        return recording.next();
+    }
+
+    private long scale(long latencyNanos) {
+        return (long) (latencyNanos * latencyScale);
+    }
+
+    private static void readRecord(ByteBuffer record, Map<String, List<RecordedResponse>> index) {
+        record.getLong();
+        long latency = record.getLong();
+        String key = key(ReplayLog.readString(record), ReplayLog.readString(record), ReplayLog.readString(record));
+        ReplayLog.readHeaders(record);
+        record.getLong();
+        int requestBodyLength = record.getInt();
+        if (requestBodyLength > 0) {
+            record.position(record.position() + requestBodyLength);
+        }
+        int statusCode = record.getInt();
+        String message = ReplayLog.readString(record);
+        Headers headers = ReplayLog.readHeaders(record);
+        long bodySize = record.getLong();
+        int bodyLength = record.getInt();
+        ByteBuffer body = bodyLength >= 0 ? ReplayLog.slice(record, bodyLength) : null;
+        index.computeIfAbsent(key, ignored -> new ArrayList<>()).add(new RecordedResponse(latency, statusCode, message, headers, body, bodySize));
+    }
+
+    private static String key(String method, String path, String query) {
+        if (path == null) {
+            path = "";
+        }
+        StringBuilder key = new StringBuilder(method.length() + path.length() + (query != null ? query.length() + 2 : 1))
+                .append(method).append(' ').append(path);
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    /**
+     * The recorded responses of one request, served in turn
+     * */
+    private static final class Recording {
+
+        private final RecordedResponse[] responses;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Recording(RecordedResponse[] responses) {
+            this.responses = responses;
+        }
+
+        private RecordedResponse next() {
+            return responses.length == 1 ? responses[0] : responses[Math.floorMod(next.getAndIncrement(), responses.length)];
+        }
+    }
+
+    private static final class RecordedResponse {
+
+        private final long latencyNanos;
+        private final int statusCode;
+        private final String message;
+        private final Headers headers;
+        private final ByteBuffer body;
+        private final long bodySize;
+
+        private RecordedResponse(long latencyNanos, int statusCode, String message, Headers headers, ByteBuffer body, long bodySize) {
+            this.latencyNanos = latencyNanos;
+            this.statusCode = statusCode;
+            this.message = message;
+            this.headers = headers;
+            this.body = body;
+            this.bodySize = bodySize;
+        }
+
+        private Response createResponse() {
+            return new Response.Builder()
+                    .setStatusCode(statusCode)
+                    .setMessage(message)
+                    .setHeaders(headers)
+                    .setBodyStream(body != null ? new ByteBufferInputStream(body.duplicate(), bodySize) : null)
+                    .build();
+        }
+    }
+
+    /**
+     * Creates and configures {@link ReplayClient} instances
+     * */
+    public static class Builder {
+
+        private final Path file;
+        private double latencyScale = 1;
+
+        /**
+         * Creates a new builder for a client that serves the exchanges of the log
+         * @param file A log written by a {@link RecordingClient}
+         * */
+        public Builder(@NotNull Path file) {
+            if (file == null) {
+                throw new IllegalArgumentException("file must not be null");
+            }
+            this.file = file;
+        }
+
+        /**
+         * Default: 1, the recorded latencies
+         * @param latencyScale The factor applied to the recorded latencies. 0 to respond without delay
+         * @return this instance for method chaining
+         * */
+        @NotNull
+        public Builder setLatencyScale(double latencyScale) {
+            if (latencyScale < 0 || Double.isNaN(latencyScale) || Double.isInfinite(latencyScale)) {
+                throw new IllegalArgumentException("latencyScale must be a finite non-negative number");
+            }
+            this.latencyScale = latencyScale;
+            return this;
+        }
+
+        /**
+         * @return a new {@link ReplayClient} serving the log
+         * @throws UncheckedIOException if the log can't be read or isn't a log of this format
+         * */
+        @NotNull
+        public ReplayClient build() {
+            try {
+                return new ReplayClient(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.seblit.rested.client.replay;
+
+import com.seblit.rested.client.HeaderHolder;
+import com.seblit.rested.client.Headers;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The format of the log written by {@link RecordingClient} and read by {@link ReplayClient}.<br>
+ * The file starts with the magic number and the format version as ints, followed by the records.
+ * Each record is prefixed by its length as int and contains, in this order:
+ * <ul>
+ *     <li>long: start time in epoch milliseconds</li>
+ *     <li>long: latency in nanoseconds until the response was received</li>
+ *     <li>string: request method, string: path, string: encoded query</li>
+ *     <li>headers: request headers</li>
+ *     <li>long: request body size, -1 if none. int: length of the stored request body, -1 if not stored, followed by its bytes</li>
+ *     <li>int: status code, string: message</li>
+ *     <li>headers: response headers</li>
+ *     <li>long: response body size, -1 if none. int: length of the stored response body, -1 if none, followed by its bytes.
+ *     Bodies that exceeded the recording limit or were closed early are stored truncated</li>
+ * </ul>
+ * Strings are stored as int length, -1 for null, followed by their UTF-8 bytes. Headers are stored as int count followed by name and value strings.
+ * All numbers are big-endian
+ */
+final class ReplayLog {
+
+    static final int MAGIC = 0x52535444;
+    static final int VERSION = 2;
+    static final int FILE_HEADER_SIZE = 8;
+
+    private ReplayLog() {
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static void writeHeaders(DataOutputStream output, HeaderHolder holder) throws IOException {
+        String[] names = holder.getHeaders();
+        int count = 0;
+        for (String name : names) {
+            count += holder.getHeaderValues(name).length;
+        }
+        output.writeInt(count);
+        for (String name : names) {
+            for (String value : holder.getHeaderValues(name)) {
+                writeString(output, name);
+                writeString(output, value);
+            }
+        }
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Headers readHeaders(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Headers headers = new Headers();
+        for (int i = 0; i < count; i++) {
+            headers.add(readString(buffer), readString(buffer));
+        }
+        return headers.snapshot();
+    }
+
+    /**
+     * @return a buffer over the next length bytes, which are skipped in the source buffer
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+}
@@ -1,8 +1,12 @@
 package com.seblit.rested.client.url;
 
+import com.seblit.rested.client.DrainingInputStream;
 import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.PercentEncoder;
 import com.seblit.rested.client.Request;
 import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.StreamedRequestBody;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -12,23 +16,28 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.net.*;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Uses a {@link HttpURLConnection} to perform its requests.<br>
+ * {@link HttpURLConnection} only keeps a connection alive for reuse once its response body was read completely.
+ * Closing a response body therefore drains small remaining bodies, and disconnects if the remainder is larger than {@link #setMaxDrainBytes(long)}.<br>
  * See {@link HTTPClient} for further information
  * */
 public class HttpUrlClient implements HTTPClient {
 
-    private static final String QUERY_PARAM_DELIMITER = "&";
-    private static final char QUERY_KEY_VALUE_DELIMITER = '=';
     private static final String PROTOCOL = "http";
+    private static final char QUERY_SEPARATOR = '?';
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final long DEFAULT_MAX_DRAIN_BYTES = 64 * 1024;
     private final String host;
     private final int port;
+    private final AtomicLong releasedConnections = new AtomicLong();
+    private final AtomicLong disconnectedConnections = new AtomicLong();
+    private boolean streamingModeEnabled = true;
+    private long maxDrainBytes = DEFAULT_MAX_DRAIN_BYTES;
 
     /**
      * Creates a new instance with port 80 and the provided host
@@ -63,23 +72,135 @@ public class HttpUrlClient implements HTTPClient {
         return port;
     }
 
+    /**
+     * Enables or disables streaming of request bodies. When enabled, bodies with a known length are sent using
+     * {@link HttpURLConnection#setFixedLengthStreamingMode(long)} and bodies with unknown length using {@link HttpURLConnection#setChunkedStreamingMode(int)}.
+     * When disabled, the {@link HttpURLConnection} buffers the entire body before sending it.<br>
+     * Note that streamed requests can't be resent automatically by {@link HttpURLConnection} for redirects or authentication.<br>
+     * Default: enabled
+     * @param streamingModeEnabled true to stream request bodies, false to have them buffered
+     * */
+    public void setStreamingModeEnabled(boolean streamingModeEnabled) {
+        this.streamingModeEnabled = streamingModeEnabled;
+    }
+
+    /**
+     * @return true if request bodies are streamed, false if they are buffered by the {@link HttpURLConnection}
+     * */
+    public boolean isStreamingModeEnabled() {
+        return streamingModeEnabled;
+    }
+
+    /**
+     * Sets the maximum amount of unread response body bytes that are read and discarded when the body stream is closed,
+     * so the connection can be reused. Connections with larger remaining bodies are disconnected instead.<br>
+     * Default: 64 KiB
+     * @param maxDrainBytes The maximum amount of bytes to drain. 0 to disconnect whenever a body isn't read completely
+     * @throws IllegalArgumentException if maxDrainBytes is negative
+     * */
+    public void setMaxDrainBytes(long maxDrainBytes) {
+        if (maxDrainBytes < 0) {
+            throw new IllegalArgumentException("maxDrainBytes must not be negative");
+        }
+        this.maxDrainBytes = maxDrainBytes;
+    }
+
+    /**
+     * @return the maximum amount of unread response body bytes that are drained when the body stream is closed
+     * */
+    public long getMaxDrainBytes() {
+        return maxDrainBytes;
+    }
+
+    /**
+     * @return the amount of responses whose body was read completely when closed, which leaves their connection for reuse
+     * */
+    public long getReleasedConnections() {
+        return releasedConnections.get();
+    }
+
+    /**
+     * @return the amount of responses whose connection was disconnected because their remaining body exceeded the drain limit.
+     * Each of them requires a new connection for a later request
+     * */
+    public long getDisconnectedConnections() {
+        return disconnectedConnections.get();
+    }
+
     /**
      * {@inheritDoc}
      * @throws Exception any that may occur during the request
      * */
     @Override
     public @NotNull Response request(@NotNull Request request, @NotNull Method method, @Nullable Object[] params) throws Exception {
-        String encodedQuery = buildQuery(request);
-        boolean hasBody = request.getBody() != null;
+        return execute(request);
+    }
+
+    /**
+     * Performs the request concurrently on the provided amount of threads, so that many connections are opened ahead of time.
+     * Their response bodies are read completely, which leaves the connections alive for reuse by later requests.<br>
+     * {@link HttpURLConnection} only keeps a limited amount of idle connections per host, 5 unless configured by the system property http.maxConnections
+     * @param request A request that is safe to repeat, like a health check
+     * @param connections The amount of concurrent requests
+     * @return the amount of requests that were answered with a 2xx or 3xx status
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the requests
+     * */
+    public int warmUp(@NotNull Request request, int connections) throws InterruptedException {
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[Math.max(0, connections)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    Response response = execute(request);
+                    try (InputStream body = response.getBodyStream()) {
+                        if (body != null) {
+                            body.transferTo(OutputStream.nullOutputStream());
+                        }
+                    }
+                    if (response.getStatusCode() < 400) {
+                        succeeded.incrementAndGet();
+                    }
+                } catch (Exception ignored) {
+                }
+            }, "HttpUrlClient-warm-up-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return succeeded.get();
+    }
+
+    private Response execute(Request request) throws Exception {
+        String encodedQuery = request.getEncodedQuery();
+        byte[] body = request.getBody();
+        StreamedRequestBody streamedBody = body == null ? request.getStreamedBody() : null;
+        boolean hasBody = body != null || streamedBody != null;
         boolean mayHaveResponseBody = request.getMethod().isResponseBodySupported();
         HttpURLConnection connection = createConnection(request.getPath(), encodedQuery);
         connection.setRequestMethod(request.getMethod().name());
         connection.setDoOutput(hasBody);
         connection.setDoInput(mayHaveResponseBody);
         addHeaders(connection, request);
+        if (hasBody && streamingModeEnabled) {
+            long contentLength = body != null ? body.length : getContentLength(request, streamedBody);
+            if (contentLength >= 0) {
+                connection.setFixedLengthStreamingMode(contentLength);
+            } else {
+                connection.setChunkedStreamingMode(0);
+            }
+        }
         if (hasBody) {
             try (OutputStream output = connection.getOutputStream()) {
-                output.write(request.getBody());
+                if (streamedBody != null) {
+                    streamedBody.writeTo(output);
+                } else {
+                    output.write(body);
+                }
                 output.flush();
             }
         } else {
@@ -87,30 +208,100 @@ public class HttpUrlClient implements HTTPClient {
         }
         int statusCode = connection.getResponseCode();
         InputStream bodyStream = getResponseBodyStream(connection, statusCode, mayHaveResponseBody);
-        Map<String, List<String>> responseHeaders = new HashMap<>(connection.getHeaderFields());
-        responseHeaders.remove(null); // HttpUrlConnection uses key null for response message inside header fields
-        return new Response(statusCode, connection.getResponseMessage(), bodyStream, responseHeaders);
+        return new Response.Builder()
+                .setStatusCode(statusCode)
+                .setMessage(connection.getResponseMessage())
+                .setBodyStream(bodyStream)
+                .setHeaders(readHeaders(connection))
+                .build();
     }
 
     /**
      * Creates the {@link HttpURLConnection} for the requested path and query. The remaining configuration will take place afterward
-     * @param path The endpoint path
-     * @param query The request query. May be null if none is required
+     * @param path The endpoint path. May be null for no path
+     * @param query The encoded request query. May be null if none is required
      * @throws Exception any exceptions that may occur during the creation of the connection
      * @return the created {@link HttpURLConnection}
      * */
     @NotNull
-    protected HttpURLConnection createConnection(@NotNull String path, @Nullable String query) throws Exception {
-        return (HttpURLConnection) new URI(PROTOCOL, null, host, port, path, query, null).toURL().openConnection();
+    protected HttpURLConnection createConnection(@Nullable String path, @Nullable String query) throws Exception {
+        return (HttpURLConnection) createUrl(PROTOCOL, path, query).openConnection();
+    }
+
+    /**
+     * Creates the {@link URL} for this clients host and port. The path is percent-encoded, the query is appended as it is
+     * @param protocol The protocol of the URL
+     * @param path The endpoint path. May be null for no path
+     * @param query The encoded request query. May be null if none is required
+     * @throws MalformedURLException if the protocol is unknown
+     * @return the created {@link URL}
+     * */
+    @NotNull
+    protected URL createUrl(@NotNull String protocol, @Nullable String path, @Nullable String query) throws MalformedURLException {
+        String encodedPath = path != null ? path : "";
+        StringBuilder file = new StringBuilder(encodedPath.length() + (query != null ? query.length() + 1 : 0) + 16);
+        PercentEncoder.encodePath(encodedPath, file);
+        if (query != null) {
+            file.append(QUERY_SEPARATOR).append(query);
+        }
+        return new URL(protocol, host, port, file.toString());
+    }
+
+    private long getContentLength(Request request, StreamedRequestBody streamedBody) {
+        long contentLength = streamedBody.getContentLength();
+        if (contentLength < 0 && request.hasHeader(HEADER_CONTENT_LENGTH)) {
+            try {
+                contentLength = Long.parseLong(request.getHeaderValues(HEADER_CONTENT_LENGTH)[0].trim());
+            } catch (NumberFormatException e) {
+                contentLength = -1;
+            }
+        }
+        return contentLength;
+    }
+
+    private Headers readHeaders(HttpURLConnection connection) {
+        return Headers.lazy(new Headers.Source() {
+            @Override
+            public @Nullable String getFirst(@NotNull String name) {
+                String key;
+                // index 0 holds the status line with key null, the first null key after it marks the end
+                for (int index = 1; (key = connection.getHeaderFieldKey(index)) != null; index++) {
+                    if (key.equalsIgnoreCase(name)) {
+                        return connection.getHeaderField(index);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void load(@NotNull Headers target) {
+                String value;
+                for (int index = 0; (value = connection.getHeaderField(index)) != null; index++) {
+                    // HttpUrlConnection uses key null for the status line inside header fields
+                    target.add(connection.getHeaderFieldKey(index), value);
+                }
+            }
+        });
     }
 
     private InputStream getResponseBodyStream(HttpURLConnection connection, int statusCode, boolean mayHaveResponseBody) throws IOException {
+        InputStream bodyStream = null;
         if (statusCode / 100 != 2) {
-            return connection.getErrorStream();
+            bodyStream = connection.getErrorStream();
         } else if (mayHaveResponseBody) {
-            return connection.getInputStream();
+            bodyStream = connection.getInputStream();
         }
-        return null;
+        if (bodyStream == null) {
+            return null;
+        }
+        return new DrainingInputStream(bodyStream, connection.getContentLengthLong(), maxDrainBytes, drained -> {
+            if (drained) {
+                releasedConnections.incrementAndGet();
+            } else {
+                connection.disconnect();
+                disconnectedConnections.incrementAndGet();
+            }
+        });
     }
 
     private void addHeaders(HttpURLConnection connection, Request request) throws UnsupportedEncodingException {
@@ -121,18 +312,4 @@ public class HttpUrlClient implements HTTPClient {
         }
     }
 
-    private String buildQuery(Request request) throws UnsupportedEncodingException {
-        StringJoiner queryJoiner = new StringJoiner(QUERY_PARAM_DELIMITER);
-        String charset = StandardCharsets.UTF_8.name();
-        for (String queryParam : request.getQueryParams()) {
-            String encodedParam = URLEncoder.encode(queryParam,  charset);
-            for (String queryValue : request.getQueryParamValues(queryParam)) {
-                String encodedValue = URLEncoder.encode(queryValue, charset);
-                queryJoiner.add(encodedParam + QUERY_KEY_VALUE_DELIMITER + encodedValue);
-            }
-        }
-        return queryJoiner.length() != 0 ? queryJoiner.toString() : null;
-    }
-
-
 }
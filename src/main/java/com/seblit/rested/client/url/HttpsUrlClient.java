@@ -6,24 +6,43 @@ import com.seblit.rested.client.Response;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocketFactory;
 import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
-import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Based on {@link HttpUrlClient} but uses a {@link HttpsURLConnection} instead.<br>
+ * All connections share one {@link SSLSocketFactory}, so sessions are cached and later connections resume them with an abbreviated handshake.
+ * Unless a factory or context is configured, the default factory of {@link HttpsURLConnection} is used.
+ * The size and timeout of the client session cache, as well as the preferred cipher suites and protocols are configurable.
+ * Full and resumed handshakes are counted.<br>
  * See {@link HTTPClient} for further information
  * */
 public class HttpsUrlClient extends HttpUrlClient {
 
     private static final String PROTOCOL = "https";
+    private static final String DEFAULT_CONTEXT_PROTOCOL = "TLS";
 
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
     private HostnameVerifier hostnameVerifier;
     private SSLSocketFactory factory;
+    private SSLContext context;
+    private SSLContext ownContext;
+    private int sessionCacheSize = -1;
+    private Duration sessionTimeout;
+    private String[] cipherSuites;
+    private String[] protocols;
+    private HandshakeCompletedListener handshakeListener;
+    private volatile TlsSocketFactory socketFactory;
 
     /**
      * Creates a new instance with provided port and host
@@ -51,28 +70,181 @@ public class HttpsUrlClient extends HttpUrlClient {
     }
 
     /**
-     * Sets the {@link SSLSocketFactory} that will be used by the underlying {@link HttpsURLConnection}
-     * @param factory The factory to use. null to use default
+     * Sets the {@link SSLSocketFactory} that will be used by the underlying {@link HttpsURLConnection} instead of the factory of the {@link SSLContext}.
+     * The session cache settings don't apply to it, as its context is unknown
+     * @param factory The factory to use. null to use the factory of the context
      * */
     public void setSocketFactory(@Nullable SSLSocketFactory factory) {
         this.factory = factory;
+        socketFactory = null;
     }
 
     /**
-     * Creates a {@link HttpsURLConnection} with the currently configured {@link HostnameVerifier} and {@link SSLSocketFactory}, if set.
+     * Sets the {@link SSLContext} shared by all connections. The session cache settings are applied to its client session context
+     * @param context The context to use. null to use the {@link HttpsURLConnection#getDefaultSSLSocketFactory() default factory} of {@link HttpsURLConnection},
+     *                or a context owned by this client, initialized with the default key and trust managers, if session cache settings are configured
+     * */
+    public void setSslContext(@Nullable SSLContext context) {
+        this.context = context;
+        socketFactory = null;
+    }
+
+    /**
+     * Default: the default of the {@link SSLContext}. Without a configured context, setting it makes the client use a context of its own
+     * @param sessionCacheSize The maximum amount of cached sessions that may be resumed. 0 for no limit, -1 for the default of the context
+     * @throws IllegalArgumentException if sessionCacheSize is less than -1
+     * */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        if (sessionCacheSize < -1) {
+            throw new IllegalArgumentException("sessionCacheSize must not be less than -1");
+        }
+        this.sessionCacheSize = sessionCacheSize;
+        socketFactory = null;
+    }
+
+    /**
+     * Default: the default of the {@link SSLContext}. Without a configured context, setting it makes the client use a context of its own
+     * @param sessionTimeout The time after which cached sessions can't be resumed anymore. null for the default of the context
+     * @throws IllegalArgumentException if sessionTimeout is negative
+     * */
+    public void setSessionTimeout(@Nullable Duration sessionTimeout) {
+        if (sessionTimeout != null && sessionTimeout.isNegative()) {
+            throw new IllegalArgumentException("sessionTimeout must not be negative");
+        }
+        this.sessionTimeout = sessionTimeout;
+        socketFactory = null;
+    }
+
+    /**
+     * Sets the cipher suites offered in the handshake. Unsupported ones are skipped, the remaining ones are offered in the given order
+     * @param cipherSuites The preferred cipher suites, most preferred first. null to use the defaults
+     * @throws IllegalArgumentException if none of the cipher suites is supported
+     * */
+    public void setCipherSuites(@Nullable String... cipherSuites) {
+        if (cipherSuites != null) {
+            TlsSocketFactory.preferred(cipherSuites, getSslSocketFactory().getSupportedCipherSuites());
+        }
+        this.cipherSuites = cipherSuites != null ? cipherSuites.clone() : null;
+        socketFactory = null;
+    }
+
+    /**
+     * Sets the protocols enabled for the handshake, for example "TLSv1.3". Unsupported ones are skipped
+     * @param protocols The preferred protocols. null to use the defaults
+     * @throws IllegalArgumentException if none of the protocols is supported
+     * */
+    public void setProtocols(@Nullable String... protocols) {
+        if (protocols != null) {
+            TlsSocketFactory.preferred(protocols, getContext().getSupportedSSLParameters().getProtocols());
+        }
+        this.protocols = protocols != null ? protocols.clone() : null;
+        socketFactory = null;
+    }
+
+    /**
+     * Sets a listener that is notified after each handshake, in addition to the handshake counters
+     * @param handshakeListener The listener. null to remove it
+     * */
+    public void setHandshakeListener(@Nullable HandshakeCompletedListener handshakeListener) {
+        this.handshakeListener = handshakeListener;
+        socketFactory = null;
+    }
+
+    /**
+     * @return the amount of handshakes that negotiated a new session
+     * */
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * @return the amount of handshakes that resumed a cached session, which saves the key exchange
+     * */
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * Creates a {@link HttpsURLConnection} with the currently configured {@link HostnameVerifier}, if set, and the shared {@link SSLSocketFactory}.
      * {@inheritDoc}
      * @return the created {@link HttpsURLConnection}
      * */
     @Override
     @NotNull
-    protected HttpURLConnection createConnection(@NotNull String path, @Nullable String query) throws Exception {
-        HttpsURLConnection connection = (HttpsURLConnection) new URI(PROTOCOL, null, getHost(), getPort(), path, query, null).toURL().openConnection();
+    protected HttpURLConnection createConnection(@Nullable String path, @Nullable String query) throws Exception {
+        HttpsURLConnection connection = (HttpsURLConnection) createUrl(PROTOCOL, path, query).openConnection();
         if (hostnameVerifier != null) {
             connection.setHostnameVerifier(hostnameVerifier);
         }
+        connection.setSSLSocketFactory(getTlsSocketFactory());
+        return connection;
+    }
+
+    /**
+     * @return the shared factory, which is replaced if settings or the default factory of {@link HttpsURLConnection} changed
+     * */
+    private TlsSocketFactory getTlsSocketFactory() {
+        TlsSocketFactory current = socketFactory;
+        if (current == null || isOutdated(current)) {
+            synchronized (this) {
+                current = socketFactory;
+                if (current == null || isOutdated(current)) {
+                    SSLSocketFactory delegate = getSslSocketFactory();
+                    if (factory == null && (context != null || hasSessionSettings())) {
+                        SSLSessionContext sessionContext = getContext().getClientSessionContext();
+                        if (sessionCacheSize >= 0) {
+                            sessionContext.setSessionCacheSize(sessionCacheSize);
+                        }
+                        if (sessionTimeout != null) {
+                            sessionContext.setSessionTimeout((int) Math.min(Integer.MAX_VALUE, sessionTimeout.getSeconds()));
+                        }
+                    }
+                    current = new TlsSocketFactory(delegate, cipherSuites, protocols, handshakeListener, fullHandshakes, resumedHandshakes);
+                    socketFactory = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private boolean isOutdated(TlsSocketFactory current) {
+        return usesDefaultFactory() && !current.wraps(HttpsURLConnection.getDefaultSSLSocketFactory());
+    }
+
+    private SSLSocketFactory getSslSocketFactory() {
         if (factory != null) {
-            connection.setSSLSocketFactory(factory);
+            return factory;
         }
-        return connection;
+        if (usesDefaultFactory()) {
+            return HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+        return getContext().getSocketFactory();
+    }
+
+    private boolean usesDefaultFactory() {
+        return factory == null && context == null && !hasSessionSettings();
+    }
+
+    private boolean hasSessionSettings() {
+        return sessionCacheSize >= 0 || sessionTimeout != null;
+    }
+
+    /**
+     * @return the configured context, or the context owned by this client if there is none
+     * */
+    private synchronized SSLContext getContext() {
+        if (context != null) {
+            return context;
+        }
+        if (ownContext == null) {
+            try {
+                SSLContext created = SSLContext.getInstance(DEFAULT_CONTEXT_PROTOCOL);
+                created.init(null, null, null);
+                ownContext = created;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to create the TLS context", e);
+            }
+        }
+        return ownContext;
     }
 }
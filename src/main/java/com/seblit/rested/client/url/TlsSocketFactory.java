@@ -0,0 +1,135 @@
+package com.seblit.rested.client.url;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the preferred cipher suites and protocols of a {@link HttpsUrlClient} to every socket of its connections
+ * and counts their handshakes.<br>
+ * A handshake resumed a session if the session was created before the socket, as abbreviated handshakes keep the creation time of the resumed session.
+ * The same instance is used for all connections, as {@link javax.net.ssl.HttpsURLConnection HttpsURLConnection} only reuses kept-alive connections
+ * that were created by the same factory
+ */
+final class TlsSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+    private final String[] cipherSuites;
+    private final String[] protocols;
+    private final HandshakeCompletedListener listener;
+    private final AtomicLong fullHandshakes;
+    private final AtomicLong resumedHandshakes;
+
+    TlsSocketFactory(SSLSocketFactory delegate, String[] cipherSuites, String[] protocols, HandshakeCompletedListener listener,
+                     AtomicLong fullHandshakes, AtomicLong resumedHandshakes) {
+        this.delegate = delegate;
+        this.cipherSuites = cipherSuites;
+        this.protocols = protocols;
+        this.listener = listener;
+        this.fullHandshakes = fullHandshakes;
+        this.resumedHandshakes = resumedHandshakes;
+    }
+
+    /**
+     * @return true if sockets are created by the provided factory
+     */
+    boolean wraps(SSLSocketFactory factory) {
+        return delegate == factory;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return cipherSuites != null ? preferred(cipherSuites, delegate.getSupportedCipherSuites()) : delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return configure(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket configure(Socket socket) {
+        if (!(socket instanceof SSLSocket)) {
+            return socket;
+        }
+        SSLSocket sslSocket = (SSLSocket) socket;
+        if (cipherSuites != null) {
+            sslSocket.setEnabledCipherSuites(preferred(cipherSuites, sslSocket.getSupportedCipherSuites()));
+        }
+        if (protocols != null) {
+            sslSocket.setEnabledProtocols(preferred(protocols, sslSocket.getSupportedProtocols()));
+        }
+        long createdAt = System.currentTimeMillis();
+        sslSocket.addHandshakeCompletedListener(event -> onHandshakeCompleted(event, createdAt));
+        return sslSocket;
+    }
+
+    private void onHandshakeCompleted(@NotNull HandshakeCompletedEvent event, long socketCreatedAt) {
+        if (event.getSession().getCreationTime() < socketCreatedAt) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+        if (listener != null) {
+            listener.handshakeCompleted(event);
+        }
+    }
+
+    /**
+     * @return the preferred values that are supported, in the order of preference
+     * @throws IllegalArgumentException if none of them is supported
+     */
+    static String[] preferred(String[] preferred, String[] supported) {
+        Set<String> available = Set.of(supported);
+        List<String> result = new ArrayList<>(preferred.length);
+        for (String value : preferred) {
+            if (available.contains(value)) {
+                result.add(value);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("None of " + Arrays.toString(preferred) + " is supported");
+        }
+        return result.toArray(new String[0]);
+    }
+}
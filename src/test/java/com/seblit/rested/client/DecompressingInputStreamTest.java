@@ -0,0 +1,73 @@
+package com.seblit.rested.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class DecompressingInputStreamTest {
+
+    private static final byte[] DATA = "{\"values\":[1,2,3,4,5,6,7,8,9,10]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder decoded = new LongAdder();
+
+    private static byte[] deflate(boolean nowrap) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(output, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+            deflater.write(DATA);
+        }
+        return output.toByteArray();
+    }
+
+    private byte[] decode(byte[] body, boolean gzip) throws IOException {
+        try (InputStream stream = new DecompressingInputStream(new ByteArrayInputStream(body), gzip, encoded, decoded)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testRead_gzip() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(DATA);
+        }
+        assertArrayEquals(DATA, decode(output.toByteArray(), true));
+        assertEquals(output.size(), encoded.sum());
+        assertEquals(DATA.length, decoded.sum());
+    }
+
+    @Test
+    public void testRead_deflate() throws IOException {
+        assertArrayEquals(DATA, decode(deflate(false), false));
+    }
+
+    @Test
+    public void testRead_rawDeflate() throws IOException {
+        assertArrayEquals(DATA, decode(deflate(true), false));
+    }
+
+    @Test
+    public void testRead_empty() throws IOException {
+        assertArrayEquals(new byte[0], decode(new byte[0], true));
+        assertEquals(0, decoded.sum());
+    }
+
+    @Test
+    public void testIsGzip() {
+        assertEquals(Boolean.TRUE, DecompressingInputStream.isGzip("gzip"));
+        assertEquals(Boolean.TRUE, DecompressingInputStream.isGzip(" X-GZIP"));
+        assertEquals(Boolean.FALSE, DecompressingInputStream.isGzip("deflate"));
+        assertNull(DecompressingInputStream.isGzip("br"));
+    }
+
+}
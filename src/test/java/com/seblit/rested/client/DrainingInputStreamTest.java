@@ -0,0 +1,112 @@
+package com.seblit.rested.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DrainingInputStreamTest {
+
+    private final List<Boolean> results = new ArrayList<>();
+
+    @Test
+    public void testClose_complete() throws IOException {
+        DrainingInputStream stream = new DrainingInputStream(new ByteArrayInputStream(new byte[10]), -1, 0, results::add);
+        assertEquals(10, stream.readAllBytes().length);
+        stream.close();
+        stream.close();
+        assertEquals(List.of(true), results);
+    }
+
+    @Test
+    public void testClose_drained() throws IOException {
+        ByteArrayInputStream source = new ByteArrayInputStream(new byte[100]);
+        DrainingInputStream stream = new DrainingInputStream(source, -1, 100, results::add);
+        assertEquals(10, stream.read(new byte[10]));
+        stream.close();
+        assertEquals(0, source.available());
+        assertEquals(List.of(true), results);
+    }
+
+    @Test
+    public void testClose_knownLengthExceeded() throws IOException {
+        ByteArrayInputStream source = new ByteArrayInputStream(new byte[100]);
+        DrainingInputStream stream = new DrainingInputStream(source, 100, 50, results::add);
+        assertEquals(10, stream.read(new byte[10]));
+        stream.close();
+        assertEquals(90, source.available());
+        assertEquals(List.of(false), results);
+    }
+
+    @Test
+    public void testClose_knownLengthRead() throws IOException {
+        DrainingInputStream stream = new DrainingInputStream(new ByteArrayInputStream(new byte[100]), 100, 0, results::add);
+        assertEquals(100, stream.read(new byte[100]));
+        stream.close();
+        assertEquals(List.of(true), results);
+    }
+
+    @Test
+    public void testClose_unknownLengthExceeded() throws IOException {
+        ByteArrayInputStream source = new ByteArrayInputStream(new byte[100]);
+        DrainingInputStream stream = new DrainingInputStream(source, -1, 50, results::add);
+        stream.close();
+        assertEquals(49, source.available());
+        assertEquals(List.of(false), results);
+    }
+
+    @Test
+    public void testClose_failure() throws IOException {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("failure");
+            }
+        };
+        new DrainingInputStream(failing, -1, 50, results::add).close();
+        assertEquals(List.of(false), results);
+    }
+
+    @Test
+    public void testClose_listenerBeforeSource() throws IOException {
+        List<String> events = new ArrayList<>();
+        InputStream source = new ByteArrayInputStream(new byte[100]) {
+            @Override
+            public void close() {
+                events.add("source");
+            }
+        };
+        new DrainingInputStream(source, 100, 0, drained -> events.add("listener")).close();
+        assertEquals(List.of("listener", "source"), events);
+    }
+
+    @Test
+    public void testClose_failingListener() {
+        List<String> events = new ArrayList<>();
+        InputStream source = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() {
+                events.add("source");
+            }
+        };
+        try {
+            new DrainingInputStream(source, -1, 0, drained -> {
+                throw new IllegalStateException();
+            }).close();
+            fail("Expected the listener failure");
+        } catch (IllegalStateException | IOException expected) {
+        }
+        assertEquals(List.of("source"), events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInit_negativeLimit() {
+        new DrainingInputStream(new ByteArrayInputStream(new byte[0]), -1, -1, null);
+    }
+
+}
@@ -57,4 +57,15 @@ public class HeaderHolderTest {
         assertFalse(holder.hasHeader("header3"));
     }
 
+    @Test
+    public void testCaseInsensitive() {
+        Map<String, List<String>> testHeaders = new HashMap<>();
+        testHeaders.computeIfAbsent("Content-Type", s -> new ArrayList<>()).add("value");
+        HeaderHolder holder = new HeaderHolder(testHeaders);
+
+        assertTrue(holder.hasHeader("content-type"));
+        assertArrayEquals(new String[]{"value"}, holder.getHeaderValues("CONTENT-TYPE"));
+        assertArrayEquals(new String[]{"Content-Type"}, holder.getHeaders());
+    }
+
 }
@@ -0,0 +1,175 @@
+package com.seblit.rested.client;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class HeadersTest {
+
+    @Test
+    public void testAdd() {
+        Headers headers = new Headers();
+        assertSame(headers, headers.add("header", "value1"));
+        headers.add("Header", "value2").add(null, "value3").add("header", null);
+
+        assertEquals(2, headers.size());
+        assertArrayEquals(new String[]{"value1", "value2"}, headers.getValues("HEADER"));
+        assertEquals("value1", headers.getFirst("header"));
+        assertArrayEquals(new String[]{"header"}, headers.getNames());
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        Headers headers = new Headers().add("Content-Type", "application/json");
+        assertTrue(headers.contains("content-type"));
+        assertTrue(headers.contains("CONTENT-TYPE"));
+        assertFalse(headers.contains("Content-Typ"));
+        assertFalse(headers.contains(null));
+        assertNull(headers.getValues("Content-Length"));
+        assertNull(headers.getFirst("Content-Length"));
+    }
+
+    @Test
+    public void testGrow() {
+        Headers headers = new Headers();
+        for (int i = 0; i < 100; i++) {
+            headers.add("header" + i, "value" + i);
+        }
+        assertEquals(100, headers.size());
+        assertEquals(100, headers.getNames().length);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, headers.getFirst("HEADER" + i));
+            assertEquals("header" + i, headers.getName(i));
+            assertEquals("value" + i, headers.getValue(i));
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        Headers headers = new Headers().add("header1", "value1").add("header2", "value2").add("HEADER1", "value3");
+        assertSame(headers, headers.remove("Header1"));
+        assertFalse(headers.contains("header1"));
+        assertArrayEquals(new String[]{"value2"}, headers.getValues("header2"));
+        assertEquals(1, headers.size());
+    }
+
+    @Test
+    public void testRemoveValue() {
+        Headers headers = new Headers().add("header", "value1").add("header", "value2").add("header", "value1");
+        assertSame(headers, headers.remove("HEADER", "value1"));
+        assertArrayEquals(new String[]{"value2", "value1"}, headers.getValues("header"));
+        headers.remove("header", "unknown");
+        assertEquals(2, headers.size());
+    }
+
+    @Test
+    public void testClear() {
+        Headers headers = new Headers().add("header", "value");
+        Headers snapshot = headers.snapshot();
+        assertSame(headers, headers.clear());
+        assertEquals(0, headers.size());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void testSnapshot() {
+        Headers headers = new Headers().add("header1", "value1");
+        Headers snapshot = headers.snapshot();
+        headers.add("header2", "value2");
+        headers.remove("header1");
+
+        assertTrue(snapshot.isReadOnly());
+        assertFalse(headers.isReadOnly());
+        assertSame(snapshot, snapshot.snapshot());
+        assertEquals(1, snapshot.size());
+        assertArrayEquals(new String[]{"value1"}, snapshot.getValues("header1"));
+        assertFalse(snapshot.contains("header2"));
+        assertFalse(headers.contains("header1"));
+        assertArrayEquals(new String[]{"value2"}, headers.getValues("header2"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshot_readOnly() {
+        new Headers().snapshot().add("header", "value");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEmpty_readOnly() {
+        Headers.EMPTY.add("header", "value");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetName_outOfBounds() {
+        new Headers().add("header", "value").getName(1);
+    }
+
+    @Test
+    public void testLazy() {
+        Headers.Source source = mock(Headers.Source.class);
+        when(source.getFirst("Content-Type")).thenReturn("application/json");
+        doAnswer(invocation -> invocation.<Headers>getArgument(0).add("Content-Type", "application/json").add("header", "value"))
+                .when(source).load(any());
+        Headers headers = Headers.lazy(source);
+
+        assertEquals("application/json", headers.getFirst("Content-Type"));
+        assertTrue(headers.contains("Content-Type"));
+        assertSame(headers, headers.snapshot());
+        verify(source, never()).load(any());
+
+        assertEquals(2, headers.size());
+        assertArrayEquals(new String[]{"value"}, headers.getValues("HEADER"));
+        assertEquals("value", headers.getFirst("header"));
+        verify(source, times(1)).load(any());
+        verify(source, times(2)).getFirst(any());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testLazy_readOnly() {
+        Headers.lazy(mock(Headers.Source.class)).add("header", "value");
+    }
+
+    @Test
+    public void testOf() {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        map.put("header1", Arrays.asList("value1", "value2"));
+        map.put("header2", Collections.singletonList("value3"));
+        map.put(null, Collections.singletonList("status"));
+        map.put("header3", null);
+        Headers headers = Headers.of(map);
+
+        assertArrayEquals(new String[]{"header1", "header2"}, headers.getNames());
+        assertArrayEquals(new String[]{"value1", "value2"}, headers.getValues("header1"));
+        assertEquals(0, Headers.of(null).size());
+    }
+
+    @Test
+    public void testCopy() {
+        Headers headers = new Headers().add("name", "value");
+        Headers copy = headers.copy();
+        copy.add("name", "copyValue");
+        headers.add("name", "otherValue");
+
+        assertFalse(copy.isReadOnly());
+        assertArrayEquals(new String[]{"value", "copyValue"}, copy.getValues("name"));
+        assertArrayEquals(new String[]{"value", "otherValue"}, headers.getValues("name"));
+    }
+
+    @Test
+    public void testCopy_snapshot() {
+        Headers snapshot = new Headers().add("name", "value").snapshot();
+        Headers copy1 = snapshot.copy().add("name", "value1");
+        Headers copy2 = snapshot.copy().add("name", "value2");
+
+        assertArrayEquals(new String[]{"value"}, snapshot.getValues("name"));
+        assertArrayEquals(new String[]{"value", "value1"}, copy1.getValues("name"));
+        assertArrayEquals(new String[]{"value", "value2"}, copy2.getValues("name"));
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.seblit.rested.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class ParamValuesTest {
+
+    @Test
+    public void testForEach_primitiveArrays() {
+        assertEquals(Arrays.asList("1", "2"), collect(new int[]{1, 2}, ""));
+        assertEquals(Arrays.asList("1", "2"), collect(new long[]{1, 2}, ""));
+        assertEquals(Arrays.asList("1", "2"), collect(new short[]{1, 2}, ""));
+        assertEquals(Arrays.asList("1", "2"), collect(new byte[]{1, 2}, ""));
+        assertEquals(Arrays.asList("1.5", "2.0"), collect(new double[]{1.5, 2}, ""));
+        assertEquals(Arrays.asList("1.5", "2.0"), collect(new float[]{1.5f, 2}, ""));
+        assertEquals(Arrays.asList("a", "b"), collect(new char[]{'a', 'b'}, ""));
+        assertEquals(Arrays.asList("true", "false"), collect(new boolean[]{true, false}, ""));
+    }
+
+    @Test
+    public void testForEach_streams() {
+        assertEquals(Arrays.asList("1", "2"), collect(LongStream.of(1, 2), ""));
+        assertEquals(Arrays.asList("1.5;2.5"), collect(DoubleStream.of(1.5, 2.5), ";"));
+    }
+
+    @Test
+    public void testForEach_joined() {
+        assertEquals(Arrays.asList("1,2,3"), collect(new int[]{1, 2, 3}, ","));
+        assertEquals(Arrays.asList("a,1,b"), collect(Arrays.asList("a", 1, null, "b"), ","));
+        assertEquals(Arrays.asList("single"), collect("single", ","));
+    }
+
+    @Test
+    public void testForEach_skipsNull() {
+        assertEquals(Arrays.asList("a", "b"), collect(new Object[]{"a", null, "b"}, ""));
+        assertTrue(collect(null, "").isEmpty());
+        assertTrue(collect(new int[0], ",").isEmpty());
+    }
+
+    private List<String> collect(Object param, String delimiter) {
+        List<String> result = new ArrayList<>();
+        ParamValues.forEach(param, delimiter, result::add);
+        return result;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.seblit.rested.client;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PercentEncoderTest {
+
+    private static final String[] VALUES = {"", "plain", "a b", "a+b&c=d", "~!$'()*,;:@/?#[]%", "äöü€", "😀", "mixed value ä😀 end"};
+
+    @Test
+    public void testEncodeQueryComponent() {
+        for (String value : VALUES) {
+            assertEquals(URLEncoder.encode(value, StandardCharsets.UTF_8), PercentEncoder.encodeQueryComponent(value, new StringBuilder()).toString());
+        }
+    }
+
+    @Test
+    public void testEncodeQueryComponent_append() {
+        StringBuilder target = new StringBuilder("prefix=");
+        assertSame(target, PercentEncoder.encodeQueryComponent("a b", target));
+        assertEquals("prefix=a+b", target.toString());
+    }
+
+    @Test
+    public void testEncodeQueryComponent_loneSurrogate() {
+        assertEquals("a%3Fb", PercentEncoder.encodeQueryComponent("a\uD83Db", new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testEncodePath() {
+        assertEquals("/a-b_c.d~e/!$&'()*+,;=:@", PercentEncoder.encodePath("/a-b_c.d~e/!$&'()*+,;=:@", new StringBuilder()).toString());
+        assertEquals("/a%20b/%25/%3F%23%5B%5D/%C3%A4%F0%9F%98%80", PercentEncoder.encodePath("/a b/%/?#[]/ä😀", new StringBuilder()).toString());
+    }
+
+}
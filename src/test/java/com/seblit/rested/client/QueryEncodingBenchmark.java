@@ -0,0 +1,73 @@
+package com.seblit.rested.client;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.StringJoiner;
+
+/**
+ * Compares the query and URL assembly of {@link QueryParams} and {@link PercentEncoder} with the previous
+ * {@link URLEncoder}, {@link StringJoiner} and {@link URI} based implementation for an endpoint with many query parameters.<br>
+ * Not executed as part of the tests. Run the main method with the test classpath to print time and allocated bytes per operation
+ */
+public class QueryEncodingBenchmark {
+
+    private static final int PARAM_COUNT = 40;
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+    private static final String HOST = "localhost";
+    private static final int PORT = 8080;
+    private static final String PATH = "/resource/search";
+
+    public static void main(String[] args) throws Exception {
+        QueryParams params = new QueryParams();
+        for (int i = 0; i < PARAM_COUNT; i++) {
+            params.add("param" + i, i % 4 == 0 ? "value with spaces " + i : "value" + i);
+        }
+        params.add("unicode", "äöü");
+        run("legacy", () -> legacyUrl(params));
+        run("encoder", () -> encoderUrl(params));
+    }
+
+    private static URL legacyUrl(QueryParams params) throws Exception {
+        StringJoiner queryJoiner = new StringJoiner("&");
+        String charset = "UTF-8";
+        for (String queryParam : params.getNames()) {
+            String encodedParam = URLEncoder.encode(queryParam, charset);
+            for (String queryValue : params.getValues(queryParam)) {
+                queryJoiner.add(encodedParam + '=' + URLEncoder.encode(queryValue, charset));
+            }
+        }
+        return new URI("http", null, HOST, PORT, PATH, queryJoiner.toString(), null).toURL();
+    }
+
+    private static URL encoderUrl(QueryParams params) throws Exception {
+        String query = params.encode();
+        StringBuilder file = new StringBuilder(PATH.length() + query.length() + 17);
+        PercentEncoder.encodePath(PATH, file).append('?').append(query);
+        return new URL("http", HOST, PORT, file.toString());
+    }
+
+    private static void run(String name, Operation operation) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int blackhole = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            blackhole += operation.run().getFile().length();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += operation.run().getFile().length();
+        }
+        long duration = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%-8s %8.1f ns/op %10d B/op (%d)%n", name, (double) duration / ITERATIONS, allocated / ITERATIONS, blackhole);
+    }
+
+    private interface Operation {
+        URL run() throws Exception;
+    }
+
+}
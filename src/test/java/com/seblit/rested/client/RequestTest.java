@@ -1,8 +1,10 @@
 package com.seblit.rested.client;
 
+import com.seblit.rested.client.media.StreamedRequestBody;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
 
 public class RequestTest {
 
@@ -33,6 +35,48 @@ public class RequestTest {
         assertArrayEquals(new String[]{paramValue}, request.getQueryParamValues(param));
     }
 
+    @Test
+    public void testBuilder_buildUnchanged() {
+        Request.Builder builder = new Request.Builder().addHeader("header", "value").addQueryParam("param", "value");
+        Request request = builder.build();
+        assertSame(request, builder.build());
+        builder.setPath("otherPath");
+        assertNotSame(request, builder.build());
+    }
+
+    @Test
+    public void testEncodedQuery() {
+        Request request = new Request.Builder()
+                .addQueryParam("param", "a b")
+                .addQueryParam("other", "ä&=")
+                .addQueryParam("param", "c")
+                .build();
+
+        assertEquals("param=a+b&other=%C3%A4%26%3D&param=c", request.getEncodedQuery());
+        assertNull(new Request.Builder().build().getEncodedQuery());
+    }
+
+    @Test
+    public void testBuilder_buildIsolated() {
+        Request.Builder builder = new Request.Builder()
+                .addHeader("header", "value1")
+                .addQueryParam("param", "value1");
+        Request request = builder.build();
+        builder.addHeader("header", "value2")
+                .addHeader("other", "value")
+                .addQueryParam("param", "value2")
+                .removeQueryParam("param", "value1");
+        Request modified = builder.build();
+        builder.removeHeader("header");
+
+        assertArrayEquals(new String[]{"value1"}, request.getHeaderValues("header"));
+        assertFalse(request.hasHeader("other"));
+        assertArrayEquals(new String[]{"value1"}, request.getQueryParamValues("param"));
+        assertArrayEquals(new String[]{"value1", "value2"}, modified.getHeaderValues("header"));
+        assertArrayEquals(new String[]{"value2"}, modified.getQueryParamValues("param"));
+        assertNull(builder.getHeaderValues("header"));
+    }
+
     @Test
     public void testBuilder_method() {
         Request.Builder builder = new Request.Builder();
@@ -56,6 +100,18 @@ public class RequestTest {
         assertEquals(testBody, builder.getBody());
     }
 
+    @Test
+    public void testBuilder_streamedBody() {
+        StreamedRequestBody testBody = mock(StreamedRequestBody.class);
+        Request.Builder builder = new Request.Builder().setBody(new byte[]{1, 2, 3});
+        assertSame(builder, builder.setStreamedBody(testBody));
+        assertSame(testBody, builder.getStreamedBody());
+        assertNull(builder.getBody());
+        assertSame(testBody, builder.build().getStreamedBody());
+        builder.setBody(new byte[]{1, 2, 3});
+        assertNull(builder.getStreamedBody());
+    }
+
     @Test
     public void testBuilder_addHeader() {
         String header = "header";
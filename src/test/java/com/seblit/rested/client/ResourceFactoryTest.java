@@ -2,10 +2,15 @@ package com.seblit.rested.client;
 
 import com.seblit.rested.client.annotation.*;
 import com.seblit.rested.client.annotation.Error;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.InputStreamRequestBody;
 import com.seblit.rested.client.media.MissingRequestParserException;
 import com.seblit.rested.client.media.MissingResponseParserException;
+import com.seblit.rested.client.media.MultipartRequestBody;
 import com.seblit.rested.client.media.RequestBodyParser;
 import com.seblit.rested.client.media.ResponseBodyParser;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import com.seblit.rested.client.media.StreamedRequestBodyParser;
 
 import static org.junit.Assert.*;
 
@@ -18,8 +23,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
 
 import static org.mockito.Mockito.*;
 
@@ -52,7 +65,7 @@ public class ResourceFactoryTest {
         mockedRequestInterceptor = mock(RequestInterceptor.class);
         mockedResponseInterceptor = mock(ResponseInterceptor.class);
         response = new Response(200, "message", mock(InputStream.class), null);
-        response.headers.put("Content-Type", Collections.singletonList("application/xml; charset=UTF-16"));
+        response.setHeaders(Collections.singletonMap("Content-Type", Collections.singletonList("application/xml; charset=UTF-16")));
 
         when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(response);
         when(mockedRequestParser.parse(any(), any(), any())).thenReturn(DEFAULT_REQUEST_BODY);
@@ -193,6 +206,13 @@ public class ResourceFactoryTest {
         verify(mockedResponseParser).parse(same(String.class), any(), same(response), eq("application/xml"), eq("UTF-16"));
     }
 
+    @Test
+    public void testResponseParser_lowerCaseContentType() throws Exception {
+        response.setHeaders(Collections.singletonMap("content-type", Collections.singletonList("application/xml; charset=UTF-16")));
+        factory.createResource(TestResource.class).request(null, null, "", new Object());
+        verify(mockedResponseParser).parse(same(String.class), any(), same(response), eq("application/xml"), eq("UTF-16"));
+    }
+
     @Test(expected = MissingResponseParserException.class)
     public void testResponseParser_unregister() throws Exception {
         factory.unregisterResponseParser("*/*");
@@ -269,6 +289,112 @@ public class ResourceFactoryTest {
 
     }
 
+    @Test
+    public void testRequest_queryParamPrimitiveArray() throws Exception {
+        factory.createResource(TestResource.class).request_queryPrimitiveArray(new int[]{1, 2, 3});
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"1", "2", "3"}, request.getQueryParamValues("queryParam"));
+    }
+
+    @Test
+    public void testRequest_queryParamJoined() throws Exception {
+        factory.createResource(TestResource.class).request_queryJoined(new long[]{1L, 2L, Long.MAX_VALUE});
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"1,2," + Long.MAX_VALUE}, request.getQueryParamValues("queryParam"));
+    }
+
+    @Test
+    public void testRequest_headersJoinedStream() throws Exception {
+        factory.createResource(TestResource.class).request_headerJoinedStream(IntStream.rangeClosed(1, 3));
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"1, 2, 3"}, request.getHeaderValues("header"));
+    }
+
+    @Test
+    public void testRequest_async() throws Exception {
+        CompletableFuture<String> result = factory.createResource(TestResource.class).request_async();
+
+        assertEquals(DEFAULT_RESULT, result.get());
+        verify(mockedResponseParser).parse(eq(String.class), any(), any(), anyString(), anyString());
+        verify(mockedResponseInterceptor).intercept(any(), any(), eq(DEFAULT_RESULT), any(), any());
+    }
+
+    @Test
+    public void testRequest_asyncClient() throws Exception {
+        AsyncHTTPClient asyncClient = mock(AsyncHTTPClient.class);
+        when(asyncClient.requestAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(response));
+        factory = new ResourceFactory(asyncClient);
+        factory.registerResponseParser(mockedResponseParser, "*/*");
+
+        assertEquals(DEFAULT_RESULT, factory.createResource(TestResource.class).request_async().get());
+        verify(asyncClient).requestAsync(any(), any(), any());
+        verify(asyncClient, never()).request(any(), any(), any());
+    }
+
+    @Test
+    public void testRequest_asyncError() throws Exception {
+        RESTException error = new RESTException();
+        when(mockedResponseParser.parse(any(), any(), any(), anyString(), anyString())).thenReturn(error);
+        response = new Response(500, "message", mock(InputStream.class), null);
+        when(mockedClient.request(any(), any(), any())).thenReturn(response);
+
+        CompletableFuture<String> result = factory.createResource(TestResource.class).request_async();
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void testRequest_asyncClientFailure() throws Exception {
+        AsyncHTTPClient asyncClient = mock(AsyncHTTPClient.class);
+        IllegalStateException failure = new IllegalStateException();
+        when(asyncClient.requestAsync(any(), any(), any())).thenReturn(CompletableFuture.failedFuture(failure));
+        factory = new ResourceFactory(asyncClient);
+
+        try {
+            factory.createResource(TestResource.class).request_asyncVoid().toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void testRequest_static() throws Exception {
+        factory.createResource(StaticResource.class).request("dynamicValue", "dynamic value");
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"resourceValue", "methodValue", "dynamicValue"}, request.getHeaderValues("X-Static"));
+        assertArrayEquals(new String[]{"2"}, request.getHeaderValues("X-Api-Version"));
+        assertArrayEquals(new String[]{"resource value", "method value", "dynamic value"}, request.getQueryParamValues("static"));
+        assertEquals("static=resource+value&static=method+value&static=dynamic+value", request.getEncodedQuery());
+    }
+
+    @Test
+    public void testRequest_staticIsolated() throws Exception {
+        StaticResource resource = factory.createResource(StaticResource.class);
+        resource.request("dynamicValue", "dynamic value");
+        resource.request(null, null);
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"resourceValue", "methodValue"}, request.getHeaderValues("X-Static"));
+        assertEquals("static=resource+value&static=method+value", request.getEncodedQuery());
+    }
+
+    @Test
+    public void testRequest_staticAccept() throws Exception {
+        factory.createResource(StaticResource.class).request_staticAccept();
+        Request request = requestCaptor.getValue();
+
+        assertArrayEquals(new String[]{"text/plain"}, request.getHeaderValues("Accept"));
+    }
+
     @Test
     public void testRequest_body() throws Exception {
         factory.createResource(TestResource.class).request(null, "", null, new Object());
@@ -277,6 +403,67 @@ public class ResourceFactoryTest {
         assertArrayEquals(DEFAULT_REQUEST_BODY, request.getBody());
     }
 
+    @Test
+    public void testRequest_streamedBody() throws Exception {
+        StreamedRequestBodyParser parser = mock(StreamedRequestBodyParser.class);
+        StreamedRequestBody streamedBody = mock(StreamedRequestBody.class);
+        when(streamedBody.getContentLength()).thenReturn(42L);
+        when(parser.parseStreamed(any(), any(), any())).thenReturn(streamedBody);
+        factory.registerRequestParser(parser, "application/xml");
+        factory.createResource(TestResource.class).request(null, "", null, new Object());
+        Request request = requestCaptor.getValue();
+
+        assertNull(request.getBody());
+        assertSame(streamedBody, request.getStreamedBody());
+        assertArrayEquals(new String[]{"42"}, request.getHeaderValues("Content-Length"));
+        verify(parser, never()).parse(any(), any(), any());
+    }
+
+    @Test
+    public void testRequest_streamedBodyUnknownLength() throws Exception {
+        StreamedRequestBodyParser parser = mock(StreamedRequestBodyParser.class);
+        StreamedRequestBody streamedBody = mock(StreamedRequestBody.class);
+        when(streamedBody.getContentLength()).thenReturn(-1L);
+        when(parser.parseStreamed(any(), any(), any())).thenReturn(streamedBody);
+        factory.registerRequestParser(parser, "application/xml");
+        factory.createResource(TestResource.class).request(null, "", null, new Object());
+        Request request = requestCaptor.getValue();
+
+        assertSame(streamedBody, request.getStreamedBody());
+        assertFalse(request.hasHeader("Content-Length"));
+        assertArrayEquals(new String[]{"application/xml; charset=UTF-16"}, request.getHeaderValues("Content-Type"));
+    }
+
+    @Test
+    public void testRequest_bodyPath() throws Exception {
+        Path file = Files.createTempFile("rested", ".bin");
+        try {
+            Files.write(file, DEFAULT_REQUEST_BODY);
+            factory.createResource(TestResource.class).request(null, "", null, file);
+            Request request = requestCaptor.getValue();
+
+            assertTrue(request.getStreamedBody() instanceof FileRequestBody);
+            assertArrayEquals(new String[]{Integer.toString(DEFAULT_REQUEST_BODY.length)}, request.getHeaderValues("Content-Length"));
+            assertArrayEquals(new String[]{"application/xml"}, request.getHeaderValues("Content-Type"));
+            verify(mockedRequestParser, never()).parse(any(), any(), any());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRequest_bodyInputStream() throws Exception {
+        factory.createResource(TestResource.class).request(null, "", null, new ByteArrayInputStream(DEFAULT_REQUEST_BODY));
+        Request request = requestCaptor.getValue();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        request.getStreamedBody().writeTo(output);
+
+        assertTrue(request.getStreamedBody() instanceof InputStreamRequestBody);
+        assertFalse(request.hasHeader("Content-Length"));
+        assertArrayEquals(DEFAULT_REQUEST_BODY, output.toByteArray());
+        verify(mockedRequestParser, never()).parse(any(), any(), any());
+    }
+
     @Test
     public void testRequest_returnType() throws Exception {
         String result = factory.createResource(TestResource.class).request(null, "", null, null);
@@ -351,6 +538,380 @@ public class ResourceFactoryTest {
         }
     }
 
+    @Test
+    public void testRequest_decompression() throws Exception {
+        byte[] data = new byte[4096];
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (java.util.zip.GZIPOutputStream gzip = new java.util.zip.GZIPOutputStream(compressed)) {
+            gzip.write(data);
+        }
+        Response compressedResponse = new Response.Builder().setStatusCode(200).setBodyStream(new ByteArrayInputStream(compressed.toByteArray()))
+                .setHeaders(new Headers().add("Content-Encoding", "gzip").add("Content-Length", String.valueOf(compressed.size()))).build();
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(compressedResponse);
+        factory.setResponseDecompressionEnabled(true);
+        StreamedRESTResponse result = factory.createResource(TestResource.class).request_returnTypeStreamedREST();
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+        assertFalse(result.hasHeader("Content-Encoding"));
+        assertFalse(result.hasHeader("Content-Length"));
+        assertEquals("gzip, deflate", requestCaptor.getValue().getHeaderValue("Accept-Encoding"));
+        assertEquals(compressed.size(), factory.getCompressedResponseBytes());
+        assertEquals(data.length, factory.getDecompressedResponseBytes());
+        Response intercepted = resInterceptorResponseCaptor.getValue();
+        assertNull(intercepted.getContentEncoding());
+    }
+
+    @Test
+    public void testRequest_decompressionDisabled() throws Exception {
+        Response encodedResponse = new Response.Builder().setStatusCode(200).setBodyStream(mock(InputStream.class))
+                .setHeaders(new Headers().add("Content-Encoding", "gzip")).build();
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(encodedResponse);
+        StreamedRESTResponse result = factory.createResource(TestResource.class).request_returnTypeStreamedREST();
+        assertSame(encodedResponse.getBodyStream(), result.getBodyStream());
+        assertFalse(requestCaptor.getValue().hasHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void testRequest_parallelDownload() throws Exception {
+        byte[] data = new byte[10_500];
+        new Random(7).nextBytes(data);
+        List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+        ResourceFactory rangedFactory = new ResourceFactory((request, method, params) -> {
+            requests.add(request);
+            return serveRange(data, request, true);
+        });
+        StreamedRESTResponse result = rangedFactory.createResource(TestResource.class).request_parallelDownload();
+        assertEquals(200, result.getStatusCode());
+        assertEquals(String.valueOf(data.length), result.getHeaderValue("Content-Length"));
+        assertFalse(result.hasHeader("Content-Range"));
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+        assertEquals(11, requests.size());
+        assertEquals("bytes=0-999", requests.get(0).getHeaderValue("Range"));
+        assertNull(requests.get(0).getHeaderValue("If-Range"));
+        for (Request part : requests.subList(1, requests.size())) {
+            assertEquals("\"v1\"", part.getHeaderValue("If-Range"));
+        }
+    }
+
+    @Test
+    public void testRequest_parallelDownloadAsync() throws Exception {
+        byte[] data = new byte[2500];
+        new Random(3).nextBytes(data);
+        ResourceFactory rangedFactory = new ResourceFactory((request, method, params) -> serveRange(data, request, true));
+        StreamedRESTResponse result = rangedFactory.createResource(TestResource.class).request_parallelDownloadAsync().get();
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+    }
+
+    @Test
+    public void testRequest_parallelDownloadRangesNotSupported() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(5).nextBytes(data);
+        int[] calls = {0};
+        ResourceFactory rangedFactory = new ResourceFactory((request, method, params) -> {
+            calls[0]++;
+            return serveRange(data, request, false);
+        });
+        StreamedRESTResponse result = rangedFactory.createResource(TestResource.class).request_parallelDownload();
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testRequest_parallelDownloadResourceChanged() throws Exception {
+        byte[] data = new byte[3000];
+        ResourceFactory rangedFactory = new ResourceFactory((request, method, params) ->
+                serveRange(data, request, !request.hasHeader("If-Range")));
+        StreamedRESTResponse result = rangedFactory.createResource(TestResource.class).request_parallelDownload();
+        try (InputStream bodyStream = result.getBodyStream()) {
+            assertEquals(1000, bodyStream.readNBytes(1000).length);
+            bodyStream.read();
+            fail("Expected the changed part to fail");
+        } catch (java.io.IOException e) {
+            assertTrue(e.getMessage().contains("status 200"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_parallelDownloadInvalidEndpoint() throws Exception {
+        factory.createResource(TestResource.class).request_parallelDownloadString();
+    }
+
+    @Test
+    public void testRequest_resumable() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(11).nextBytes(data);
+        List<Request> requests = new ArrayList<>();
+        ResourceFactory resumingFactory = new ResourceFactory((request, method, params) -> {
+            requests.add(request);
+            return serveFlaky(data, request, 2000, true);
+        });
+        StreamedRESTResponse result = resumingFactory.createResource(TestResource.class).request_resumable();
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+        assertEquals(3, requests.size());
+        assertNull(requests.get(0).getHeaderValue("Range"));
+        assertEquals("bytes=2000-", requests.get(1).getHeaderValue("Range"));
+        assertEquals("bytes=4000-", requests.get(2).getHeaderValue("Range"));
+        assertEquals("\"v1\"", requests.get(2).getHeaderValue("If-Range"));
+    }
+
+    @Test
+    public void testRequest_resumableTruncated() throws Exception {
+        byte[] data = new byte[3000];
+        new Random(13).nextBytes(data);
+        ResourceFactory resumingFactory = new ResourceFactory((request, method, params) -> serveFlaky(data, request, 2000, false));
+        StreamedRESTResponse result = resumingFactory.createResource(TestResource.class).request_resumable();
+        assertArrayEquals(data, result.getBodyStream().readAllBytes());
+    }
+
+    @Test
+    public void testRequest_resumableAttemptsExhausted() throws Exception {
+        byte[] data = new byte[5000];
+        ResourceFactory resumingFactory = new ResourceFactory((request, method, params) -> serveFlaky(data, request, 1000, true));
+        StreamedRESTResponse result = resumingFactory.createResource(TestResource.class).request_resumable();
+        try (InputStream bodyStream = result.getBodyStream()) {
+            assertEquals(3000, bodyStream.readNBytes(3000).length);
+            bodyStream.read();
+            fail("Expected the download to fail after two resumes");
+        } catch (java.io.IOException e) {
+            assertEquals("connection reset", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRequest_resumableResourceChanged() throws Exception {
+        byte[] data = new byte[5000];
+        ResourceFactory resumingFactory = new ResourceFactory((request, method, params) ->
+                request.hasHeader("Range") ? serveRange(data, request, false) : serveFlaky(data, request, 1000, true));
+        StreamedRESTResponse result = resumingFactory.createResource(TestResource.class).request_resumable();
+        try (InputStream bodyStream = result.getBodyStream()) {
+            bodyStream.readAllBytes();
+            fail("Expected the changed resource not to be resumed");
+        } catch (java.io.IOException e) {
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0].getMessage().contains("status 200"));
+        }
+    }
+
+    @Test
+    public void testRequest_sinkPath() throws Exception {
+        byte[] data = new byte[300_000];
+        new Random(17).nextBytes(data);
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(new Response.Builder().setStatusCode(200)
+                .setBodyStream(new ByteArrayInputStream(data)).build());
+        Path directory = Files.createTempDirectory("rested");
+        Path target = directory.resolve("download.bin");
+        Files.write(target, new byte[]{1, 2, 3});
+        try {
+            Path result = factory.createResource(TestResource.class).request_sinkPath(target);
+            assertEquals(target, result);
+            assertArrayEquals(data, Files.readAllBytes(target));
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+            verify(mockedResponseParser, never()).parse(any(), any(), any(), anyString(), anyString());
+        } finally {
+            Files.deleteIfExists(target);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testRequest_sinkChannel() throws Exception {
+        byte[] data = new byte[1000];
+        new Random(19).nextBytes(data);
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(new Response.Builder().setStatusCode(201).setMessage("Created")
+                .setBodyStream(new ByteArrayInputStream(data)).setHeaders(new Headers().add("ETag", "\"v1\"")).build());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileResponse result = factory.createResource(TestResource.class).request_sinkChannel(java.nio.channels.Channels.newChannel(output));
+        assertArrayEquals(data, output.toByteArray());
+        assertNull(result.getPath());
+        assertEquals(201, result.getStatusCode());
+        assertEquals("Created", result.getResponseMessage());
+        assertEquals("\"v1\"", result.getHeaderValue("ETag"));
+    }
+
+    @Test
+    public void testRequest_returnTypePath() throws Exception {
+        byte[] data = new byte[]{4, 5, 6};
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(new Response.Builder().setStatusCode(200)
+                .setBodyStream(new ByteArrayInputStream(data)).build());
+        Path result = factory.createResource(TestResource.class).request_returnTypePath();
+        try {
+            assertArrayEquals(data, Files.readAllBytes(result));
+        } finally {
+            Files.delete(result);
+        }
+    }
+
+    @Test
+    public void testRequest_sinkErrorResponse() throws Exception {
+        when(mockedClient.request(requestCaptor.capture(), any(), any())).thenReturn(new Response.Builder().setStatusCode(404)
+                .setBodyStream(new ByteArrayInputStream(new byte[0])).build());
+        when(mockedResponseParser.parse(same(RESTException.class), any(), any(), any(), any())).thenReturn(new RESTException());
+        Path directory = Files.createTempDirectory("rested");
+        try {
+            factory.createResource(TestResource.class).request_sinkPath(directory.resolve("download.bin"));
+            fail("Expected a RESTException");
+        } catch (RESTException e) {
+            assertEquals(404, e.getStatusCode());
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_sinkInvalidType() throws Exception {
+        factory.createResource(TestResource.class).request_sinkString("target");
+    }
+
+    @Test
+    public void testRequest_multipart() throws Exception {
+        Path file = Files.createTempFile("rested", ".bin");
+        Files.write(file, new byte[]{7, 8, 9});
+        try {
+            factory.createResource(TestResource.class).request_multipart("title", 42, new Object(), file, null);
+        } finally {
+            Files.delete(file);
+        }
+        Request request = requestCaptor.getValue();
+        MultipartRequestBody multipartBody = (MultipartRequestBody) reqInterceptorBodyCaptor.getValue();
+        assertEquals(4, multipartBody.getPartCount());
+        assertEquals(multipartBody.getContentType(), request.getHeaderValue("Content-Type"));
+        assertEquals(String.valueOf(multipartBody.getContentLength()), request.getHeaderValue("Content-Length"));
+        assertNull(request.getBody());
+        verify(mockedRequestParser).parse(any(), eq("application/json"), eq("UTF-8"));
+    }
+
+    @Test
+    public void testRequest_multipartBody() throws Exception {
+        factory.createResource(TestResource.class).request_multipart("title", null, null, null, new ByteArrayInputStream(new byte[]{1, 2}));
+        Request request = requestCaptor.getValue();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        request.getStreamedBody().writeTo(output);
+        String body = output.toString(java.nio.charset.StandardCharsets.UTF_8);
+        String boundary = ((MultipartRequestBody) reqInterceptorBodyCaptor.getValue()).getBoundary();
+        assertTrue(body.startsWith("--" + boundary + "\r\nContent-Disposition: form-data; name=\"title\"\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\ntitle\r\n"));
+        assertTrue(body.contains("name=\"stream\"\r\nContent-Type: application/octet-stream\r\n\r\n\u0001\u0002\r\n"));
+        assertTrue(body.endsWith("--" + boundary + "--\r\n"));
+        assertFalse(request.hasHeader("Content-Length"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_compressInvalidLevel() throws Exception {
+        factory.createResource(TestResource.class).request_compressedInvalidLevel("body");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_multipartWithBody() throws Exception {
+        factory.createResource(TestResource.class).request_multipartWithBody("title", "body");
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        int[] calls = {0};
+        int succeeded = factory.warmUp(TestResource.class, 10, resource -> {
+            if (calls[0]++ % 2 == 0) {
+                throw new IllegalStateException();
+            }
+            resource.request_returnTypeNone();
+        });
+        assertEquals(5, succeeded);
+        assertEquals(10, calls[0]);
+        verify(mockedClient, times(5)).request(any(), eq(TestResource.class.getMethod("request_returnTypeNone")), any());
+    }
+
+    @Test
+    public void testRequest_compression() throws Exception {
+        byte[] data = new byte[4096];
+        when(mockedRequestParser.parse(any(), any(), any())).thenReturn(data);
+        TestResource resource = factory.createResource(TestResource.class);
+        resource.request_compressed("body");
+        Request request = requestCaptor.getValue();
+        assertNull(request.getBody());
+        assertEquals("gzip", request.getHeaderValue("Content-Encoding"));
+        assertFalse(request.hasHeader("Content-Length"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        request.getStreamedBody().writeTo(output);
+        try (java.util.zip.GZIPInputStream gzip = new java.util.zip.GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            assertArrayEquals(data, gzip.readAllBytes());
+        }
+        CompressionStats stats = factory.getCompressionStats(TestResource.class.getMethod("request_compressed", Object.class));
+        assertNotNull(stats);
+        assertEquals(1, stats.getCompressedRequests());
+        assertEquals(data.length, stats.getUncompressedBytes());
+        assertEquals(output.size(), stats.getCompressedBytes());
+        assertTrue(stats.getRatio() < 1);
+    }
+
+    @Test
+    public void testRequest_compressionBelowThreshold() throws Exception {
+        TestResource resource = factory.createResource(TestResource.class);
+        resource.request_compressed("body");
+        Request request = requestCaptor.getValue();
+        assertArrayEquals(DEFAULT_REQUEST_BODY, request.getBody());
+        assertFalse(request.hasHeader("Content-Encoding"));
+        CompressionStats stats = factory.getCompressionStats(TestResource.class.getMethod("request_compressed", Object.class));
+        assertEquals(1, stats.getSkippedRequests());
+        assertEquals(0, stats.getCompressedRequests());
+        assertNull(factory.getCompressionStats(TestResource.class.getMethod("request_returnTypeNone")));
+    }
+
+    @Test
+    public void testRequest_compressionDeflate() throws Exception {
+        byte[] data = new byte[4096];
+        when(mockedRequestParser.parse(any(), any(), any())).thenReturn(data);
+        factory.createResource(TestResource.class).request_compressedDeflate("body");
+        Request request = requestCaptor.getValue();
+        assertEquals("deflate", request.getHeaderValue("Content-Encoding"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        request.getStreamedBody().writeTo(output);
+        try (java.util.zip.InflaterInputStream inflater = new java.util.zip.InflaterInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            assertArrayEquals(data, inflater.readAllBytes());
+        }
+    }
+
+    private static Response serveRange(byte[] data, Request request, boolean supportsRanges) {
+        String range = request.getHeaderValue("Range");
+        Headers headers = new Headers().add("ETag", "\"v1\"");
+        if (!supportsRanges || range == null) {
+            return new Response.Builder().setStatusCode(200).setBodyStream(new ByteArrayInputStream(data))
+                    .setHeaders(headers.add("Content-Length", String.valueOf(data.length))).build();
+        }
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = Math.min(Integer.parseInt(bounds[1]), data.length - 1);
+        return new Response.Builder().setStatusCode(206).setBodyStream(new ByteArrayInputStream(data, start, end - start + 1))
+                .setHeaders(headers.add("Content-Range", "bytes " + start + "-" + end + "/" + data.length)).build();
+    }
+
+    /**
+     * Serves the body from the requested offset, but fails or ends each response after at most chunk bytes
+     */
+    private static Response serveFlaky(byte[] data, Request request, int chunk, boolean fail) {
+        String range = request.getHeaderValue("Range");
+        int start = range != null ? Integer.parseInt(range.substring("bytes=".length(), range.length() - 1)) : 0;
+        int end = Math.min(start + chunk, data.length);
+        InputStream chunkStream = new ByteArrayInputStream(data, start, end - start);
+        InputStream body = new InputStream() {
+            @Override
+            public int read() throws java.io.IOException {
+                int value = chunkStream.read();
+                if (value < 0 && fail && end < data.length) {
+                    throw new java.io.IOException("connection reset");
+                }
+                return value;
+            }
+        };
+        Headers headers = new Headers().add("ETag", "\"v1\"");
+        if (range == null) {
+            return new Response.Builder().setStatusCode(200).setBodyStream(body).setHeaders(headers.add("Content-Length", String.valueOf(data.length))).build();
+        }
+        return new Response.Builder().setStatusCode(206).setBodyStream(body)
+                .setHeaders(headers.add("Content-Range", "bytes " + start + "-" + (data.length - 1) + "/" + data.length)).build();
+    }
+
     @Resource("/test")
     private interface TestResource {
         @Endpoint(value = RequestMethod.POST, path = "/request/{pathParam}", charsets = "UTF-16", mediaTypes = "application/xml")
@@ -370,6 +931,21 @@ public class ResourceFactoryTest {
         @Endpoint(RequestMethod.GET)
         void request_queryArray(@QueryParam("queryParam") String... params) throws Exception;
 
+        @Endpoint(RequestMethod.GET)
+        void request_queryPrimitiveArray(@QueryParam("queryParam") int[] params) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        void request_queryJoined(@QueryParam(value = "queryParam", delimiter = ",") long[] params) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        void request_headerJoinedStream(@Header(value = "header", delimiter = ", ") IntStream headers) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        CompletableFuture<String> request_async() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        CompletionStage<Void> request_asyncVoid() throws Exception;
+
         @Endpoint(RequestMethod.GET)
         void request_returnTypeNone() throws Exception;
 
@@ -378,6 +954,67 @@ public class ResourceFactoryTest {
 
         @Endpoint(RequestMethod.GET)
         StreamedRESTResponse request_returnTypeStreamedREST() throws Exception;
+
+        @Endpoint(RequestMethod.POST)
+        @Compress(threshold = 1024)
+        void request_compressed(@Body("application/json") Object body) throws Exception;
+
+        @Endpoint(RequestMethod.POST)
+        @Compress(value = Compress.DEFLATE, threshold = 0)
+        void request_compressedDeflate(@Body("application/json") Object body) throws Exception;
+
+        @Endpoint(RequestMethod.POST)
+        @Compress(level = 10)
+        void request_compressedInvalidLevel(@Body("application/json") Object body) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        @ParallelDownload(parallelism = 3, partSize = 1000)
+        StreamedRESTResponse request_parallelDownload() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        @ParallelDownload(parallelism = 2, partSize = 1000)
+        CompletableFuture<StreamedRESTResponse> request_parallelDownloadAsync() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        @ParallelDownload
+        String request_parallelDownloadString() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        @Resumable(maxAttempts = 2)
+        StreamedRESTResponse request_resumable() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        Path request_sinkPath(@Sink Path target) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        FileResponse request_sinkChannel(@Sink java.nio.channels.WritableByteChannel target) throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        Path request_returnTypePath() throws Exception;
+
+        @Endpoint(RequestMethod.GET)
+        void request_sinkString(@Sink String target) throws Exception;
+
+        @Endpoint(RequestMethod.POST)
+        void request_multipart(@Part("title") String title, @Part("count") Integer count, @Part(value = "metadata", mediaType = Body.JSON) Object metadata,
+                               @Part("file") Path file, @Part("stream") InputStream stream) throws Exception;
+
+        @Endpoint(RequestMethod.POST)
+        void request_multipartWithBody(@Part("title") String title, @Body(Body.TEXT) String body) throws Exception;
+    }
+
+    @StaticHeader(name = "X-Static", value = "resourceValue")
+    @StaticQueryParam(name = "static", value = "resource value")
+    private interface StaticResource {
+        @Endpoint(RequestMethod.GET)
+        @StaticHeader(name = "X-Static", value = "methodValue")
+        @StaticHeader(name = "X-Api-Version", value = "2")
+        @StaticQueryParam(name = "static", value = "method value")
+        void request(@Header("X-Static") String header, @QueryParam("static") String queryParam) throws Exception;
+
+        @Endpoint(value = RequestMethod.GET, mediaTypes = "application/json")
+        @StaticHeader(name = "Accept", value = "text/plain")
+        void request_staticAccept() throws Exception;
     }
 
 }
@@ -31,6 +31,52 @@ public class ResponseTest {
         assertArrayEquals(new String[]{headerValue}, response.getHeaderValues(header));
     }
 
+    @Test
+    public void testBuilder(){
+        InputStream bodyStream = mock(InputStream.class);
+        Headers headers = new Headers().add("header", "value");
+
+        Response response = new Response.Builder()
+                .setStatusCode(201)
+                .setMessage("message")
+                .setBodyStream(bodyStream)
+                .setHeaders(headers)
+                .build();
+        headers.add("header", "otherValue");
+
+        assertEquals(201, response.getStatusCode());
+        assertEquals("message", response.getMessage());
+        assertSame(bodyStream, response.getBodyStream());
+        assertArrayEquals(new String[]{"value"}, response.getHeaderValues("Header"));
+        assertTrue(response.getHeaderView().isReadOnly());
+    }
+
+    @Test
+    public void testCommonHeaders(){
+        Headers headers = new Headers()
+                .add("content-type", "application/json")
+                .add("Content-Length", " 42 ")
+                .add("Content-Encoding", "gzip")
+                .add("etag", "\"tag\"");
+        Response response = new Response.Builder().setHeaders(headers).build();
+
+        assertEquals("application/json", response.getContentType());
+        assertEquals(42, response.getContentLength());
+        assertEquals("gzip", response.getContentEncoding());
+        assertEquals("\"tag\"", response.getETag());
+        assertEquals("application/json", response.getHeaderValue("Content-Type"));
+    }
+
+    @Test
+    public void testCommonHeaders_missing(){
+        Response response = new Response(200, null, null, null);
+        assertNull(response.getContentType());
+        assertEquals(-1, response.getContentLength());
+        assertNull(response.getContentEncoding());
+        assertNull(response.getETag());
+        assertEquals(-1, new Response.Builder().setHeaders(new Headers().add("Content-Length", "invalid")).build().getContentLength());
+    }
+
     @Test
     public void testisSuccessResponse_true(){
         for(int i = 200; i < 300; i++){
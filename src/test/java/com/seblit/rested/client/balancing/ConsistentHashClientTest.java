@@ -0,0 +1,162 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.annotation.Endpoint;
+import com.seblit.rested.client.annotation.PathParam;
+import com.seblit.rested.client.annotation.ShardKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ConsistentHashClientTest {
+
+    private static final int KEYS = 10_000;
+    private static final Request REQUEST = new Request.Builder().setMethod(RequestMethod.GET).setPath("/items").build();
+
+    private interface ShardedResource {
+
+        @Endpoint(value = RequestMethod.GET, path = "/items/{id}")
+        Object get(@ShardKey @PathParam("id") String id);
+
+        @Endpoint(value = RequestMethod.GET, path = "/items")
+        Object list();
+    }
+
+    private ConsistentHashClient client;
+
+    private static HTTPClient mockClient() throws Exception {
+        HTTPClient client = mock(HTTPClient.class);
+        when(client.request(any(), any(), any())).thenReturn(new Response.Builder().setStatusCode(200).build());
+        return client;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        client = new ConsistentHashClient.Builder()
+                .addHost("a", mockClient())
+                .addHost("b", mockClient())
+                .addHost("c", mockClient())
+                .addHost("d", mockClient())
+                .build();
+    }
+
+    private Map<String, Upstream> route() {
+        Map<String, Upstream> routes = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            routes.put("key-" + i, client.select("key-" + i));
+        }
+        return routes;
+    }
+
+    @Test
+    public void testSelect_stable() {
+        for (int i = 0; i < 100; i++) {
+            assertSame(client.select("key-" + i), client.select("key-" + i));
+        }
+    }
+
+    @Test
+    public void testSelect_distribution() {
+        Map<Upstream, Integer> counts = new HashMap<>();
+        for (Upstream upstream : route().values()) {
+            counts.merge(upstream, 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("uneven distribution: " + counts.values(), count > KEYS * 0.15 && count < KEYS * 0.35);
+        }
+    }
+
+    @Test
+    public void testAddHost_minimalRemap() throws Exception {
+        Map<String, Upstream> before = route();
+        client.addHost("e", mockClient());
+        Upstream added = client.getUpstream("e");
+        int moved = 0;
+        for (Map.Entry<String, Upstream> entry : route().entrySet()) {
+            if (entry.getValue() != before.get(entry.getKey())) {
+                assertSame(added, entry.getValue());
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > KEYS * 0.1 && moved < KEYS * 0.3);
+        assertEquals(5, client.getUpstreams().size());
+    }
+
+    @Test
+    public void testRemoveHost_minimalRemap() {
+        Upstream removed = client.getUpstream("b");
+        Map<String, Upstream> before = route();
+        assertTrue(client.removeHost("b"));
+        assertFalse(client.removeHost("b"));
+        for (Map.Entry<String, Upstream> entry : route().entrySet()) {
+            Upstream previous = before.get(entry.getKey());
+            if (previous != removed) {
+                assertSame(previous, entry.getValue());
+            }
+            assertNotSame(removed, entry.getValue());
+        }
+    }
+
+    @Test
+    public void testSelect_unhealthyFallback() {
+        Map<String, Upstream> before = route();
+        Upstream unhealthy = client.getUpstream("c");
+        unhealthy.setHealthy(false);
+        for (Map.Entry<String, Upstream> entry : route().entrySet()) {
+            assertNotSame(unhealthy, entry.getValue());
+            if (before.get(entry.getKey()) != unhealthy) {
+                assertSame(before.get(entry.getKey()), entry.getValue());
+            }
+        }
+        unhealthy.setHealthy(true);
+        assertEquals(before, route());
+    }
+
+    @Test
+    public void testRequest_shardKey() throws Exception {
+        Method method = ShardedResource.class.getMethod("get", String.class);
+        Upstream owner = client.select("42");
+        for (int i = 0; i < 5; i++) {
+            client.request(REQUEST, method, new Object[]{"42"});
+        }
+        assertEquals(5, owner.getRequests());
+        verify(owner.getClient(), times(5)).request(REQUEST, method, new Object[]{"42"});
+    }
+
+    @Test
+    public void testRequest_pathFallback() throws Exception {
+        Method method = ShardedResource.class.getMethod("list");
+        client.request(REQUEST, method, null);
+        client.request(REQUEST, ShardedResource.class.getMethod("get", String.class), new Object[]{null});
+        assertEquals(2, client.select(REQUEST.getPath()).getRequests());
+    }
+
+    @Test
+    public void testRequest_nullPath() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath(null).build();
+        client.request(request, ShardedResource.class.getMethod("list"), null);
+        assertEquals(1, client.select("").getRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddHost_duplicate() throws Exception {
+        client.addHost("a", mockClient());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuilder_empty() {
+        new ConsistentHashClient.Builder().build();
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.seblit.rested.client.balancing;
+
+import com.seblit.rested.client.AsyncHTTPClient;
+import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LoadBalancingClientTest {
+
+    private static final Request REQUEST = new Request.Builder().setMethod(RequestMethod.GET).setPath("/").build();
+    private static final Method METHOD = mock(Method.class);
+
+    private static HTTPClient mockClient(int statusCode) throws Exception {
+        HTTPClient client = mock(HTTPClient.class);
+        when(client.request(any(), any(), any())).thenReturn(new Response.Builder().setStatusCode(statusCode).build());
+        return client;
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        HTTPClient first = mockClient(200);
+        HTTPClient second = mockClient(200);
+        HTTPClient third = mockClient(200);
+        LoadBalancingClient client = new LoadBalancingClient.Builder(first, second, third).setStrategy(LoadBalancingClient.Strategy.ROUND_ROBIN).build();
+        for (int i = 0; i < 9; i++) {
+            client.request(REQUEST, METHOD, null);
+        }
+        for (Upstream upstream : client.getUpstreams()) {
+            assertEquals(3, upstream.getRequests());
+            assertEquals(0, upstream.getOutstandingRequests());
+        }
+        verify(first, times(3)).request(REQUEST, METHOD, null);
+    }
+
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        LoadBalancingClient client = new LoadBalancingClient.Builder(mockClient(200), mockClient(200), mockClient(200))
+                .setStrategy(LoadBalancingClient.Strategy.LEAST_OUTSTANDING).build();
+        List<Upstream> upstreams = client.getUpstreams();
+        upstreams.get(0).onStart();
+        upstreams.get(2).onStart();
+        for (int i = 0; i < 10; i++) {
+            assertSame(upstreams.get(1), client.select());
+        }
+        client.request(REQUEST, METHOD, null);
+        assertEquals(1, upstreams.get(1).getRequests());
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() throws Exception {
+        LoadBalancingClient client = new LoadBalancingClient.Builder(mockClient(200), mockClient(200)).build();
+        Upstream loaded = client.getUpstreams().get(0);
+        loaded.onStart();
+        for (int i = 0; i < 20; i++) {
+            assertSame(client.getUpstreams().get(1), client.select());
+        }
+        assertEquals(LoadBalancingClient.Strategy.POWER_OF_TWO_CHOICES, client.getStrategy());
+    }
+
+    @Test
+    public void testEjection_failures() throws Exception {
+        HTTPClient failing = mock(HTTPClient.class);
+        when(failing.request(any(), any(), any())).thenThrow(new IOException("failure"));
+        HTTPClient healthy = mockClient(200);
+        LoadBalancingClient client = new LoadBalancingClient.Builder(failing, healthy)
+                .setStrategy(LoadBalancingClient.Strategy.ROUND_ROBIN)
+                .setMaxConsecutiveFailures(2)
+                .build();
+        int failures = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                client.request(REQUEST, METHOD, null);
+            } catch (IOException e) {
+                failures++;
+            }
+        }
+        assertEquals(2, failures);
+        assertTrue(client.getUpstreams().get(0).isEjected());
+        assertEquals(2, client.getUpstreams().get(0).getFailures());
+        assertEquals(8, client.getUpstreams().get(1).getRequests());
+    }
+
+    @Test
+    public void testEjection_serverErrors() throws Exception {
+        LoadBalancingClient client = new LoadBalancingClient.Builder(mockClient(503), mockClient(200))
+                .setStrategy(LoadBalancingClient.Strategy.ROUND_ROBIN)
+                .setMaxConsecutiveFailures(1)
+                .build();
+        assertEquals(503, client.request(REQUEST, METHOD, null).getStatusCode());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, client.request(REQUEST, METHOD, null).getStatusCode());
+        }
+    }
+
+    @Test
+    public void testEjection_maxPercent() throws Exception {
+        LoadBalancingClient client = new LoadBalancingClient.Builder(mockClient(500), mockClient(500))
+                .setStrategy(LoadBalancingClient.Strategy.ROUND_ROBIN)
+                .setMaxConsecutiveFailures(1)
+                .build();
+        for (int i = 0; i < 4; i++) {
+            client.request(REQUEST, METHOD, null);
+        }
+        List<Upstream> upstreams = client.getUpstreams();
+        assertTrue(upstreams.get(0).isEjected() ^ upstreams.get(1).isEjected());
+    }
+
+    @Test
+    public void testEjection_latency() throws Exception {
+        HTTPClient slow = mock(HTTPClient.class);
+        when(slow.request(any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            return new Response.Builder().setStatusCode(200).build();
+        });
+        LoadBalancingClient client = new LoadBalancingClient.Builder(slow, mockClient(200))
+                .setStrategy(LoadBalancingClient.Strategy.ROUND_ROBIN)
+                .setLatencyThreshold(Duration.ofMillis(1))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            client.request(REQUEST, METHOD, null);
+        }
+        assertTrue(client.getUpstreams().get(0).isEjected());
+    }
+
+    @Test
+    public void testHealthCheck() throws Exception {
+        HTTPClient unhealthy = mockClient(200);
+        HTTPClient healthy = mockClient(200);
+        CountDownLatch checked = new CountDownLatch(2);
+        try (LoadBalancingClient client = new LoadBalancingClient.Builder(unhealthy, healthy)
+                .setHealthCheck(delegate -> {
+                    checked.countDown();
+                    return delegate == healthy;
+                }, Duration.ofMillis(10))
+                .build()) {
+            assertTrue(checked.await(5, TimeUnit.SECONDS));
+            assertFalse(client.getUpstreams().get(0).isHealthy());
+            for (int i = 0; i < 10; i++) {
+                client.request(REQUEST, METHOD, null);
+            }
+            verify(unhealthy, never()).request(any(), any(), any());
+        }
+    }
+
+    @Test
+    public void testAllUnavailable() throws Exception {
+        HTTPClient client = mockClient(200);
+        LoadBalancingClient balancer = new LoadBalancingClient.Builder(client, mockClient(200)).build();
+        for (Upstream upstream : balancer.getUpstreams()) {
+            upstream.setHealthy(false);
+        }
+        assertEquals(200, balancer.request(REQUEST, METHOD, null).getStatusCode());
+    }
+
+    @Test
+    public void testRequestAsync() throws Exception {
+        AsyncHTTPClient async = mock(AsyncHTTPClient.class);
+        when(async.requestAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(new Response.Builder().setStatusCode(204).build()));
+        LoadBalancingClient client = new LoadBalancingClient.Builder(async).build();
+        assertEquals(204, client.requestAsync(REQUEST, METHOD, null).get().getStatusCode());
+        assertEquals(0, client.getUpstreams().get(0).getOutstandingRequests());
+        verify(async, never()).request(any(), any(), any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilder_empty() {
+        new LoadBalancingClient.Builder();
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.seblit.rested.client.http;
+
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.InputStreamRequestBody;
+import com.seblit.rested.client.media.StreamedRequestBody;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class JavaHttpClientTest {
+
+    private static final int TEST_PORT = 1235;
+    private static final byte[] TEST_BODY = "body".getBytes(StandardCharsets.UTF_8);
+
+    private ClientAndServer mockedServer;
+    private JavaHttpClient client;
+
+    @Before
+    public void setup() {
+        mockedServer = ClientAndServer.startClientAndServer(TEST_PORT);
+        mockedServer.when(HttpRequest.request().withMethod("GET").withPath("/response"))
+                .respond(HttpResponse.response().withStatusCode(200).withBody(TEST_BODY).withHeader("X-Test", "value1", "value2"));
+        mockedServer.when(HttpRequest.request().withMethod("GET").withPath("/error"))
+                .respond(HttpResponse.response().withStatusCode(500));
+        mockedServer.when(HttpRequest.request().withMethod("POST").withPath("/request"))
+                .respond(HttpResponse.response().withStatusCode(204));
+        client = new JavaHttpClient.Builder("localhost")
+                .setPort(TEST_PORT)
+                .setConnectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @After
+    public void stopServer() {
+        mockedServer.stop();
+    }
+
+    @Test
+    public void testRequest_response() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertEquals(200, response.getStatusCode());
+            assertArrayEquals(TEST_BODY, stream.readAllBytes());
+            assertEquals("value1", response.getHeaderValue("x-test"));
+            assertArrayEquals(new String[]{"value1", "value2"}, response.getHeaderValues("X-Test"));
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        assertEquals(3, client.warmUp(request, 3).get(10, TimeUnit.SECONDS).intValue());
+        mockedServer.verify(HttpRequest.request().withPath("/response"), VerificationTimes.exactly(3));
+        Request error = new Request.Builder().setMethod(RequestMethod.GET).setPath("/error").build();
+        assertEquals(0, client.warmUp(error, 2).get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void testRequest_nullPath() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath(null).build();
+        client.request(request, mock(Method.class), null).close();
+        mockedServer.verify(HttpRequest.request().withMethod("GET").withPath("/"));
+    }
+
+    @Test
+    public void testRequest_error() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/error").build();
+        assertEquals(500, client.request(request, mock(Method.class), null).getStatusCode());
+    }
+
+    @Test
+    public void testRequest_headersAndQuery() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response")
+                .addHeader("X-Header", "value")
+                .addHeader("Content-Length", "0")
+                .addQueryParam("param", "ä b")
+                .build();
+        client.request(request, mock(Method.class), null).close();
+        mockedServer.verify(HttpRequest.request().withPath("/response").withHeader("X-Header", "value").withQueryStringParameter("param", "ä b"));
+    }
+
+    @Test
+    public void testRequest_body() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setBody(TEST_BODY).build();
+        assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(TEST_BODY).withHeader("Content-Length", String.valueOf(TEST_BODY.length)));
+    }
+
+    @Test
+    public void testRequest_streamedBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(new TestStreamedBody(null)).build();
+        assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(TEST_BODY).withHeader("Content-Length", String.valueOf(TEST_BODY.length)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRequest_streamedBodyFailure() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request")
+                .setStreamedBody(new TestStreamedBody(new IllegalStateException())).build();
+        client.request(request, mock(Method.class), null);
+    }
+
+    @Test
+    public void testRequest_streamedBodyOnExecutor() throws Exception {
+        byte[] largeBody = new byte[256 * 1024];
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "test-executor"));
+        try {
+            JavaHttpClient executorClient = new JavaHttpClient.Builder("localhost").setPort(TEST_PORT).setExecutor(executor).build();
+            AtomicReference<String> writer = new AtomicReference<>();
+            StreamedRequestBody body = new StreamedRequestBody() {
+                @Override
+                public long getContentLength() {
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(OutputStream output) throws Exception {
+                    writer.set(Thread.currentThread().getName());
+                    new InputStreamRequestBody(new ByteArrayInputStream(largeBody)).writeTo(output);
+                }
+            };
+            Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(body).build();
+            assertEquals(204, executorClient.request(request, mock(Method.class), null).getStatusCode());
+            assertEquals("test-executor", writer.get());
+            mockedServer.verify(HttpRequest.request().withPath("/request").withBody(largeBody));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRequest_streamedBodyCancelled() throws Exception {
+        CountDownLatch stopped = new CountDownLatch(1);
+        StreamedRequestBody endless = new StreamedRequestBody() {
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream output) throws Exception {
+                try {
+                    byte[] chunk = new byte[1024];
+                    while (true) {
+                        output.write(chunk);
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        };
+        JavaHttpClient timeoutClient = new JavaHttpClient.Builder("localhost").setPort(TEST_PORT).setRequestTimeout(Duration.ofMillis(500)).build();
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(endless).build();
+        try {
+            timeoutClient.request(request, mock(Method.class), null);
+            fail("Expected the request to time out");
+        } catch (IOException expected) {
+        }
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRequest_streamedBodySubscribedTwice() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(new TestStreamedBody(null)).build();
+        java.net.http.HttpRequest.BodyPublisher publisher = client.createHttpRequest(request).bodyPublisher().orElseThrow();
+        TestSubscriber first = new TestSubscriber();
+        publisher.subscribe(first);
+        assertTrue(first.done.await(10, TimeUnit.SECONDS));
+        assertNull(first.error);
+        assertEquals(TEST_BODY.length, first.received);
+        TestSubscriber second = new TestSubscriber();
+        publisher.subscribe(second);
+        assertTrue(second.done.await(10, TimeUnit.SECONDS));
+        assertTrue(second.error instanceof IOException);
+        assertEquals(0, second.received);
+    }
+
+    @Test
+    public void testRequest_fileBody() throws Exception {
+        Path file = Files.createTempFile("rested", ".bin");
+        try {
+            Files.write(file, TEST_BODY);
+            Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(new FileRequestBody(file)).build();
+            assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+            mockedServer.verify(HttpRequest.request().withPath("/request").withBody(TEST_BODY));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRequestAsync() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        try (Response response = client.requestAsync(request, mock(Method.class), null).get(10, TimeUnit.SECONDS); InputStream stream = response.getBodyStream()) {
+            assertEquals(200, response.getStatusCode());
+            assertArrayEquals(TEST_BODY, stream.readAllBytes());
+        }
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error;
+        private volatile int received;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            received += item.remaining();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    private static class TestStreamedBody implements StreamedRequestBody {
+
+        private final RuntimeException failure;
+
+        private TestStreamedBody(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public long getContentLength() {
+            return TEST_BODY.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            output.write(TEST_BODY);
+        }
+    }
+
+}
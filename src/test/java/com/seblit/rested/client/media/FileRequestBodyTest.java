@@ -0,0 +1,58 @@
+package com.seblit.rested.client.media;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class FileRequestBodyTest {
+
+    private static final byte[] TEST_DATA = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    private Path file;
+
+    @Before
+    public void setup() throws Exception {
+        file = Files.createTempFile("rested", ".bin");
+        Files.write(file, TEST_DATA);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testPath() throws Exception {
+        FileRequestBody body = new FileRequestBody(file);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.writeTo(output);
+
+        assertEquals(TEST_DATA.length, body.getContentLength());
+        assertSame(file, body.getPath());
+        assertArrayEquals(TEST_DATA, output.toByteArray());
+    }
+
+    @Test
+    public void testChannel() throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(4);
+            FileRequestBody body = new FileRequestBody(channel);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            body.writeTo(output);
+
+            assertEquals(TEST_DATA.length - 4, body.getContentLength());
+            assertNull(body.getPath());
+            assertEquals(4, channel.position());
+            assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10}, output.toByteArray());
+        }
+    }
+
+}
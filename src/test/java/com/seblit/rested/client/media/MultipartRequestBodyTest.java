@@ -0,0 +1,54 @@
+package com.seblit.rested.client.media;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MultipartRequestBodyTest {
+
+    @Test
+    public void testWriteTo() throws Exception {
+        MultipartRequestBody body = new MultipartRequestBody()
+                .addPart("name", null, "text/plain; charset=UTF-8", "value".getBytes(StandardCharsets.UTF_8))
+                .addPart("file", "data.bin", "application/octet-stream", new InputStreamRequestBody(new ByteArrayInputStream(new byte[]{1, 2, 3}), 3));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.writeTo(output);
+
+        String boundary = body.getBoundary();
+        String expected = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"name\"\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n\r\n"
+                + "value\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"data.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + "\u0001\u0002\u0003\r\n"
+                + "--" + boundary + "--\r\n";
+        assertEquals(expected, output.toString(StandardCharsets.UTF_8));
+        assertEquals(output.size(), body.getContentLength());
+        assertEquals(2, body.getPartCount());
+        assertEquals("multipart/form-data; boundary=" + boundary, body.getContentType());
+    }
+
+    @Test
+    public void testUnknownLength() {
+        MultipartRequestBody body = new MultipartRequestBody()
+                .addPart("name", null, null, new byte[]{1})
+                .addPart("stream", null, null, new InputStreamRequestBody(new ByteArrayInputStream(new byte[]{1, 2, 3})));
+        assertEquals(-1, body.getContentLength());
+    }
+
+    @Test
+    public void testEscapedNames() throws Exception {
+        MultipartRequestBody body = new MultipartRequestBody().addPart("a\"b", "line\r\nbreak", null, new byte[0]);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.writeTo(output);
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("name=\"a%22b\"; filename=\"line%0D%0Abreak\"\r\n\r\n"));
+        assertNotEquals(new MultipartRequestBody().getBoundary(), body.getBoundary());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.seblit.rested.client.memory;
+
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.ResourceFactory;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.StreamedRESTResponse;
+import com.seblit.rested.client.annotation.Endpoint;
+import com.seblit.rested.client.annotation.PathParam;
+import com.seblit.rested.client.annotation.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class InMemoryHTTPClientTest {
+
+    private static final byte[] TEST_BODY = "{\"status\":\"up\"}".getBytes(StandardCharsets.UTF_8);
+
+    private InMemoryHTTPClient client;
+
+    @Before
+    public void setup() {
+        client = new InMemoryHTTPClient.Builder()
+                .addResponse(RequestMethod.GET, "/health", 200, "application/json", TEST_BODY)
+                .addHandler(RequestMethod.GET, "/users/{id}/posts/{post}", (request, pathParams) -> respond(pathParams.get("id") + ":" + pathParams.get("post")))
+                .addHandler(RequestMethod.GET, "/users/{id}", (request, pathParams) -> respond("user " + pathParams.get("id")))
+                .addHandler(RequestMethod.GET, "/users/me", (request, pathParams) -> respond("me"))
+                .addHandler(RequestMethod.DELETE, "/users/{id}", (request, pathParams) -> new Response.Builder().setStatusCode(204).build())
+                .build();
+    }
+
+    @Test
+    public void testRequest_fixedResponse() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try (Response response = request(RequestMethod.GET, "/health"); InputStream stream = response.getBodyStream()) {
+                assertEquals(200, response.getStatusCode());
+                assertEquals("application/json", response.getContentType());
+                assertEquals(TEST_BODY.length, response.getContentLength());
+                assertArrayEquals(TEST_BODY, stream.readAllBytes());
+            }
+        }
+        assertNull(request(RequestMethod.HEAD, "/health").getBodyStream());
+    }
+
+    @Test
+    public void testRequest_pathTemplate() throws Exception {
+        assertEquals("user 42", readBody(request(RequestMethod.GET, "/users/42")));
+        assertEquals("user 42", readBody(request(RequestMethod.GET, "/users/42/")));
+        assertEquals("42:7", readBody(request(RequestMethod.GET, "/users/42/posts/7")));
+        assertEquals("me", readBody(request(RequestMethod.GET, "/users/me")));
+        assertEquals(204, request(RequestMethod.DELETE, "/users/42").getStatusCode());
+    }
+
+    @Test
+    public void testRequest_unmatched() throws Exception {
+        assertEquals(404, request(RequestMethod.GET, "/users").getStatusCode());
+        assertEquals(404, request(RequestMethod.GET, "/users/42/posts").getStatusCode());
+        assertEquals(404, request(RequestMethod.POST, "/health").getStatusCode());
+        assertEquals(3, client.getUnmatchedRequests());
+        assertEquals(3, client.getRequests());
+    }
+
+    @Test
+    public void testRequest_nullPath() throws Exception {
+        InMemoryHTTPClient rootClient = new InMemoryHTTPClient.Builder()
+                .addHandler(RequestMethod.GET, "/", (request, pathParams) -> respond("root"))
+                .build();
+        assertEquals("root", readBody(rootClient.request(new Request.Builder().setMethod(RequestMethod.GET).setPath(null).build(), mock(Method.class), null)));
+        assertEquals(404, request(RequestMethod.GET, null).getStatusCode());
+    }
+
+    @Test
+    public void testRequest_fallback() throws Exception {
+        InMemoryHTTPClient fallbackClient = new InMemoryHTTPClient.Builder()
+                .setFallback((request, pathParams) -> respond("fallback " + request.getPath()))
+                .build();
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/any").build();
+        assertEquals("fallback /any", readBody(fallbackClient.requestAsync(request, mock(Method.class), null).get()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequest_handlerException() throws Exception {
+        InMemoryHTTPClient failingClient = new InMemoryHTTPClient.Builder()
+                .addHandler(RequestMethod.GET, "/", (request, pathParams) -> {
+                    throw new IllegalStateException();
+                })
+                .build();
+        failingClient.request(new Request.Builder().setMethod(RequestMethod.GET).setPath("").build(), mock(Method.class), null);
+    }
+
+    @Test
+    public void testResource() throws Exception {
+        ResourceFactory factory = new ResourceFactory(client);
+        assertEquals("42:7", readBody(factory.createResource(UserResource.class).getPost("42", "7")));
+        assertArrayEquals(TEST_BODY, factory.createResource(HealthResource.class).getHealth().getBodyStream().readAllBytes());
+    }
+
+    private Response request(RequestMethod method, String path) throws Exception {
+        return client.request(new Request.Builder().setMethod(method).setPath(path).build(), mock(Method.class), null);
+    }
+
+    private static Response respond(String body) {
+        return new Response.Builder().setStatusCode(200).setBodyStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).build();
+    }
+
+    private static String readBody(Response response) throws Exception {
+        try (InputStream stream = response.getBodyStream()) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String readBody(StreamedRESTResponse response) throws Exception {
+        try (InputStream stream = response.getBodyStream()) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Resource("/users")
+    private interface UserResource {
+        @Endpoint(value = RequestMethod.GET, path = "/{id}/posts/{post}")
+        StreamedRESTResponse getPost(@PathParam("id") String id, @PathParam("post") String post) throws Exception;
+    }
+
+    @Resource("/health")
+    private interface HealthResource {
+        @Endpoint(RequestMethod.GET)
+        StreamedRESTResponse getHealth() throws Exception;
+    }
+
+}
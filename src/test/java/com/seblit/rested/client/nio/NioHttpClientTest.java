@@ -0,0 +1,507 @@
+package com.seblit.rested.client.nio;
+
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.media.FileRequestBody;
+import com.seblit.rested.client.media.InputStreamRequestBody;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.ConnectionOptions;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+public class NioHttpClientTest {
+
+    private static final int TEST_PORT = 1236;
+    private static final byte[] TEST_BODY = "body".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LARGE_BODY = new byte[512 * 1024];
+
+    static {
+        new Random(42).nextBytes(LARGE_BODY);
+    }
+
+    private ClientAndServer mockedServer;
+    private NioHttpClient client;
+
+    @Before
+    public void setup() {
+        mockedServer = ClientAndServer.startClientAndServer(TEST_PORT);
+        mockedServer.when(HttpRequest.request().withMethod("GET").withPath("/response"))
+                .respond(HttpResponse.response().withStatusCode(200).withBody(TEST_BODY).withHeader("X-Test", "value1", "value2"));
+        mockedServer.when(HttpRequest.request().withMethod("HEAD").withPath("/response"))
+                .respond(HttpResponse.response().withStatusCode(200).withHeader("X-Test", "value"));
+        mockedServer.when(HttpRequest.request().withMethod("GET").withPath("/large"))
+                .respond(HttpResponse.response().withStatusCode(200).withBody(LARGE_BODY));
+        mockedServer.when(HttpRequest.request().withMethod("GET").withPath("/chunked"))
+                .respond(HttpResponse.response().withStatusCode(200).withBody(LARGE_BODY)
+                        .withConnectionOptions(ConnectionOptions.connectionOptions().withChunkSize(1000)));
+        mockedServer.when(HttpRequest.request().withMethod("POST").withPath("/request"))
+                .respond(HttpResponse.response().withStatusCode(204));
+        client = new NioHttpClient.Builder("localhost")
+                .setPort(TEST_PORT)
+                .setEventLoopThreads(2)
+                .setMaxConnections(4)
+                .setBufferSize(4096)
+                .setMaxBufferedBody(16 * 1024)
+                .setConnectTimeout(Duration.ofSeconds(5))
+                .setReadTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @After
+    public void stopServer() {
+        client.close();
+        mockedServer.stop();
+    }
+
+    @Test
+    public void testRequest_response() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").addQueryParam("param", "ä b").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals("OK", response.getMessage());
+            assertArrayEquals(TEST_BODY, stream.readAllBytes());
+            assertArrayEquals(new String[]{"value1", "value2"}, response.getHeaderValues("x-test"));
+        }
+        mockedServer.verify(HttpRequest.request().withPath("/response").withQueryStringParameter("param", "ä b"));
+    }
+
+    @Test
+    public void testRequest_nullPath() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath(null).build();
+        client.request(request, mock(Method.class), null).close();
+        mockedServer.verify(HttpRequest.request().withMethod("GET").withPath("/"));
+    }
+
+    @Test
+    public void testRequest_head() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.HEAD).setPath("/response").build();
+        Response response = client.request(request, mock(Method.class), null);
+        assertEquals(200, response.getStatusCode());
+        assertNull(response.getBodyStream());
+        assertEquals("value", response.getHeaderValue("X-Test"));
+    }
+
+    @Test
+    public void testRequest_body() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").addHeader("X-Header", "value").setBody(TEST_BODY).build();
+        assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(TEST_BODY).withHeader("X-Header", "value")
+                .withHeader("Content-Length", String.valueOf(TEST_BODY.length)));
+    }
+
+    @Test
+    public void testRequest_streamedBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request")
+                .setStreamedBody(new InputStreamRequestBody(new ByteArrayInputStream(TEST_BODY))).build();
+        assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(TEST_BODY));
+    }
+
+    @Test
+    public void testRequest_streamedBodyChunked() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> receiveChunked(server));
+            try (NioHttpClient chunkedClient = new NioHttpClient.Builder("localhost").setPort(server.getLocalPort()).setMaxBufferedBody(16 * 1024)
+                    .setReadTimeout(Duration.ofSeconds(10)).build()) {
+                Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request")
+                        .setStreamedBody(new InputStreamRequestBody(new ByteArrayInputStream(LARGE_BODY))).build();
+                assertEquals(204, chunkedClient.request(request, mock(Method.class), null).getStatusCode());
+            }
+            assertArrayEquals(LARGE_BODY, received.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Accepts one request that must use chunked transfer encoding, answers it with 204 and returns its decoded body
+     */
+    private static byte[] receiveChunked(ServerSocket server) {
+        try (Socket socket = server.accept()) {
+            InputStream input = socket.getInputStream();
+            boolean chunked = false;
+            String line;
+            while (!(line = readLine(input)).isEmpty()) {
+                chunked |= line.equalsIgnoreCase("Transfer-Encoding: chunked");
+                assertFalse(line.regionMatches(true, 0, "Content-Length", 0, 14));
+            }
+            assertTrue(chunked);
+            java.io.ByteArrayOutputStream body = new java.io.ByteArrayOutputStream();
+            int size;
+            while ((size = Integer.parseInt(readLine(input), 16)) > 0) {
+                body.write(input.readNBytes(size));
+                assertEquals("", readLine(input));
+            }
+            assertEquals("", readLine(input));
+            socket.getOutputStream().write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            return body.toByteArray();
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int value;
+        while ((value = input.read()) != '\n') {
+            if (value < 0) {
+                throw new java.io.EOFException();
+            }
+            if (value != '\r') {
+                line.append((char) value);
+            }
+        }
+        return line.toString();
+    }
+
+    @Test
+    public void testRequest_streamedBodyKnownLength() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request")
+                .setStreamedBody(new InputStreamRequestBody(new ByteArrayInputStream(LARGE_BODY), LARGE_BODY.length)).build();
+        assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(LARGE_BODY)
+                .withHeader("Content-Length", String.valueOf(LARGE_BODY.length)));
+    }
+
+    @Test
+    public void testRequestAsync_streamedBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request")
+                .setStreamedBody(new InputStreamRequestBody(new ByteArrayInputStream(LARGE_BODY))).build();
+        assertEquals(204, client.requestAsync(request, mock(Method.class), null).get(10, TimeUnit.SECONDS).getStatusCode());
+        mockedServer.verify(HttpRequest.request().withPath("/request").withBody(LARGE_BODY));
+    }
+
+    @Test
+    public void testRequest_streamedBodyFails() throws Exception {
+        IOException failure = new IOException("broken body");
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw failure;
+            }
+        };
+        Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(new InputStreamRequestBody(broken)).build();
+        try {
+            client.request(request, mock(Method.class), null);
+            fail("Expected the request to fail");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_headerInjection() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").addHeader("X-Header", "value\r\nX-Injected: true").build();
+        client.request(request, mock(Method.class), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequest_invalidHeaderName() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").addHeader("X-Header:", "value").build();
+        client.request(request, mock(Method.class), null);
+    }
+
+    @Test
+    public void testRequest_fileBody() throws Exception {
+        Path file = Files.createTempFile("rested", ".bin");
+        try {
+            Files.write(file, LARGE_BODY);
+            Request request = new Request.Builder().setMethod(RequestMethod.POST).setPath("/request").setStreamedBody(new FileRequestBody(file)).build();
+            assertEquals(204, client.request(request, mock(Method.class), null).getStatusCode());
+            mockedServer.verify(HttpRequest.request().withPath("/request").withBody(LARGE_BODY));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRequest_largeBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/large").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertArrayEquals(LARGE_BODY, stream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testRequest_chunkedBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/chunked").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertEquals("chunked", response.getHeaderValue("Transfer-Encoding"));
+            assertArrayEquals(LARGE_BODY, stream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testRequest_reuseConnection() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        for (int i = 0; i < 3; i++) {
+            try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+                assertArrayEquals(TEST_BODY, stream.readAllBytes());
+            }
+            awaitIdleConnection();
+        }
+        assertEquals(1, client.getOpenConnections());
+        assertEquals(1, client.getIdleConnections());
+        assertEquals(1, client.getCreatedConnections());
+        assertEquals(2, client.getReusedConnections());
+    }
+
+    @Test
+    public void testRequest_drainBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        client.request(request, mock(Method.class), null).close();
+        awaitIdleConnection();
+        client.request(request, mock(Method.class), null).close();
+        assertEquals(1, client.getCreatedConnections());
+        assertEquals(1, client.getReusedConnections());
+    }
+
+    @Test
+    public void testRequest_discardLargeBody() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/large").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertEquals(LARGE_BODY[0], (byte) stream.read());
+        }
+        Request smallRequest = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        try (Response response = client.request(smallRequest, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertArrayEquals(TEST_BODY, stream.readAllBytes());
+        }
+        assertEquals(2, client.getCreatedConnections());
+        assertEquals(0, client.getReusedConnections());
+    }
+
+    @Test
+    public void testRequestAsync_concurrent() throws Exception {
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(client.requestAsync(request, mock(Method.class), null).thenApply(response -> {
+                try (InputStream stream = response.getBodyStream()) {
+                    return stream.readAllBytes();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (CompletableFuture<byte[]> result : results) {
+            assertArrayEquals(TEST_BODY, result.get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(client.getOpenConnections() <= 4);
+        assertEquals(0, client.getPendingRequests());
+    }
+
+    private void awaitIdleConnection() throws InterruptedException {
+        for (int i = 0; i < 200 && client.getIdleConnections() == 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        assertEquals(3, client.warmUp(3).get(10, TimeUnit.SECONDS).intValue());
+        assertEquals(3, client.getOpenConnections());
+        assertEquals(3, client.getIdleConnections());
+        assertEquals(1, client.warmUp(3).get(10, TimeUnit.SECONDS).intValue());
+        Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/response").build();
+        try (Response response = client.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+            assertArrayEquals(TEST_BODY, stream.readAllBytes());
+        }
+        assertEquals(4, client.getCreatedConnections());
+        assertEquals(1, client.getReusedConnections());
+    }
+
+    @Test
+    public void testRequest_unixDomainSocket() throws Exception {
+        assumeTrue(UnixDomainSockets.isSupported());
+        Path directory = Files.createTempDirectory("rested");
+        Path socket = directory.resolve("sidecar.sock");
+        AtomicInteger accepted = new AtomicInteger();
+        try (ServerSocketChannel server = openUnixServer()) {
+            server.bind(UnixDomainSockets.address(socket));
+            Thread serverThread = new Thread(() -> serveEcho(server, accepted));
+            serverThread.setDaemon(true);
+            serverThread.start();
+            try (NioHttpClient unixClient = new NioHttpClient.Builder("sidecar").setUnixDomainSocket(socket).setReadTimeout(Duration.ofSeconds(10)).build()) {
+                for (int i = 0; i < 3; i++) {
+                    Request request = new Request.Builder().setMethod(RequestMethod.GET).setPath("/echo" + i).build();
+                    try (Response response = unixClient.request(request, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+                        assertEquals(200, response.getStatusCode());
+                        assertEquals("/echo" + i, new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                    for (int j = 0; j < 200 && unixClient.getIdleConnections() == 0; j++) {
+                        Thread.sleep(10);
+                    }
+                }
+                assertEquals(1, accepted.get());
+                assertEquals(2, unixClient.getReusedConnections());
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Opens the server channel through the Java 15 overload reflectively, so the test compiles on Java 11
+     */
+    private static ServerSocketChannel openUnixServer() throws Exception {
+        try {
+            Method open = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            return (ServerSocketChannel) open.invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Answers each request with its path as body, keeping connections open
+     */
+    private static void serveEcho(ServerSocketChannel server, AtomicInteger accepted) {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                accepted.incrementAndGet();
+                Thread handler = new Thread(() -> {
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.US_ASCII));
+                         OutputStream output = Channels.newOutputStream(channel)) {
+                        String requestLine;
+                        while ((requestLine = reader.readLine()) != null) {
+                            String line;
+                            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                                // headers are ignored
+                            }
+                            byte[] body = requestLine.split(" ")[1].getBytes(StandardCharsets.UTF_8);
+                            output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                            output.write(body);
+                            output.flush();
+                        }
+                    } catch (IOException ignored) {
+                    }
+                });
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testRequest_connectionRefused() throws Exception {
+        try (NioHttpClient refusedClient = new NioHttpClient.Builder("localhost").setPort(1).build()) {
+            refusedClient.request(new Request.Builder().setMethod(RequestMethod.GET).setPath("/").build(), mock(Method.class), null);
+        }
+    }
+
+    @Test
+    public void testRequest_unresolvedHostFailsPending() throws Exception {
+        try (NioHttpClient unresolvedClient = new NioHttpClient.Builder("unresolved.invalid").setMaxConnections(1).build()) {
+            List<CompletableFuture<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> unresolvedClient.requestAsync(new Request.Builder().setMethod(RequestMethod.GET).setPath("/").build(),
+                        mock(Method.class), null)).thenCompose(future -> future));
+            }
+            for (CompletableFuture<Response> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    fail("Expected the request to fail");
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException);
+                }
+            }
+            assertEquals(0, unresolvedClient.getOpenConnections());
+        }
+    }
+
+    @Test
+    public void testRequest_postOnStaleConnectionNotRetried() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread serverThread = new Thread(() -> serveOnce(server, requests));
+            serverThread.setDaemon(true);
+            serverThread.start();
+            try (NioHttpClient staleClient = new NioHttpClient.Builder("localhost").setPort(server.getLocalPort()).setReadTimeout(Duration.ofSeconds(10)).build()) {
+                Request get = new Request.Builder().setMethod(RequestMethod.GET).setPath("/first").build();
+                try (Response response = staleClient.request(get, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+                    assertEquals(200, response.getStatusCode());
+                    stream.readAllBytes();
+                }
+                for (int i = 0; i < 200 && staleClient.getIdleConnections() == 0; i++) {
+                    Thread.sleep(10);
+                }
+                Request post = new Request.Builder().setMethod(RequestMethod.POST).setPath("/second").setBody(TEST_BODY).build();
+                try {
+                    staleClient.request(post, mock(Method.class), null);
+                    fail("Expected the request to fail");
+                } catch (IOException expected) {
+                }
+                Thread.sleep(100);
+                assertEquals(2, requests.get());
+            }
+        }
+    }
+
+    /**
+     * Answers the first request with an empty body, keeping the connection open, and closes connections on any later request without answering
+     */
+    private static void serveOnce(ServerSocket server, AtomicInteger requests) {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> {
+                    try (Socket connection = socket;
+                         BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII))) {
+                        OutputStream output = connection.getOutputStream();
+                        while (reader.readLine() != null) {
+                            String line;
+                            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                                // headers are ignored
+                            }
+                            if (requests.incrementAndGet() > 1) {
+                                return;
+                            }
+                            output.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                            output.flush();
+                        }
+                    } catch (IOException ignored) {
+                    }
+                });
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.seblit.rested.client.replay;
+
+import com.seblit.rested.client.Headers;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.Response;
+import com.seblit.rested.client.memory.InMemoryHTTPClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class RecordingClientTest {
+
+    private static final byte[] LARGE_BODY = new byte[100_000];
+
+    private Path log;
+    private InMemoryHTTPClient server;
+
+    @Before
+    public void setup() throws Exception {
+        log = Files.createTempFile("rested", ".log");
+        Files.delete(log);
+        AtomicInteger counter = new AtomicInteger();
+        server = new InMemoryHTTPClient.Builder()
+                .addResponse(RequestMethod.GET, "/large", 200, "application/octet-stream", LARGE_BODY)
+                .addHandler(RequestMethod.GET, "/counter", (request, pathParams) -> new Response.Builder().setStatusCode(200)
+                        .setHeaders(new Headers().add("X-Count", String.valueOf(counter.incrementAndGet())))
+                        .setBodyStream(new ByteArrayInputStream(("count " + counter.get()).getBytes(StandardCharsets.UTF_8))).build())
+                .addHandler(RequestMethod.POST, "/items", (request, pathParams) -> new Response.Builder().setStatusCode(201).setMessage("Created").build())
+                .build();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(log);
+    }
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        try (RecordingClient recorder = new RecordingClient(server, log)) {
+            assertEquals("count 1", readBody(recorder.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null)));
+            assertEquals("count 2", readBody(recorder.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null)));
+            // closed without reading, only the size is recorded and the replay fills the body with zeros
+            recorder.request(request(RequestMethod.GET, "/large"), mock(Method.class), null).close();
+            Request post = new Request.Builder().setMethod(RequestMethod.POST).setPath("/items").addQueryParam("a", "b").setBody(new byte[]{1, 2, 3}).build();
+            assertEquals(201, recorder.requestAsync(post, mock(Method.class), null).get().getStatusCode());
+            assertEquals(4, recorder.getRecordedExchanges());
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            assertEquals(4, replay.getRecordCount());
+            for (int i = 0; i < 2; i++) {
+                Response first = replay.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null);
+                assertEquals("1", first.getHeaderValue("X-Count"));
+                assertEquals("count 1", readBody(first));
+                assertEquals("count 2", readBody(replay.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null)));
+            }
+            Response large = replay.requestAsync(request(RequestMethod.GET, "/large"), mock(Method.class), null).get();
+            assertEquals("application/octet-stream", large.getContentType());
+            try (InputStream stream = large.getBodyStream()) {
+                assertArrayEquals(LARGE_BODY, stream.readAllBytes());
+            }
+            Response created = replay.request(new Request.Builder().setMethod(RequestMethod.POST).setPath("/items").addQueryParam("a", "b").build(), mock(Method.class), null);
+            assertEquals(201, created.getStatusCode());
+            assertEquals("Created", created.getMessage());
+            assertNull(created.getBodyStream());
+            assertEquals(404, replay.request(request(RequestMethod.POST, "/items"), mock(Method.class), null).getStatusCode());
+            assertEquals(6, replay.getReplayedRequests());
+            assertEquals(1, replay.getUnmatchedRequests());
+        }
+    }
+
+    @Test
+    public void testRecord_append() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try (RecordingClient recorder = new RecordingClient(server, log)) {
+                recorder.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null).close();
+            }
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            assertEquals(2, replay.getRecordCount());
+        }
+    }
+
+    @Test
+    public void testRecord_maxRecordedBody() throws Exception {
+        try (RecordingClient recorder = new RecordingClient(server, log, 3)) {
+            assertEquals("count 1", readBody(recorder.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null)));
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            assertEquals("cou\0\0\0\0", readBody(replay.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null)));
+        }
+    }
+
+    @Test
+    public void testRecord_closedEarly() throws Exception {
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 'x';
+            }
+        };
+        InMemoryHTTPClient endlessServer = new InMemoryHTTPClient.Builder()
+                .addHandler(RequestMethod.GET, "/endless", (request, pathParams) -> new Response.Builder().setStatusCode(200).setBodyStream(endless).build())
+                .build();
+        try (RecordingClient recorder = new RecordingClient(endlessServer, log)) {
+            try (InputStream stream = recorder.request(request(RequestMethod.GET, "/endless"), mock(Method.class), null).getBodyStream()) {
+                assertEquals(4, stream.read(new byte[4]));
+            }
+            assertEquals(1, recorder.getRecordedExchanges());
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            assertEquals("xxxx", readBody(replay.request(request(RequestMethod.GET, "/endless"), mock(Method.class), null)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInit_negativeMaxRecordedBody() throws Exception {
+        new RecordingClient(server, log, -1);
+    }
+
+    @Test
+    public void testRecordAndReplay_nullPath() throws Exception {
+        InMemoryHTTPClient rootServer = new InMemoryHTTPClient.Builder()
+                .addResponse(RequestMethod.GET, "/", 200, null, "root".getBytes(StandardCharsets.UTF_8))
+                .build();
+        try (RecordingClient recorder = new RecordingClient(rootServer, log)) {
+            assertEquals("root", readBody(recorder.request(request(RequestMethod.GET, null), mock(Method.class), null)));
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            assertEquals(1, replay.getRecordCount());
+            assertEquals("root", readBody(replay.request(request(RequestMethod.GET, null), mock(Method.class), null)));
+            assertEquals(0, replay.getUnmatchedRequests());
+        }
+    }
+
+    @Test
+    public void testReplay_latency() throws Exception {
+        InMemoryHTTPClient slowServer = new InMemoryHTTPClient.Builder()
+                .addHandler(RequestMethod.GET, "/slow", (request, pathParams) -> {
+                    Thread.sleep(200);
+                    return new Response.Builder().setStatusCode(204).build();
+                })
+                .build();
+        try (RecordingClient recorder = new RecordingClient(slowServer, log)) {
+            recorder.request(request(RequestMethod.GET, "/slow"), mock(Method.class), null);
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0.5).build()) {
+            long start = System.nanoTime();
+            assertEquals(204, replay.request(request(RequestMethod.GET, "/slow"), mock(Method.class), null).getStatusCode());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            start = System.nanoTime();
+            assertEquals(204, replay.requestAsync(request(RequestMethod.GET, "/slow"), mock(Method.class), null).get().getStatusCode());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testReplay_invalidFile() throws Exception {
+        Files.write(log, "not a log".getBytes(StandardCharsets.UTF_8));
+        new ReplayClient.Builder(log).build();
+    }
+
+    @Test
+    public void testReplay_truncatedRecord() throws Exception {
+        try (RecordingClient recorder = new RecordingClient(server, log)) {
+            for (int i = 0; i < 2; i++) {
+                recorder.request(request(RequestMethod.GET, "/counter"), mock(Method.class), null).close();
+            }
+        }
+        byte[] data = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(data, data.length - 3));
+        try (ReplayClient replay = new ReplayClient.Builder(log).build()) {
+            assertEquals(1, replay.getRecordCount());
+        }
+    }
+
+    @Test
+    public void testReplay_bodyAsChannel() throws Exception {
+        try (RecordingClient recorder = new RecordingClient(server, log)) {
+            recorder.request(request(RequestMethod.GET, "/large"), mock(Method.class), null).close();
+        }
+        try (ReplayClient replay = new ReplayClient.Builder(log).setLatencyScale(0).build()) {
+            InputStream body = replay.request(request(RequestMethod.GET, "/large"), mock(Method.class), null).getBodyStream();
+            assertTrue(body instanceof ReadableByteChannel);
+            ByteBuffer buffer = ByteBuffer.allocate(LARGE_BODY.length + 1);
+            while (((ReadableByteChannel) body).read(buffer) >= 0) {
+                assertTrue(buffer.hasRemaining());
+            }
+            assertEquals(LARGE_BODY.length, buffer.position());
+        }
+    }
+
+    private static Request request(RequestMethod method, String path) {
+        return new Request.Builder().setMethod(method).setPath(path).build();
+    }
+
+    private static String readBody(Response response) throws Exception {
+        try (InputStream stream = response.getBodyStream()) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
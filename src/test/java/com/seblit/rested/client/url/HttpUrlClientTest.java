@@ -1,16 +1,28 @@
 package com.seblit.rested.client.url;
 
 import com.seblit.rested.client.HTTPClient;
+import com.seblit.rested.client.Request;
+import com.seblit.rested.client.RequestMethod;
 import com.seblit.rested.client.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 public class HttpUrlClientTest extends MockServerSetup {
 
@@ -39,6 +51,7 @@ public class HttpUrlClientTest extends MockServerSetup {
             byte[] data = new byte[stream.available()];
             stream.read(data);
             assertArrayEquals(TEST_BODY, data);
+            assertEquals(TEST_BODY.length, response.getContentLength());
         }
     }
 
@@ -47,6 +60,7 @@ public class HttpUrlClientTest extends MockServerSetup {
         Response response = client.request(mockedResHeaderRequest, mock(Method.class), null);
         assertArrayEquals(TEST_HEADER_SINGLE_VALUE, response.getHeaderValues(TEST_HEADER_SINGLE));
         assertArrayEquals(TEST_HEADER_MULTIPLE_VALUE, response.getHeaderValues(TEST_HEADER_MULTIPLE));
+        assertEquals(TEST_HEADER_SINGLE_VALUE[0], response.getHeaderValue(TEST_HEADER_SINGLE.toUpperCase()));
     }
 
     @Test
@@ -55,6 +69,57 @@ public class HttpUrlClientTest extends MockServerSetup {
         verifyRequest(mockedReqBodyRequest);
     }
 
+    @Test
+    public void testRequest_reqStreamedBody() throws Exception{
+        client.request(mockedReqStreamedBodyRequest, mock(Method.class), null);
+        verifyRequest(mockedReqBodyRequest);
+    }
+
+    @Test
+    public void testRequest_reqChunkedBody() throws Exception{
+        client.request(mockedReqChunkedBodyRequest, mock(Method.class), null);
+        verifyRequest(mockedReqBodyRequest);
+    }
+
+    @Test
+    public void testRequest_reqBodyBuffered() throws Exception{
+        ((HttpUrlClient) client).setStreamingModeEnabled(false);
+        client.request(mockedReqBodyRequest, mock(Method.class), null);
+        client.request(mockedReqChunkedBodyRequest, mock(Method.class), null);
+        verifyRequest(mockedReqBodyRequest, 2);
+    }
+
+    @Test
+    public void testRequest_streamingMode() throws Exception {
+        List<HttpURLConnection> connections = new ArrayList<>();
+        HttpUrlClient spyingClient = new HttpUrlClient(TEST_HOST, TEST_PORT) {
+            @Override
+            protected @NotNull HttpURLConnection createConnection(@Nullable String path, @Nullable String query) throws Exception {
+                HttpURLConnection connection = spy(super.createConnection(path, query));
+                connections.add(connection);
+                return connection;
+            }
+        };
+        spyingClient.request(mockedReqBodyRequest, mock(Method.class), null);
+        spyingClient.request(mockedReqStreamedBodyRequest, mock(Method.class), null);
+        spyingClient.request(mockedReqChunkedBodyRequest, mock(Method.class), null);
+        spyingClient.setStreamingModeEnabled(false);
+        spyingClient.request(mockedReqChunkedBodyRequest, mock(Method.class), null);
+        verify(connections.get(0)).setFixedLengthStreamingMode((long) TEST_BODY.length);
+        verify(connections.get(1)).setFixedLengthStreamingMode((long) TEST_BODY.length);
+        verify(connections.get(2)).setChunkedStreamingMode(anyInt());
+        verify(connections.get(3), never()).setFixedLengthStreamingMode(anyLong());
+        verify(connections.get(3), never()).setChunkedStreamingMode(anyInt());
+        verifyRequest(mockedReqBodyRequest, 4);
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        assertEquals(3, ((HttpUrlClient) client).warmUp(mockedResBodyRequest, 3));
+        verifyRequest(mockedResBodyRequest, 3);
+        assertEquals(0, ((HttpUrlClient) client).warmUp(mockedErrorRequest, 2));
+    }
+
     @Test
     public void testRequest_reqHeaders() throws Exception{
         client.request(mockedReqHeaderRequest, mock(Method.class), null);
@@ -67,4 +132,35 @@ public class HttpUrlClientTest extends MockServerSetup {
         verifyRequest(mockedQueryParamRequest);
     }
 
+    @Test
+    public void testRequest_nullPath() throws Exception {
+        client.request(new Request.Builder().setMethod(RequestMethod.GET).setPath(null).build(), mock(Method.class), null).close();
+        verifyRequest(new Request.Builder().setMethod(RequestMethod.GET).setPath("/").build());
+    }
+
+    @Test
+    public void testRequest_drainBody() throws Exception {
+        HttpUrlClient urlClient = (HttpUrlClient) client;
+        client.request(mockedResBodyRequest, mock(Method.class), null).close();
+        assertEquals(1, urlClient.getReleasedConnections());
+        assertEquals(0, urlClient.getDisconnectedConnections());
+    }
+
+    @Test
+    public void testRequest_disconnectBody() throws Exception {
+        HttpUrlClient urlClient = (HttpUrlClient) client;
+        urlClient.setMaxDrainBytes(0);
+        client.request(mockedResBodyRequest, mock(Method.class), null).close();
+        assertEquals(0, urlClient.getReleasedConnections());
+        assertEquals(1, urlClient.getDisconnectedConnections());
+    }
+
+    @Test
+    public void testCreateUrl() throws Exception {
+        HttpUrlClient urlClient = new HttpUrlClient(TEST_HOST, TEST_PORT);
+        assertEquals("http://" + TEST_HOST + ":" + TEST_PORT + "/a%20b/%C3%A4/%25;x=1", urlClient.createUrl("http", "/a b/ä/%;x=1", null).toString());
+        assertEquals("http://" + TEST_HOST + ":" + TEST_PORT + "/path?q=%C3%A4+b", urlClient.createUrl("http", "/path", "q=%C3%A4+b").toString());
+        assertEquals("http://" + TEST_HOST + ":" + TEST_PORT + "?q=1", urlClient.createUrl("http", null, "q=1").toString());
+    }
+
 }
@@ -1,19 +1,36 @@
 package com.seblit.rested.client.url;
 
+import com.seblit.rested.client.Response;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockserver.logging.MockServerLogger;
+import org.mockserver.socket.tls.KeyStoreFactory;
 
 import javax.net.ssl.*;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class HttpsUrlClientTest extends HttpUrlClientTest {
 
+    private static final int RESUMPTION_TEST_PORT = 1237;
+
     private HostnameVerifier mockedHostVerifier = mock(HostnameVerifier.class);
     private X509TrustManager mockedTrustManager = mock(X509TrustManager.class);
     private HttpsUrlClient httpsClient;
@@ -35,16 +52,123 @@ public class HttpsUrlClientTest extends HttpUrlClientTest {
         httpsClient.request(mockedSuccessRequest, mock(Method.class), null);
     }
 
+    @Test
+    public void testSocketFactory_default() throws Exception {
+        SSLSocketFactory defaultFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(initSocketFactory());
+        try {
+            HttpsUrlClient defaultClient = new HttpsUrlClient(TEST_HOST, TEST_PORT);
+            defaultClient.setHostnameVerifier(mockedHostVerifier);
+            defaultClient.request(mockedSuccessRequest, mock(Method.class), null).close();
+            verify(mockedTrustManager).checkServerTrusted(any(), any());
+        } finally {
+            HttpsURLConnection.setDefaultSSLSocketFactory(defaultFactory);
+        }
+    }
+
     @Test(expected = IOException.class)
     public void testHostnameVerifier() throws Exception {
         when(mockedHostVerifier.verify(any(), any())).thenReturn(false);
         httpsClient.request(mockedSuccessRequest, mock(Method.class), null);
     }
 
+    @Test
+    public void testHandshake_resumed() throws Exception {
+        assertResumed("TLSv1.2");
+    }
+
+    @Test
+    public void testHandshake_resumedTls13() throws Exception {
+        // MockServer limits https.protocols of the whole JVM to TLS 1.2 and earlier
+        String httpsProtocols = System.clearProperty("https.protocols");
+        try {
+            assertResumed("TLSv1.3");
+        } finally {
+            if (httpsProtocols != null) {
+                System.setProperty("https.protocols", httpsProtocols);
+            }
+        }
+    }
+
+    private void assertResumed(String protocol) throws Exception {
+        // a plain TLS server that caches sessions and closes each connection after its response
+        KeyStoreFactory keyStoreFactory = new KeyStoreFactory(new MockServerLogger());
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStoreFactory.loadOrCreateKeyStore(), KeyStoreFactory.KEY_STORE_PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        SSLServerSocketFactory serverFactory = serverContext.getServerSocketFactory();
+        try (SSLServerSocket server = (SSLServerSocket) serverFactory.createServerSocket(RESUMPTION_TEST_PORT)) {
+            server.setEnabledProtocols(new String[]{protocol});
+            Thread serverThread = new Thread(() -> serveOnce(server, 2));
+            serverThread.setDaemon(true);
+            serverThread.start();
+            HttpsUrlClient resumingClient = new HttpsUrlClient(TEST_HOST, RESUMPTION_TEST_PORT);
+            resumingClient.setHostnameVerifier(mockedHostVerifier);
+            resumingClient.setSslContext(initContext());
+            resumingClient.setSessionCacheSize(16);
+            resumingClient.setSessionTimeout(Duration.ofMinutes(5));
+            AtomicReference<String> negotiated = new AtomicReference<>();
+            resumingClient.setHandshakeListener(event -> negotiated.set(event.getSession().getProtocol()));
+            for (int i = 0; i < 2; i++) {
+                try (Response response = resumingClient.request(mockedResBodyRequest, mock(Method.class), null); InputStream stream = response.getBodyStream()) {
+                    assertArrayEquals(TEST_BODY, stream.readAllBytes());
+                }
+            }
+            // listeners are notified on a separate thread
+            for (int i = 0; i < 200 && resumingClient.getFullHandshakes() + resumingClient.getResumedHandshakes() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, resumingClient.getFullHandshakes());
+            assertEquals(1, resumingClient.getResumedHandshakes());
+            assertEquals(protocol, negotiated.get());
+        }
+    }
+
+    private static void serveOnce(SSLServerSocket server, int connections) {
+        for (int i = 0; i < connections; i++) {
+            try (Socket socket = server.accept()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    // headers are ignored
+                }
+                OutputStream output = socket.getOutputStream();
+                output.write(("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: " + TEST_BODY.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                output.write(TEST_BODY);
+                output.flush();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testHandshake_preferences() throws Exception {
+        HandshakeCompletedListener listener = mock(HandshakeCompletedListener.class);
+        httpsClient.setProtocols("SSLv2", "TLSv1.2");
+        httpsClient.setCipherSuites("TLS_UNKNOWN", "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256");
+        httpsClient.setHandshakeListener(listener);
+        httpsClient.request(mockedSuccessRequest, mock(Method.class), null);
+        ArgumentCaptor<HandshakeCompletedEvent> eventCaptor = ArgumentCaptor.forClass(HandshakeCompletedEvent.class);
+        verify(listener, timeout(5000)).handshakeCompleted(eventCaptor.capture());
+        assertEquals("TLSv1.2", eventCaptor.getValue().getSession().getProtocol());
+        assertEquals("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", eventCaptor.getValue().getCipherSuite());
+        assertEquals(1, httpsClient.getFullHandshakes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProtocols_unsupported() {
+        httpsClient.setProtocols("SSLv2");
+    }
+
     private SSLSocketFactory initSocketFactory() throws NoSuchAlgorithmException, KeyManagementException {
+        return initContext().getSocketFactory();
+    }
+
+    private SSLContext initContext() throws NoSuchAlgorithmException, KeyManagementException {
         SSLContext context = SSLContext.getInstance("TLS");
         context.init(null, new TrustManager[]{mockedTrustManager}, new SecureRandom());
-        return context.getSocketFactory();
+        return context;
     }
 
 }
@@ -2,6 +2,7 @@ package com.seblit.rested.client.url;
 
 import com.seblit.rested.client.Request;
 import com.seblit.rested.client.RequestMethod;
+import com.seblit.rested.client.media.StreamedRequestBody;
 import org.junit.After;
 import org.junit.Before;
 
@@ -12,7 +13,9 @@ import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.integration.ClientAndServer;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
 
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.Set;
@@ -38,6 +41,8 @@ public class MockServerSetup {
     static final Request mockedReqBodyRequest = mock(Request.class);
     static final Request mockedReqHeaderRequest = mock(Request.class);
     static final Request mockedQueryParamRequest = mock(Request.class);
+    static final Request mockedReqStreamedBodyRequest = mock(Request.class);
+    static final Request mockedReqChunkedBodyRequest = mock(Request.class);
 
     private ClientAndServer mockedServer;
 
@@ -48,6 +53,12 @@ public class MockServerSetup {
         configureRequest(mockedResBodyRequest, RequestMethod.GET, "/test/response/body", null);
         configureRequest(mockedResHeaderRequest, RequestMethod.GET, "/test/response/headers", null);
         configureRequest(mockedReqBodyRequest, RequestMethod.POST, "/test/request/body", TEST_BODY);
+        StreamedRequestBody streamedBody = createStreamedBody(TEST_BODY.length);
+        configureRequest(mockedReqStreamedBodyRequest, RequestMethod.POST, "/test/request/body", null);
+        when(mockedReqStreamedBodyRequest.getStreamedBody()).thenReturn(streamedBody);
+        StreamedRequestBody chunkedBody = createStreamedBody(-1);
+        configureRequest(mockedReqChunkedBodyRequest, RequestMethod.POST, "/test/request/body", null);
+        when(mockedReqChunkedBodyRequest.getStreamedBody()).thenReturn(chunkedBody);
         configureRequest(mockedReqHeaderRequest, RequestMethod.GET, "/test/request/headers", null);
         when(mockedReqHeaderRequest.getHeaders()).thenReturn(new String[]{TEST_HEADER_SINGLE, TEST_HEADER_MULTIPLE});
         when(mockedReqHeaderRequest.getHeaderValues(TEST_HEADER_SINGLE)).thenReturn(TEST_HEADER_SINGLE_VALUE);
@@ -56,6 +67,7 @@ public class MockServerSetup {
         when(mockedQueryParamRequest.getQueryParams()).thenReturn(new String[]{TEST_QUERY_PARAM_SINGLE, TEST_QUERY_PARAM_MULTIPLE});
         when(mockedQueryParamRequest.getQueryParamValues(TEST_QUERY_PARAM_SINGLE)).thenReturn(TEST_QUERY_PARAM_SINGLE_VALUE);
         when(mockedQueryParamRequest.getQueryParamValues(TEST_QUERY_PARAM_MULTIPLE)).thenReturn(TEST_QUERY_PARAM_MULTIPLE_VALUE);
+        when(mockedQueryParamRequest.getEncodedQuery()).thenReturn(TEST_QUERY_PARAM_SINGLE + "=value&" + TEST_QUERY_PARAM_MULTIPLE + "=value1&" + TEST_QUERY_PARAM_MULTIPLE + "=value2");
     }
 
     @Before
@@ -86,6 +98,10 @@ public class MockServerSetup {
         mockedServer.verify(createMockServerRequest(request));
     }
 
+    void verifyRequest(Request request, int times) {
+        mockedServer.verify(createMockServerRequest(request), VerificationTimes.exactly(times));
+    }
+
     private HttpRequest createMockServerRequest(Request request) {
         HttpRequest mockServerRequest = HttpRequest.request()
                 .withMethod(request.getMethod().name())
@@ -100,6 +116,20 @@ public class MockServerSetup {
         return mockServerRequest;
     }
 
+    private static StreamedRequestBody createStreamedBody(long contentLength) {
+        StreamedRequestBody streamedBody = mock(StreamedRequestBody.class);
+        when(streamedBody.getContentLength()).thenReturn(contentLength);
+        try {
+            doAnswer(invocation -> {
+                invocation.<OutputStream>getArgument(0).write(TEST_BODY);
+                return null;
+            }).when(streamedBody).writeTo(any());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return streamedBody;
+    }
+
     private static void configureRequest(Request mockedRequest, RequestMethod method, String path, byte[] body) {
         when(mockedRequest.getMethod()).thenReturn(method);
         when(mockedRequest.getPath()).thenReturn(path);